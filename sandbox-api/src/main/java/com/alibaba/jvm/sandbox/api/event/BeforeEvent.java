@@ -7,6 +7,24 @@ package com.alibaba.jvm.sandbox.api.event;
  */
 public class BeforeEvent extends InvokeEvent {
 
+    /**
+     * 触发调用事件的行为ID
+     * <p>
+     * 同一个沙箱内，同一个ClassLoader中的同一个行为拥有相同且唯一的行为ID，可作为行为缓存的KEY；
+     * 为{@link #NULL_BEHAVIOR_ID}时表示未知
+     * </p>
+     *
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public final int behaviorId;
+
+    /**
+     * 未知的行为ID
+     *
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public static final int NULL_BEHAVIOR_ID = 0;
+
     /**
      * 触发调用事件的ClassLoader
      */
@@ -57,7 +75,34 @@ public class BeforeEvent extends InvokeEvent {
                        final String javaMethodDesc,
                        final Object target,
                        final Object[] argumentArray) {
+        this(processId, invokeId, NULL_BEHAVIOR_ID, javaClassLoader, javaClassName, javaMethodName, javaMethodDesc, target, argumentArray);
+    }
+
+    /**
+     * 构造调用BEFORE事件
+     *
+     * @param processId       调用过程ID
+     * @param invokeId        调用ID
+     * @param behaviorId      触发调用事件的行为ID
+     * @param javaClassLoader 触发调用事件的ClassLoader
+     * @param javaClassName   触发调用事件的类名称
+     * @param javaMethodName  触发调用事件的方法名称
+     * @param javaMethodDesc  触发调用事件的方法签名
+     * @param target          触发调用事件的对象(静态方法为null)
+     * @param argumentArray   触发调用事件的方法参数
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public BeforeEvent(final int processId,
+                       final int invokeId,
+                       final int behaviorId,
+                       final ClassLoader javaClassLoader,
+                       final String javaClassName,
+                       final String javaMethodName,
+                       final String javaMethodDesc,
+                       final Object target,
+                       final Object[] argumentArray) {
         super(processId, invokeId, Type.BEFORE);
+        this.behaviorId = behaviorId;
         this.javaClassLoader = javaClassLoader;
         this.javaClassName = javaClassName;
         this.javaMethodName = javaMethodName;
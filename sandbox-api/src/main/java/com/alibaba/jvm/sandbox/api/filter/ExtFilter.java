@@ -36,6 +36,9 @@ public interface ExtFilter extends Filter {
 
         /**
          * 生产增强过滤器
+         * <p>
+         * 如果原生过滤器是{@link LazyFilter}，生产的增强过滤器同样是{@link LazyFilter}
+         * </p>
          *
          * @param filter              原生过滤器
          * @param isIncludeSubClasses 是否包含子类
@@ -45,6 +48,9 @@ public interface ExtFilter extends Filter {
         public static ExtFilter make(final Filter filter,
                                      final boolean isIncludeSubClasses,
                                      final boolean isIncludeBootstrap) {
+            if (filter instanceof LazyFilter) {
+                return new LazyExtFilter((LazyFilter) filter, isIncludeSubClasses, isIncludeBootstrap);
+            }
             return new ExtFilter() {
 
                 @Override
@@ -106,6 +112,45 @@ public interface ExtFilter extends Filter {
                     );
         }
 
+        /**
+         * 按需取值的增强过滤器
+         */
+        private static class LazyExtFilter implements ExtFilter, LazyFilter {
+
+            private final LazyFilter lazyFilter;
+            private final boolean isIncludeSubClasses;
+            private final boolean isIncludeBootstrap;
+
+            LazyExtFilter(final LazyFilter lazyFilter,
+                          final boolean isIncludeSubClasses,
+                          final boolean isIncludeBootstrap) {
+                this.lazyFilter = lazyFilter;
+                this.isIncludeSubClasses = isIncludeSubClasses;
+                this.isIncludeBootstrap = isIncludeBootstrap;
+            }
+
+            @Override
+            public boolean isIncludeSubClasses() {
+                return isIncludeSubClasses;
+            }
+
+            @Override
+            public boolean isIncludeBootstrap() {
+                return isIncludeBootstrap;
+            }
+
+            @Override
+            public boolean doClassFilter(final ClassDescription classDescription) {
+                return lazyFilter.doClassFilter(classDescription);
+            }
+
+            @Override
+            public boolean doMethodFilter(final BehaviorDescription behaviorDescription) {
+                return lazyFilter.doMethodFilter(behaviorDescription);
+            }
+
+        }
+
     }
 
 }
@@ -1,11 +1,19 @@
 package com.alibaba.jvm.sandbox.api.filter;
 
+import com.alibaba.jvm.sandbox.api.util.PatternMatcher;
+
 /**
  * 增强过滤器V140实现，根据#292实现
+ * <p>
+ * 同时也是{@link LazyFilter}：代理目标是{@link LazyFilter}时直接按需取值，
+ * 否则只为需要过滤的类型准备名称数组，其余类型以空数组代替
+ * </p>
  *
  * @since {@code sandbox-api:1.4.0}
  */
-public class ExtFilterImplByV140 implements ExtFilter {
+public class ExtFilterImplByV140 implements ExtFilter, LazyFilter {
+
+    private static final String[] EMPTY_STRING_ARRAY = new String[0];
 
     private final ExtFilter target;
     private final boolean isHasInterfaceTypes;
@@ -13,6 +21,9 @@ public class ExtFilterImplByV140 implements ExtFilter {
     private final boolean isBehaviorHasWithParameterTypes;
     private final boolean isBehaviorHasExceptionTypes;
     private final boolean isBehaviorHasAnnotationTypes;
+    private final String javaClassNamePrefix;
+    private final PatternMatcher javaClassNameMatcher;
+    private final String canonicalKey;
 
     /**
      * 增强过滤器V140实现
@@ -27,12 +38,84 @@ public class ExtFilterImplByV140 implements ExtFilter {
     public ExtFilterImplByV140(ExtFilter target,
                                boolean isHasInterfaceTypes, boolean isHasAnnotationTypes,
                                boolean isBehaviorHasWithParameterTypes, boolean isBehaviorHasExceptionTypes, boolean isBehaviorHasAnnotationTypes) {
+        this(target,
+                isHasInterfaceTypes, isHasAnnotationTypes,
+                isBehaviorHasWithParameterTypes, isBehaviorHasExceptionTypes, isBehaviorHasAnnotationTypes,
+                null);
+    }
+
+    /**
+     * 增强过滤器V140实现
+     *
+     * @param target                          代理增强过滤器目标
+     * @param isHasInterfaceTypes             是否需要过滤接口类型
+     * @param isHasAnnotationTypes            是否需要过滤注解类型
+     * @param isBehaviorHasWithParameterTypes 是否需要方法参数类型
+     * @param isBehaviorHasExceptionTypes     是否需要方法异常类型
+     * @param isBehaviorHasAnnotationTypes    是否需要方法注解类型
+     * @param javaClassNamePrefix             类名前缀，为null时表示无法确定
+     */
+    public ExtFilterImplByV140(ExtFilter target,
+                               boolean isHasInterfaceTypes, boolean isHasAnnotationTypes,
+                               boolean isBehaviorHasWithParameterTypes, boolean isBehaviorHasExceptionTypes, boolean isBehaviorHasAnnotationTypes,
+                               String javaClassNamePrefix) {
+        this(target,
+                isHasInterfaceTypes, isHasAnnotationTypes,
+                isBehaviorHasWithParameterTypes, isBehaviorHasExceptionTypes, isBehaviorHasAnnotationTypes,
+                javaClassNamePrefix, null);
+    }
+
+    /**
+     * 增强过滤器V140实现
+     *
+     * @param target                          代理增强过滤器目标
+     * @param isHasInterfaceTypes             是否需要过滤接口类型
+     * @param isHasAnnotationTypes            是否需要过滤注解类型
+     * @param isBehaviorHasWithParameterTypes 是否需要方法参数类型
+     * @param isBehaviorHasExceptionTypes     是否需要方法异常类型
+     * @param isBehaviorHasAnnotationTypes    是否需要方法注解类型
+     * @param javaClassNamePrefix             类名前缀，为null时表示无法确定
+     * @param javaClassNameMatcher            预编译的类名匹配器，为null时表示无法确定
+     */
+    public ExtFilterImplByV140(ExtFilter target,
+                               boolean isHasInterfaceTypes, boolean isHasAnnotationTypes,
+                               boolean isBehaviorHasWithParameterTypes, boolean isBehaviorHasExceptionTypes, boolean isBehaviorHasAnnotationTypes,
+                               String javaClassNamePrefix,
+                               PatternMatcher javaClassNameMatcher) {
+        this(target,
+                isHasInterfaceTypes, isHasAnnotationTypes,
+                isBehaviorHasWithParameterTypes, isBehaviorHasExceptionTypes, isBehaviorHasAnnotationTypes,
+                javaClassNamePrefix, javaClassNameMatcher, null);
+    }
+
+    /**
+     * 增强过滤器V140实现
+     *
+     * @param target                          代理增强过滤器目标
+     * @param isHasInterfaceTypes             是否需要过滤接口类型
+     * @param isHasAnnotationTypes            是否需要过滤注解类型
+     * @param isBehaviorHasWithParameterTypes 是否需要方法参数类型
+     * @param isBehaviorHasExceptionTypes     是否需要方法异常类型
+     * @param isBehaviorHasAnnotationTypes    是否需要方法注解类型
+     * @param javaClassNamePrefix             类名前缀，为null时表示无法确定
+     * @param javaClassNameMatcher            预编译的类名匹配器，为null时表示无法确定
+     * @param canonicalKey                    过滤器的规范KEY，为null时表示无法确定
+     */
+    public ExtFilterImplByV140(ExtFilter target,
+                               boolean isHasInterfaceTypes, boolean isHasAnnotationTypes,
+                               boolean isBehaviorHasWithParameterTypes, boolean isBehaviorHasExceptionTypes, boolean isBehaviorHasAnnotationTypes,
+                               String javaClassNamePrefix,
+                               PatternMatcher javaClassNameMatcher,
+                               String canonicalKey) {
         this.target = target;
         this.isHasInterfaceTypes = isHasInterfaceTypes;
         this.isHasAnnotationTypes = isHasAnnotationTypes;
         this.isBehaviorHasWithParameterTypes = isBehaviorHasWithParameterTypes;
         this.isBehaviorHasExceptionTypes = isBehaviorHasExceptionTypes;
         this.isBehaviorHasAnnotationTypes = isBehaviorHasAnnotationTypes;
+        this.javaClassNamePrefix = javaClassNamePrefix;
+        this.javaClassNameMatcher = javaClassNameMatcher;
+        this.canonicalKey = canonicalKey;
     }
 
     /**
@@ -80,6 +163,83 @@ public class ExtFilterImplByV140 implements ExtFilter {
         return isBehaviorHasAnnotationTypes;
     }
 
+    /**
+     * 获取类名前缀
+     * <p>
+     * 只有类名以此为前缀的类才有可能通过{@link #doClassFilter(int, String, String, String[], String[])}，
+     * 容器可以据此缩小需要匹配的类范围
+     * </p>
+     *
+     * @return 类名前缀，为null时表示无法确定
+     */
+    public String getJavaClassNamePrefix() {
+        return javaClassNamePrefix;
+    }
+
+    /**
+     * 获取预编译的类名匹配器
+     * <p>
+     * 只有类名能通过此匹配器的类才有可能通过{@link #doClassFilter(int, String, String, String[], String[])}，
+     * 容器可以在解析类结构之前据此排除无需匹配的类
+     * </p>
+     *
+     * @return 类名匹配器，为null时表示无法确定
+     */
+    public PatternMatcher getJavaClassNameMatcher() {
+        return javaClassNameMatcher;
+    }
+
+    /**
+     * 获取过滤器的规范KEY
+     * <p>
+     * KEY完整描述了过滤器的匹配条件，KEY相同的过滤器对同一个类一定给出相同的过滤结果，
+     * 容器可以据此复用之前的匹配结果
+     * </p>
+     *
+     * @return 规范KEY，为null时表示无法确定
+     */
+    public String getCanonicalKey() {
+        return canonicalKey;
+    }
+
+    @Override
+    public boolean doClassFilter(final ClassDescription classDescription) {
+        if (target instanceof LazyFilter) {
+            return ((LazyFilter) target).doClassFilter(classDescription);
+        }
+        return target.doClassFilter(
+                classDescription.getAccess(),
+                classDescription.getJavaClassName(),
+                classDescription.getSuperClassTypeJavaClassName(),
+                isHasInterfaceTypes
+                        ? classDescription.getInterfaceTypeJavaClassNameArray()
+                        : EMPTY_STRING_ARRAY,
+                isHasAnnotationTypes
+                        ? classDescription.getAnnotationTypeJavaClassNameArray()
+                        : EMPTY_STRING_ARRAY
+        );
+    }
+
+    @Override
+    public boolean doMethodFilter(final BehaviorDescription behaviorDescription) {
+        if (target instanceof LazyFilter) {
+            return ((LazyFilter) target).doMethodFilter(behaviorDescription);
+        }
+        return target.doMethodFilter(
+                behaviorDescription.getAccess(),
+                behaviorDescription.getJavaMethodName(),
+                isBehaviorHasWithParameterTypes
+                        ? behaviorDescription.getParameterTypeJavaClassNameArray()
+                        : EMPTY_STRING_ARRAY,
+                isBehaviorHasExceptionTypes
+                        ? behaviorDescription.getThrowsTypeJavaClassNameArray()
+                        : EMPTY_STRING_ARRAY,
+                isBehaviorHasAnnotationTypes
+                        ? behaviorDescription.getAnnotationTypeJavaClassNameArray()
+                        : EMPTY_STRING_ARRAY
+        );
+    }
+
     @Override
     public boolean isIncludeSubClasses() {
         return target.isIncludeSubClasses();
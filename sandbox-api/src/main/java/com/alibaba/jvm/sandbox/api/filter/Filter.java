@@ -2,6 +2,12 @@ package com.alibaba.jvm.sandbox.api.filter;
 
 /**
  * 类和方法过滤器
+ * <p>
+ * 默认情况下匹配已加载的类时，过滤器只在调用线程中被串行调用；
+ * 如果容器配置了{@code class.matching.parallelism}大于1，同一个过滤器会被多个线程同时调用，
+ * 此时过滤器必须是线程安全的，也不能依赖{@link #doClassFilter(int, String, String, String[], String[])}
+ * 与{@link #doMethodFilter(int, String, String[], String[], String[])}之间的调用顺序来传递状态
+ * </p>
  *
  * @author luanjia@taobao.com
  */
@@ -27,7 +33,8 @@ public interface Filter {
      * 过滤出匹配的方法
      * <p>
      * 严格意义上来说，该方法被调用的时候，一定是{@link Filter#doClassFilter(int, String, String, String[], String[])}上一次返回true的调用。
-     * 所以可以通过简单的引用就可以在doMethodFilter执行的时候拿到doClassFilter的信息
+     * 所以可以通过简单的引用就可以在doMethodFilter执行的时候拿到doClassFilter的信息。
+     * 注意这只在串行匹配时成立，开启并行匹配后多个线程的调用会交错进行
      * </p>
      * <p>如果你需要综合对Class和Method做一个拉平之后的综合判断，可以考虑使用{@link OrGroupFilter}来实现</p>
      *
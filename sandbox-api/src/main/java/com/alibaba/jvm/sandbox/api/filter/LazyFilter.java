@@ -0,0 +1,173 @@
+package com.alibaba.jvm.sandbox.api.filter;
+
+/**
+ * 按需取值的过滤器
+ * <p>
+ * {@link Filter}在每次过滤前都需要容器先解析出父类、接口、注解、参数、异常等所有类型并拼好名称数组，
+ * 哪怕过滤器只凭类名或方法名就能做出判断。按需取值的过滤器只拿到类描述和行为描述，
+ * 只有真正读取某一项时容器才会去解析对应的类结构，没有读取的类型永远不会被解析
+ * </p>
+ * <p>
+ * 容器遇到此过滤器时会调用{@link #doClassFilter(ClassDescription)}和{@link #doMethodFilter(BehaviorDescription)}，
+ * 其他只认识{@link Filter}的调用方仍然可以通过原有的两个方法使用它
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public interface LazyFilter extends Filter {
+
+    /**
+     * 过滤出匹配的类
+     *
+     * @param classDescription 类描述
+     * @return true:匹配;false:不匹配;
+     */
+    boolean doClassFilter(ClassDescription classDescription);
+
+    /**
+     * 过滤出匹配的方法
+     *
+     * @param behaviorDescription 行为描述
+     * @return true:匹配;false:不匹配;
+     */
+    boolean doMethodFilter(BehaviorDescription behaviorDescription);
+
+    @Override
+    default boolean doClassFilter(final int access,
+                                  final String javaClassName,
+                                  final String superClassTypeJavaClassName,
+                                  final String[] interfaceTypeJavaClassNameArray,
+                                  final String[] annotationTypeJavaClassNameArray) {
+        return doClassFilter(new ClassDescription() {
+            @Override
+            public int getAccess() {
+                return access;
+            }
+
+            @Override
+            public String getJavaClassName() {
+                return javaClassName;
+            }
+
+            @Override
+            public String getSuperClassTypeJavaClassName() {
+                return superClassTypeJavaClassName;
+            }
+
+            @Override
+            public String[] getInterfaceTypeJavaClassNameArray() {
+                return interfaceTypeJavaClassNameArray;
+            }
+
+            @Override
+            public String[] getAnnotationTypeJavaClassNameArray() {
+                return annotationTypeJavaClassNameArray;
+            }
+        });
+    }
+
+    @Override
+    default boolean doMethodFilter(final int access,
+                                   final String javaMethodName,
+                                   final String[] parameterTypeJavaClassNameArray,
+                                   final String[] throwsTypeJavaClassNameArray,
+                                   final String[] annotationTypeJavaClassNameArray) {
+        return doMethodFilter(new BehaviorDescription() {
+            @Override
+            public int getAccess() {
+                return access;
+            }
+
+            @Override
+            public String getJavaMethodName() {
+                return javaMethodName;
+            }
+
+            @Override
+            public String[] getParameterTypeJavaClassNameArray() {
+                return parameterTypeJavaClassNameArray;
+            }
+
+            @Override
+            public String[] getThrowsTypeJavaClassNameArray() {
+                return throwsTypeJavaClassNameArray;
+            }
+
+            @Override
+            public String[] getAnnotationTypeJavaClassNameArray() {
+                return annotationTypeJavaClassNameArray;
+            }
+        });
+    }
+
+    /**
+     * 类描述
+     * <p>
+     * 除了access和类名，其他各项都在第一次读取时才会解析，返回的数组可能是容器缓存的共享数组，不允许修改
+     * </p>
+     */
+    interface ClassDescription {
+
+        /**
+         * @return access flag
+         */
+        int getAccess();
+
+        /**
+         * @return 类名(全路径名称)
+         */
+        String getJavaClassName();
+
+        /**
+         * @return 父类(全路径名称)
+         */
+        String getSuperClassTypeJavaClassName();
+
+        /**
+         * @return 接口类型名称数组
+         */
+        String[] getInterfaceTypeJavaClassNameArray();
+
+        /**
+         * @return 标注原数据类型名称数组
+         */
+        String[] getAnnotationTypeJavaClassNameArray();
+
+    }
+
+    /**
+     * 行为描述
+     * <p>
+     * 除了access和方法名，其他各项都在第一次读取时才会解析，返回的数组可能是容器缓存的共享数组，不允许修改
+     * </p>
+     */
+    interface BehaviorDescription {
+
+        /**
+         * @return access flag
+         */
+        int getAccess();
+
+        /**
+         * @return 方法名称(包括类名称,静态方法名,普通方法名和构造函数)
+         */
+        String getJavaMethodName();
+
+        /**
+         * @return 参数类型名称数组
+         */
+        String[] getParameterTypeJavaClassNameArray();
+
+        /**
+         * @return 声明异常类型名称数组
+         */
+        String[] getThrowsTypeJavaClassNameArray();
+
+        /**
+         * @return 标注原数据类型名称数组
+         */
+        String[] getAnnotationTypeJavaClassNameArray();
+
+    }
+
+}
@@ -17,19 +17,21 @@ import java.util.Set;
  */
 public class Advice implements Attachment {
 
-    private final int processId;
-    private final int invokeId;
+    private int processId;
+    private int invokeId;
 
-    private final ClassLoader loader;
-    private final LazyGet<Behavior> behaviorLazyGet;
-    private final Object[] parameterArray;
-    private final Object target;
+    private ClassLoader loader;
+    private LazyGet<Behavior> behaviorLazyGet;
+    private Object[] parameterArray;
+    private Object target;
 
     private Object returnObj;
     private Throwable throwable;
 
     private Object attachment;
-    private final Set<String> marks = new HashSet<>();
+
+    // 大部分通知都不会打标记，第一次打标记时才创建
+    private Set<String> marks;
 
     private Advice top = this;
     private Advice parent = this;
@@ -59,6 +61,49 @@ public class Advice implements Attachment {
         this.target = target;
     }
 
+    /**
+     * 重置通知，用于复用通知对象
+     *
+     * @param processId       {@link InvokeEvent#processId}
+     * @param invokeId        {@link InvokeEvent#invokeId}
+     * @param behaviorLazyGet 触发事件的行为(懒加载)
+     * @param loader          触发事件的行为所在ClassLoader
+     * @param parameterArray  触发事件的行为入参
+     * @param target          触发事件所归属的对象实例
+     * @return this
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    Advice reset(final int processId,
+                 final int invokeId,
+                 final LazyGet<Behavior> behaviorLazyGet,
+                 final ClassLoader loader,
+                 final Object[] parameterArray,
+                 final Object target) {
+        this.processId = processId;
+        this.invokeId = invokeId;
+        this.behaviorLazyGet = behaviorLazyGet;
+        this.loader = loader;
+        this.parameterArray = parameterArray;
+        this.target = target;
+        this.returnObj = null;
+        this.throwable = null;
+        this.attachment = null;
+        if (null != marks) {
+            marks.clear();
+        }
+        this.top = this;
+        this.parent = this;
+        this.state = Event.Type.BEFORE;
+        return this;
+    }
+
+    /**
+     * 回收通知，清空通知持有的所有对象，等待下一次复用
+     */
+    void recycle() {
+        reset(0, 0, null, null, null, null);
+    }
+
     /**
      * 应用BEFORE
      *
@@ -228,6 +273,9 @@ public class Advice implements Attachment {
      * @param mark 标记
      */
     public void mark(final String mark) {
+        if (null == marks) {
+            marks = new HashSet<>();
+        }
         marks.add(mark);
     }
 
@@ -238,7 +286,8 @@ public class Advice implements Attachment {
      * @return TRUE:拥有;FALSE:不拥有
      */
     public boolean hasMark(final String exceptMark) {
-        return marks.contains(exceptMark);
+        return null != marks
+                && marks.contains(exceptMark);
     }
 
     /**
@@ -248,7 +297,8 @@ public class Advice implements Attachment {
      * @return TRUE:标记曾经存在，现已删；FALSE：标记从未存在，现已删；
      */
     public boolean unMark(final String mark) {
-        return marks.remove(mark);
+        return null != marks
+                && marks.remove(mark);
     }
 
     /**
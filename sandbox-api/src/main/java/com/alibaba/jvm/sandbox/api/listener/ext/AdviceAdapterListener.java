@@ -2,14 +2,11 @@ package com.alibaba.jvm.sandbox.api.listener.ext;
 
 import com.alibaba.jvm.sandbox.api.event.*;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
-import com.alibaba.jvm.sandbox.api.util.BehaviorDescriptor;
-import com.alibaba.jvm.sandbox.api.util.CacheGet;
 import com.alibaba.jvm.sandbox.api.util.GaStringUtils;
 import com.alibaba.jvm.sandbox.api.util.LazyGet;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
-import java.util.Stack;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 通知监听器
@@ -21,8 +18,12 @@ public class AdviceAdapterListener implements EventListener {
 
     private final AdviceListener adviceListener;
 
+    // 是否复用通知对象，参考{@link AdviceListener#isAdviceReusable()}
+    private final boolean isAdviceReusable;
+
     public AdviceAdapterListener(final AdviceListener adviceListener) {
         this.adviceListener = adviceListener;
+        this.isAdviceReusable = adviceListener.isAdviceReusable();
     }
 
     private final ThreadLocal<OpStack> opStackRef = ThreadLocal.withInitial(OpStack::new);
@@ -34,11 +35,11 @@ public class AdviceAdapterListener implements EventListener {
             switchEvent(opStack, event);
         } finally {
             // 如果执行到TOP的最后一个事件，则需要主动清理占用的资源
+            // 操作堆栈、栈帧以及复用的通知都由模块的ClassLoader加载，不能留在业务线程中，否则模块卸载后ClassLoader无法回收
             if (opStack.isEmpty()) {
                 opStackRef.remove();
             }
         }
-
     }
 
 
@@ -50,47 +51,26 @@ public class AdviceAdapterListener implements EventListener {
             case BEFORE: {
                 final BeforeEvent bEvent = (BeforeEvent) event;
                 final ClassLoader loader = toClassLoader(bEvent.javaClassLoader);
-                final Advice advice = new Advice(
-                        bEvent.processId,
-                        bEvent.invokeId,
-                        new LazyGet<Behavior>() {
-
-                            private final ClassLoader _loader = loader;
-                            private final String _javaClassName = bEvent.javaClassName;
-                            private final String _javaMethodName = bEvent.javaMethodName;
-                            private final String _javaMethodDesc = bEvent.javaMethodDesc;
-
-                            @Override
-                            protected Behavior initialValue() throws Throwable {
-                                return toBehavior(
-                                        toClass(_loader, _javaClassName),
-                                        _javaMethodName,
-                                        _javaMethodDesc
-                                );
-                            }
-                        },
-                        loader,
-                        bEvent.argumentArray,
-                        bEvent.target
-                );
 
-                final Advice top;
-                final Advice parent;
+                // 非顶层调用时，上一个调用的通知即为父通知
+                final Advice parent = opStack.isEmpty()
+                        ? null
+                        : opStack.peek().advice;
+
+                final Frame frame = opStack.push();
+                final Advice advice = toAdvice(frame, bEvent, loader);
+                frame.advice = advice;
 
                 // 顶层调用
-                if (opStack.isEmpty()) {
-                    top = parent = advice;
+                if (null == parent) {
+                    advice.applyBefore(advice, advice);
                 }
 
                 // 非顶层
                 else {
-                    parent = opStack.peek().advice;
-                    top = parent.getProcessTop();
+                    advice.applyBefore(parent.getProcessTop(), parent);
                 }
 
-                advice.applyBefore(top, parent);
-
-                opStackRef.get().pushForBegin(advice);
                 adviceListener.before(advice);
                 break;
             }
@@ -99,33 +79,41 @@ public class AdviceAdapterListener implements EventListener {
             case IMMEDIATELY_THROWS:
             case IMMEDIATELY_RETURN: {
                 final InvokeEvent invokeEvent = (InvokeEvent) event;
-                opStack.popByExpectInvokeId(invokeEvent.invokeId);
+                recycle(opStack.popByExpectInvokeId(invokeEvent.invokeId));
                 // 修复#123
                 break;
             }
 
             case RETURN: {
                 final ReturnEvent rEvent = (ReturnEvent) event;
-                final WrapAdvice wrapAdvice = opStack.popByExpectInvokeId(rEvent.invokeId);
-                if (null != wrapAdvice) {
-                    Advice advice = wrapAdvice.advice.applyReturn(rEvent.object);
+                final Advice advice = opStack.popByExpectInvokeId(rEvent.invokeId);
+                if (null != advice) {
+                    advice.applyReturn(rEvent.object);
                     try {
                         adviceListener.afterReturning(advice);
                     } finally {
-                        adviceListener.after(advice);
+                        try {
+                            adviceListener.after(advice);
+                        } finally {
+                            recycle(advice);
+                        }
                     }
                 }
                 break;
             }
             case THROWS: {
                 final ThrowsEvent tEvent = (ThrowsEvent) event;
-                final WrapAdvice wrapAdvice = opStack.popByExpectInvokeId(tEvent.invokeId);
-                if (null != wrapAdvice) {
-                    Advice advice = wrapAdvice.advice.applyThrows(tEvent.throwable);
+                final Advice advice = opStack.popByExpectInvokeId(tEvent.invokeId);
+                if (null != advice) {
+                    advice.applyThrows(tEvent.throwable);
                     try {
                         adviceListener.afterThrowing(advice);
                     } finally {
-                        adviceListener.after(advice);
+                        try {
+                            adviceListener.after(advice);
+                        } finally {
+                            recycle(advice);
+                        }
                     }
                 }
                 break;
@@ -133,53 +121,51 @@ public class AdviceAdapterListener implements EventListener {
 
             case CALL_BEFORE: {
                 final CallBeforeEvent cbEvent = (CallBeforeEvent) event;
-                final WrapAdvice wrapAdvice = opStack.peekByExpectInvokeId(cbEvent.invokeId);
-                if (null == wrapAdvice) {
+                final Frame frame = opStack.peekByExpectInvokeId(cbEvent.invokeId);
+                if (null == frame) {
                     return;
                 }
-                final CallTarget target;
-                wrapAdvice.attach(target = new CallTarget(
+                frame.attachCallTarget(
                         cbEvent.lineNumber,
                         toJavaClassName(cbEvent.owner),
                         cbEvent.name,
                         cbEvent.desc
-                ));
+                );
                 adviceListener.beforeCall(
-                        wrapAdvice.advice,
-                        target.callLineNum,
-                        target.callJavaClassName,
-                        target.callJavaMethodName,
-                        target.callJavaMethodDesc
+                        frame.advice,
+                        frame.callLineNum,
+                        frame.callJavaClassName,
+                        frame.callJavaMethodName,
+                        frame.callJavaMethodDesc
                 );
                 break;
             }
 
             case CALL_RETURN: {
                 final CallReturnEvent crEvent = (CallReturnEvent) event;
-                final WrapAdvice wrapAdvice = opStack.peekByExpectInvokeId(crEvent.invokeId);
-                if (null == wrapAdvice) {
+                final Frame frame = opStack.peekByExpectInvokeId(crEvent.invokeId);
+                if (null == frame) {
                     return;
                 }
-                final CallTarget target = wrapAdvice.attachment();
-                if (null == target) {
+                if (!frame.hasCallTarget) {
                     // 这里做一个容灾保护，防止在callBefore()中发生什么异常导致beforeCall()之前失败
                     return;
                 }
                 try {
                     adviceListener.afterCallReturning(
-                            wrapAdvice.advice,
-                            target.callLineNum,
-                            target.callJavaClassName,
-                            target.callJavaMethodName,
-                            target.callJavaMethodDesc
+                            frame.advice,
+                            frame.callLineNum,
+                            frame.callJavaClassName,
+                            frame.callJavaMethodName,
+                            frame.callJavaMethodDesc
                     );
                 } finally {
                     adviceListener.afterCall(
-                            wrapAdvice.advice,
-                            target.callLineNum,
-                            target.callJavaClassName,
-                            target.callJavaMethodName,
-                            target.callJavaMethodDesc,
+                            frame.advice,
+                            frame.callLineNum,
+                            frame.callJavaClassName,
+                            frame.callJavaMethodName,
+                            frame.callJavaMethodDesc,
                             null
                     );
                 }
@@ -188,31 +174,30 @@ public class AdviceAdapterListener implements EventListener {
 
             case CALL_THROWS: {
                 final CallThrowsEvent ctEvent = (CallThrowsEvent) event;
-                final WrapAdvice wrapAdvice = opStack.peekByExpectInvokeId(ctEvent.invokeId);
-                if (null == wrapAdvice) {
+                final Frame frame = opStack.peekByExpectInvokeId(ctEvent.invokeId);
+                if (null == frame) {
                     return;
                 }
-                final CallTarget target = wrapAdvice.attachment();
-                if (null == target) {
+                if (!frame.hasCallTarget) {
                     // 这里做一个容灾保护，防止在callBefore()中发生什么异常导致beforeCall()之前失败
                     return;
                 }
                 try {
                     adviceListener.afterCallThrowing(
-                            wrapAdvice.advice,
-                            target.callLineNum,
-                            target.callJavaClassName,
-                            target.callJavaMethodName,
-                            target.callJavaMethodDesc,
+                            frame.advice,
+                            frame.callLineNum,
+                            frame.callJavaClassName,
+                            frame.callJavaMethodName,
+                            frame.callJavaMethodDesc,
                             ctEvent.throwException
                     );
                 } finally {
                     adviceListener.afterCall(
-                            wrapAdvice.advice,
-                            target.callLineNum,
-                            target.callJavaClassName,
-                            target.callJavaMethodName,
-                            target.callJavaMethodDesc,
+                            frame.advice,
+                            frame.callLineNum,
+                            frame.callJavaClassName,
+                            frame.callJavaMethodName,
+                            frame.callJavaMethodDesc,
                             ctEvent.throwException
                     );
                 }
@@ -221,11 +206,11 @@ public class AdviceAdapterListener implements EventListener {
 
             case LINE: {
                 final LineEvent lEvent = (LineEvent) event;
-                final WrapAdvice wrapAdvice = opStack.peekByExpectInvokeId(lEvent.invokeId);
-                if (null == wrapAdvice) {
+                final Frame frame = opStack.peekByExpectInvokeId(lEvent.invokeId);
+                if (null == frame) {
                     return;
                 }
-                adviceListener.beforeLine(wrapAdvice.advice, lEvent.lineNumber);
+                adviceListener.beforeLine(frame.advice, lEvent.lineNumber);
                 break;
             }
 
@@ -238,23 +223,65 @@ public class AdviceAdapterListener implements EventListener {
     // --- 以下为内部操作实现 ---
 
 
+    // 创建通知，复用通知对象时重置栈帧上的通知
+    private Advice toAdvice(final Frame frame,
+                            final BeforeEvent bEvent,
+                            final ClassLoader loader) {
+        final LazyGet<Behavior> behaviorLazyGet = toBehaviorLazyGet(bEvent, loader);
+        if (!isAdviceReusable) {
+            return new Advice(bEvent.processId, bEvent.invokeId, behaviorLazyGet, loader, bEvent.argumentArray, bEvent.target);
+        }
+        if (null == frame.reusableAdvice) {
+            frame.reusableAdvice = new Advice(bEvent.processId, bEvent.invokeId, behaviorLazyGet, loader, bEvent.argumentArray, bEvent.target);
+        } else {
+            frame.reusableAdvice.reset(bEvent.processId, bEvent.invokeId, behaviorLazyGet, loader, bEvent.argumentArray, bEvent.target);
+        }
+        return frame.reusableAdvice;
+    }
+
+    // 通知处理完成，复用通知对象时清空通知，不再持有业务对象
+    private void recycle(final Advice advice) {
+        if (isAdviceReusable
+                && null != advice) {
+            advice.recycle();
+        }
+    }
+
     /**
      * 通知操作堆栈
+     * <p>
+     * 以数组实现，只在当前线程中访问，无需同步。栈帧在出栈后保留在数组中供同一个调用过程中下一次同一深度的调用复用，
+     * 调用过程结束时整个操作堆栈随之丢弃
+     * </p>
      */
     private static class OpStack {
 
-        private final Stack<WrapAdvice> adviceStack = new Stack<>();
+        // 初始调用深度
+        private static final int INITIAL_DEPTH = 16;
+
+        private Frame[] frames = new Frame[INITIAL_DEPTH];
+        private int size = 0;
 
         boolean isEmpty() {
-            return adviceStack.isEmpty();
+            return size == 0;
         }
 
-        WrapAdvice peek() {
-            return adviceStack.peek();
+        Frame peek() {
+            return frames[size - 1];
         }
 
-        void pushForBegin(final Advice advice) {
-            adviceStack.push(new WrapAdvice(advice));
+        Frame push() {
+            if (size == frames.length) {
+                final Frame[] newFrames = new Frame[frames.length * 2];
+                System.arraycopy(frames, 0, newFrames, 0, frames.length);
+                frames = newFrames;
+            }
+            Frame frame = frames[size];
+            if (null == frame) {
+                frames[size] = frame = new Frame();
+            }
+            size++;
+            return frame;
         }
 
         /**
@@ -266,22 +293,63 @@ public class AdviceAdapterListener implements EventListener {
          *                       必须要求和BEFORE的invokeId配对
          * @return 如果invokeId配对成功，则返回对应的Advice，否则返回null
          */
-        WrapAdvice popByExpectInvokeId(final int expectInvokeId) {
-            return !adviceStack.isEmpty()
-                    && adviceStack.peek().advice.getInvokeId() == expectInvokeId
-                    ? adviceStack.pop()
-                    : null;
+        Advice popByExpectInvokeId(final int expectInvokeId) {
+            if (null == peekByExpectInvokeId(expectInvokeId)) {
+                return null;
+            }
+            final Frame frame = frames[--size];
+            final Advice advice = frame.advice;
+            frame.clear();
+            return advice;
         }
 
-        WrapAdvice peekByExpectInvokeId(final int expectInvokeId) {
-            return !adviceStack.isEmpty()
-                    && adviceStack.peek().advice.getInvokeId() == expectInvokeId
-                    ? adviceStack.peek()
+        Frame peekByExpectInvokeId(final int expectInvokeId) {
+            return size > 0
+                    && frames[size - 1].advice.getInvokeId() == expectInvokeId
+                    ? frames[size - 1]
                     : null;
         }
 
     }
 
+    /**
+     * 栈帧，一次调用的通知以及CALL目标
+     */
+    private static class Frame {
+
+        Advice advice;
+
+        // 复用通知对象时，本调用深度上复用的通知
+        Advice reusableAdvice;
+
+        boolean hasCallTarget;
+        int callLineNum;
+        String callJavaClassName;
+        String callJavaMethodName;
+        String callJavaMethodDesc;
+
+        void attachCallTarget(final int callLineNum,
+                              final String callJavaClassName,
+                              final String callJavaMethodName,
+                              final String callJavaMethodDesc) {
+            this.hasCallTarget = true;
+            this.callLineNum = callLineNum;
+            this.callJavaClassName = callJavaClassName;
+            this.callJavaMethodName = callJavaMethodName;
+            this.callJavaMethodDesc = callJavaMethodDesc;
+        }
+
+        void clear() {
+            this.advice = null;
+            this.hasCallTarget = false;
+            this.callLineNum = 0;
+            this.callJavaClassName = null;
+            this.callJavaMethodName = null;
+            this.callJavaMethodDesc = null;
+        }
+
+    }
+
     // change internalClassName to javaClassName
     private String toJavaClassName(final String internalClassName) {
         if (GaStringUtils.isEmpty(internalClassName)) {
@@ -309,105 +377,121 @@ public class AdviceAdapterListener implements EventListener {
     }
 
 
-    /**
-     * 行为缓存KEY对象
-     */
-    private static class BehaviorCacheKey {
-        private final Class<?> clazz;
-        private final String javaMethodName;
-        private final String javaMethodDesc;
-
-        private BehaviorCacheKey(final Class<?> clazz,
-                                 final String javaMethodName,
-                                 final String javaMethodDesc) {
-            this.clazz = clazz;
-            this.javaMethodName = javaMethodName;
-            this.javaMethodDesc = javaMethodDesc;
-        }
+    // 行为懒加载，以行为ID作为数组下标
+    // 行为ID在同一个沙箱内连续且唯一，同一个行为的所有通知共享一个懒加载，命中时只需要一次数组访问，无需加载类和反射查找
+    // 懒加载与监听器同生命周期，只能弱引用业务ClassLoader和类，不能阻碍业务ClassLoader的卸载
+    private volatile BehaviorLazyGet[] behaviorLazyGetsById = new BehaviorLazyGet[0];
 
+    // 解析出的行为挂在类上，与类和监听器中较短的一方同生命周期：
+    // 只要类还在就不会因GC而重新解析，行为又只被类自身引用，不会阻碍业务ClassLoader的卸载
+    private final ClassValue<ConcurrentHashMap<String, Behavior>> behaviorsOfClass = new ClassValue<ConcurrentHashMap<String, Behavior>>() {
         @Override
-        public int hashCode() {
-            return clazz.hashCode()
-                    + javaMethodName.hashCode()
-                    + javaMethodDesc.hashCode();
+        protected ConcurrentHashMap<String, Behavior> computeValue(final Class<?> clazz) {
+            return new ConcurrentHashMap<>();
         }
+    };
 
-        @Override
-        public boolean equals(Object o) {
-            if (!(o instanceof BehaviorCacheKey)) {
-                return false;
+    // 获取行为懒加载，没有行为ID时每个通知单独懒加载
+    private LazyGet<Behavior> toBehaviorLazyGet(final BeforeEvent bEvent,
+                                                final ClassLoader loader) {
+        final int behaviorId = bEvent.behaviorId;
+        if (behaviorId <= BeforeEvent.NULL_BEHAVIOR_ID) {
+            return new BehaviorLazyGet(loader, bEvent.javaClassName, bEvent.javaMethodName, bEvent.javaMethodDesc);
+        }
+        final BehaviorLazyGet[] behaviorLazyGets = behaviorLazyGetsById;
+        if (behaviorId < behaviorLazyGets.length) {
+            final BehaviorLazyGet behaviorLazyGet = behaviorLazyGets[behaviorId];
+            if (null != behaviorLazyGet) {
+                return behaviorLazyGet;
             }
-            final BehaviorCacheKey key = (BehaviorCacheKey) o;
-            return clazz.equals(key.clazz)
-                    && javaMethodName.equals(key.javaMethodName)
-                    && javaMethodDesc.equals(key.javaMethodDesc);
         }
-
+        return newBehaviorLazyGetById(behaviorId, bEvent, loader);
     }
 
-    // 行为缓存，为了增加性能，不要每次都从class通过反射获取行为
-    private final CacheGet<BehaviorCacheKey, Behavior> toBehaviorCacheGet
-            = new CacheGet<BehaviorCacheKey, Behavior>() {
-        @Override
-        protected Behavior load(BehaviorCacheKey key) {
-            if ("<init>".equals(key.javaMethodName)) {
-                for (final Constructor<?> constructor : key.clazz.getDeclaredConstructors()) {
-                    if (key.javaMethodDesc.equals(new BehaviorDescriptor(constructor).getDescriptor())) {
-                        return new Behavior.ConstructorImpl(constructor);
-                    }
-                }
-            } else {
-                for (final Method method : key.clazz.getDeclaredMethods()) {
-                    if (key.javaMethodName.equals(method.getName())
-                            && key.javaMethodDesc.equals(new BehaviorDescriptor(method).getDescriptor())) {
-                        return new Behavior.MethodImpl(method);
-                    }
-                }
-            }
-            return null;
+    // 根据行为ID创建并缓存行为懒加载
+    private synchronized BehaviorLazyGet newBehaviorLazyGetById(final int behaviorId,
+                                                                final BeforeEvent bEvent,
+                                                                final ClassLoader loader) {
+        final BehaviorLazyGet[] behaviorLazyGets = behaviorLazyGetsById;
+        if (behaviorId < behaviorLazyGets.length
+                && null != behaviorLazyGets[behaviorId]) {
+            return behaviorLazyGets[behaviorId];
         }
-    };
-
-    /**
-     * CALL目标对象
-     */
-    private static class CallTarget {
-
-        final int callLineNum;
-        final String callJavaClassName;
-        final String callJavaMethodName;
-        final String callJavaMethodDesc;
-
-        CallTarget(int callLineNum, String callJavaClassName, String callJavaMethodName, String callJavaMethodDesc) {
-            this.callLineNum = callLineNum;
-            this.callJavaClassName = callJavaClassName;
-            this.callJavaMethodName = callJavaMethodName;
-            this.callJavaMethodDesc = callJavaMethodDesc;
+        final BehaviorLazyGet behaviorLazyGet = new BehaviorLazyGet(loader, bEvent.javaClassName, bEvent.javaMethodName, bEvent.javaMethodDesc);
+        if (behaviorId < behaviorLazyGets.length) {
+            behaviorLazyGets[behaviorId] = behaviorLazyGet;
+            // 重新发布数组，保证数组元素的写入对读线程可见
+            behaviorLazyGetsById = behaviorLazyGets;
+        } else {
+            final BehaviorLazyGet[] newBehaviorLazyGets = new BehaviorLazyGet[Math.max(behaviorLazyGets.length * 2, behaviorId + 1)];
+            System.arraycopy(behaviorLazyGets, 0, newBehaviorLazyGets, 0, behaviorLazyGets.length);
+            newBehaviorLazyGets[behaviorId] = behaviorLazyGet;
+            behaviorLazyGetsById = newBehaviorLazyGets;
         }
+        return behaviorLazyGet;
     }
 
     /**
-     * 通知内部封装，主要是要封装掉attachment
+     * 行为懒加载
+     * <p>
+     * ClassLoader和类都只持有弱引用，解析出的行为挂在类上强引用，见{@link #behaviorsOfClass}
+     * </p>
      */
-    private static class WrapAdvice implements Attachment {
+    private class BehaviorLazyGet extends LazyGet<Behavior> {
+
+        private final WeakReference<ClassLoader> loaderRef;
+        private final String javaClassName;
+        private final String javaMethodName;
+        private final String javaMethodDesc;
 
-        final Advice advice;
-        Object attachment;
+        private volatile WeakReference<Class<?>> classRef = new WeakReference<>(null);
 
-        WrapAdvice(Advice advice) {
-            this.advice = advice;
+        BehaviorLazyGet(final ClassLoader loader,
+                        final String javaClassName,
+                        final String javaMethodName,
+                        final String javaMethodDesc) {
+            this.loaderRef = new WeakReference<>(loader);
+            this.javaClassName = javaClassName;
+            this.javaMethodName = javaMethodName;
+            this.javaMethodDesc = javaMethodDesc;
         }
 
         @Override
-        public void attach(Object attachment) {
-            this.attachment = attachment;
+        public Behavior get() {
+            try {
+                return initialValue();
+            } catch (RuntimeException cause) {
+                throw cause;
+            } catch (Throwable cause) {
+                throw new RuntimeException(cause);
+            }
         }
 
-        @SuppressWarnings("unchecked")
         @Override
-        public <T> T attachment() {
-            return (T) attachment;
+        protected Behavior initialValue() throws Throwable {
+            Class<?> clazz = classRef.get();
+            if (null == clazz) {
+                final ClassLoader loader = loaderRef.get();
+                if (null == loader) {
+                    throw new ClassNotFoundException(javaClassName + ", because ClassLoader was unloaded.");
+                }
+                clazz = toClass(loader, javaClassName);
+                classRef = new WeakReference<>(clazz);
+            }
+
+            final ConcurrentHashMap<String, Behavior> behaviors = behaviorsOfClass.get(clazz);
+            final String key = javaMethodName + javaMethodDesc;
+            final Behavior behavior = behaviors.get(key);
+            if (null != behavior) {
+                return behavior;
+            }
+            final Behavior resolved = toBehavior(clazz, javaMethodName, javaMethodDesc);
+            final Behavior previous = behaviors.putIfAbsent(key, resolved);
+            return null == previous
+                    ? resolved
+                    : previous;
         }
+
     }
 
     /**
@@ -422,7 +506,7 @@ public class AdviceAdapterListener implements EventListener {
     private Behavior toBehavior(final Class<?> clazz,
                                 final String javaMethodName,
                                 final String javaMethodDesc) throws NoSuchMethodException {
-        final Behavior behavior = toBehaviorCacheGet.getFromCache(new BehaviorCacheKey(clazz, javaMethodName, javaMethodDesc));
+        final Behavior behavior = BehaviorCache.instance.getBehavior(clazz, javaMethodName, javaMethodDesc);
         if (null == behavior) {
             throw new NoSuchMethodException(String.format("%s.%s(%s)", clazz.getName(), javaMethodName, javaMethodDesc));
         }
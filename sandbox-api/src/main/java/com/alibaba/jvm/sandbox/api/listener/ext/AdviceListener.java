@@ -14,6 +14,22 @@ import com.alibaba.jvm.sandbox.api.event.Event;
  */
 public class AdviceListener {
 
+    /**
+     * 是否复用通知对象
+     * <p>
+     * 复用时同一个调用过程中同一调用深度上的{@link Advice}会在通知处理完成({@link #after(Advice)})后被清空，
+     * 并用于下一次调用，不再创建新的通知对象；调用过程结束后不再保留，下一个调用过程重新创建。
+     * 开启之后，通知处理完成后不能再持有和使用{@link Advice}，包括交给其他线程异步处理，
+     * 需要保留的信息必须在通知处理过程中自行复制出来
+     * </p>
+     *
+     * @return TRUE:复用;FALSE:不复用，每次调用都创建新的通知对象
+     * @since {@code sandbox-api:1.4.0}
+     */
+    protected boolean isAdviceReusable() {
+        return false;
+    }
+
     /**
      * 方法调用前通知
      * <ul>
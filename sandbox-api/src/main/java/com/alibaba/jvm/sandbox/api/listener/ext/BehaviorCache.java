@@ -0,0 +1,155 @@
+package com.alibaba.jvm.sandbox.api.listener.ext;
+
+import com.alibaba.jvm.sandbox.api.util.BehaviorDescriptor;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 行为缓存
+ * <p>
+ * 从类中反射查找行为需要遍历类的所有方法并逐个计算行为描述，
+ * 这里在类的第一次查找时一次性算出类中所有行为的描述，之后同一个类中的所有行为都只需要查表
+ * </p>
+ * <p>
+ * 1. 以{@link ClassValue}挂在类上，线程安全且读取无锁
+ * 2. 缓存随着类的卸载一起回收，已卸载的类计为淘汰
+ * 3. 同一个沙箱内的所有{@link AdviceAdapterListener}共享
+ * </p>
+ * <p>
+ * 挂在类上的行为表只能由BootstrapClassLoader加载的类型组成({@link HashMap}、{@link String}、{@link Executable})，
+ * 查找时才包装为{@link Behavior}：如果行为表中出现了沙箱ClassLoader加载的类型，被增强的类就会经由行为表强引用沙箱ClassLoader，
+ * 沙箱ClassLoader又经由{@link #instance}强引用{@link ClassValue}自身，导致沙箱卸载后ClassLoader仍无法回收(JDK-8136353)
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public final class BehaviorCache {
+
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    // 已解析的类的行为表，只持有弱引用，行为表随类卸载被回收后从这里移除
+    private final Set<Reference<HashMap<String, Executable>>> behaviorsRefs = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<HashMap<String, Executable>> unloadedQueue = new ReferenceQueue<>();
+
+    private final ClassValue<HashMap<String, Executable>> behaviorsOfClass = new ClassValue<HashMap<String, Executable>>() {
+        @Override
+        protected HashMap<String, Executable> computeValue(final Class<?> clazz) {
+            missCount.incrementAndGet();
+            expungeUnloaded();
+            final HashMap<String, Executable> behaviors = toBehaviors(clazz);
+            behaviorsRefs.add(new WeakReference<>(behaviors, unloadedQueue));
+            return behaviors;
+        }
+    };
+
+    private BehaviorCache() {
+
+    }
+
+    /**
+     * 根据行为名称、行为描述从指定的类中获取对应的行为
+     *
+     * @param clazz          指定的类
+     * @param javaMethodName 行为名称
+     * @param javaMethodDesc 行为描述
+     * @return 匹配的行为，匹配不到时返回null
+     */
+    public Behavior getBehavior(final Class<?> clazz,
+                                final String javaMethodName,
+                                final String javaMethodDesc) {
+        lookupCount.incrementAndGet();
+        final Executable executable = behaviorsOfClass.get(clazz).get(toKey(javaMethodName, javaMethodDesc));
+        if (executable instanceof Method) {
+            return new Behavior.MethodImpl((Method) executable);
+        }
+        if (executable instanceof Constructor) {
+            return new Behavior.ConstructorImpl((Constructor<?>) executable);
+        }
+        return null;
+    }
+
+    // 清理已随类卸载而被回收的行为表
+    private void expungeUnloaded() {
+        Reference<? extends HashMap<String, Executable>> ref;
+        while (null != (ref = unloadedQueue.poll())) {
+            if (behaviorsRefs.remove(ref)) {
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 获取当前缓存了行为表的类数量
+     *
+     * @return 类数量
+     */
+    public long size() {
+        expungeUnloaded();
+        return behaviorsRefs.size();
+    }
+
+    /**
+     * 获取命中次数
+     *
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return lookupCount.get() - missCount.get();
+    }
+
+    /**
+     * 获取未命中次数，即解析类中所有行为的次数
+     *
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 获取随类卸载而被回收的行为表数量
+     *
+     * @return 回收数量
+     */
+    public long getEvictionCount() {
+        expungeUnloaded();
+        return evictionCount.get();
+    }
+
+    /*
+     * 解析类中所有行为，以行为名称和行为描述拼接作为KEY
+     */
+    private static HashMap<String, Executable> toBehaviors(final Class<?> clazz) {
+        final HashMap<String, Executable> behaviors = new HashMap<>();
+        for (final Constructor<?> constructor : clazz.getDeclaredConstructors()) {
+            behaviors.put(toKey("<init>", new BehaviorDescriptor(constructor).getDescriptor()), constructor);
+        }
+        for (final Method method : clazz.getDeclaredMethods()) {
+            behaviors.put(toKey(method.getName(), new BehaviorDescriptor(method).getDescriptor()), method);
+        }
+        return behaviors;
+    }
+
+    // 行为描述以'('开头，直接拼接不会产生歧义
+    private static String toKey(final String javaMethodName,
+                                final String javaMethodDesc) {
+        return javaMethodName + javaMethodDesc;
+    }
+
+    /**
+     * 全局单例
+     */
+    public static final BehaviorCache instance = new BehaviorCache();
+
+}
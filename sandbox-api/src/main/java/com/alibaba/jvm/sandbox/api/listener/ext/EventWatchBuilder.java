@@ -5,14 +5,16 @@ import com.alibaba.jvm.sandbox.api.filter.AccessFlags;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.LazyFilter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher.Progress;
 import com.alibaba.jvm.sandbox.api.util.GaArrayUtils;
-import com.alibaba.jvm.sandbox.api.util.GaStringUtils;
+import com.alibaba.jvm.sandbox.api.util.PatternMatcher;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -249,6 +251,30 @@ public class EventWatchBuilder {
          */
         IBuildingForWatching withLine();
 
+        /**
+         * 声明监听器不需要读取方法参数
+         * <p>
+         * 增强后的代码将不再对参数进行装箱，BEFORE事件中的参数数组为空数组，对参数的修改不会生效
+         * </p>
+         *
+         * @return IBuildingForWatching
+         * @since {@code sandbox-api:1.4.0}
+         */
+        IBuildingForWatching withoutArguments();
+
+        /**
+         * 声明监听器只需要读取指定下标的方法参数
+         * <p>
+         * 增强后的代码只对指定下标的参数进行装箱，BEFORE事件中的参数数组长度不变，
+         * 未采集的位置为null，对未采集位置的修改不会生效；多次调用时取并集
+         * </p>
+         *
+         * @param indexes 参数下标，从0开始
+         * @return IBuildingForWatching
+         * @since {@code sandbox-api:1.4.0}
+         */
+        IBuildingForWatching withArguments(int... indexes);
+
         /**
          * 使用通知监听器观察
          *
@@ -339,26 +365,100 @@ public class EventWatchBuilder {
     }
 
     /**
-     * 模式匹配
+     * 编译模式匹配器
+     * <p>
+     * 模式在构建时编译一次，之后每次类加载、每个行为的匹配都直接使用编译结果，
+     * 不再重复解释通配符表达式或编译正则表达式
+     * </p>
      *
-     * @param string      目标字符串
      * @param pattern     模式字符串
      * @param patternType 匹配模式
-     * @return TRUE:匹配成功 / FALSE:匹配失败
+     * @return 模式匹配器
      */
-    private static boolean patternMatching(final String string,
-                                           final String pattern,
-                                           final PatternType patternType) {
+    private static PatternMatcher compile(final String pattern,
+                                          final PatternType patternType) {
         switch (patternType) {
-            case WILDCARD:
-                return GaStringUtils.matching(string, pattern);
             case REGEX:
-                return string.matches(pattern);
+                return PatternMatcher.regex(pattern);
+            case WILDCARD:
             default:
-                return false;
+                return PatternMatcher.wildcard(pattern);
         }
     }
 
+    /**
+     * 提取类名匹配模版的字面前缀
+     * <p>
+     * 能通过模版匹配的类名一定以此为前缀，无法确定时返回null
+     * </p>
+     *
+     * @param pattern     类名匹配模版
+     * @param patternType 匹配模式
+     * @return 类名前缀
+     */
+    private static String toJavaClassNamePrefix(final String pattern,
+                                                final PatternType patternType) {
+        if (null == pattern) {
+            return null;
+        }
+        final StringBuilder prefix = new StringBuilder();
+        switch (patternType) {
+            case REGEX: {
+
+                // onClass(Class)产生的整体引用
+                if (pattern.startsWith("\\Q")
+                        && pattern.endsWith("\\E")
+                        && pattern.indexOf("\\E") == pattern.length() - 2) {
+                    prefix.append(pattern, 2, pattern.length() - 2);
+                    break;
+                }
+
+                // 存在分支时无法确定前缀
+                if (pattern.indexOf('|') >= 0) {
+                    return null;
+                }
+                for (int index = pattern.startsWith("^") ? 1 : 0; index < pattern.length(); index++) {
+                    final char c = pattern.charAt(index);
+                    final int length = prefix.length();
+                    if (c == '\\'
+                            && index + 1 < pattern.length()
+                            && (pattern.charAt(index + 1) == '.' || pattern.charAt(index + 1) == '$')) {
+                        prefix.append(pattern.charAt(++index));
+                    } else if (Character.isJavaIdentifierPart(c) && c != '$') {
+                        prefix.append(c);
+                    } else {
+                        break;
+                    }
+
+                    // 紧跟量词时最后一个字符不一定出现
+                    if (index + 1 < pattern.length()
+                            && "?*{".indexOf(pattern.charAt(index + 1)) >= 0) {
+                        prefix.setLength(length);
+                        break;
+                    }
+                }
+                break;
+            }
+            case WILDCARD:
+            default: {
+                for (int index = 0; index < pattern.length(); index++) {
+                    final char c = pattern.charAt(index);
+                    if (c == '\\' && index + 1 < pattern.length()) {
+                        prefix.append(pattern.charAt(++index));
+                    } else if (c == '*' || c == '?') {
+                        break;
+                    } else {
+                        prefix.append(c);
+                    }
+                }
+                break;
+            }
+        }
+        return prefix.length() == 0
+                ? null
+                : prefix.toString();
+    }
+
     /**
      * 将字符串数组转换为正则表达式字符串数组
      *
@@ -439,6 +539,7 @@ public class EventWatchBuilder {
     private class BuildingForClass implements IBuildingForClass {
 
         private final String pattern;
+        private final PatternMatcher matcher;
         private int withAccess = 0;
         private boolean isIncludeSubClasses = false;
         private boolean isIncludeBootstrap = false;
@@ -453,6 +554,7 @@ public class EventWatchBuilder {
          */
         BuildingForClass(final String pattern) {
             this.pattern = pattern;
+            this.matcher = compile(pattern, patternType);
         }
 
         @Override
@@ -547,7 +649,7 @@ public class EventWatchBuilder {
     private class BuildingForBehavior implements IBuildingForBehavior {
 
         private final BuildingForClass bfClass;
-        private final String pattern;
+        private final PatternMatcher matcher;
         private int withAccess = 0;
         private final PatternGroupList withParameterTypes = new PatternGroupList();
         private final PatternGroupList hasExceptionTypes = new PatternGroupList();
@@ -556,7 +658,7 @@ public class EventWatchBuilder {
         BuildingForBehavior(final BuildingForClass bfClass,
                             final String pattern) {
             this.bfClass = bfClass;
-            this.pattern = pattern;
+            this.matcher = compile(pattern, patternType);
         }
 
         @Override
@@ -649,7 +751,7 @@ public class EventWatchBuilder {
 
         @Override
         public EventWatcher onWatch(AdviceListener adviceListener) {
-            return build(new AdviceAdapterListener(adviceListener), null, BEFORE, RETURN, THROWS, IMMEDIATELY_RETURN, IMMEDIATELY_THROWS);
+            return build(new AdviceAdapterListener(adviceListener), null, null, BEFORE, RETURN, THROWS, IMMEDIATELY_RETURN, IMMEDIATELY_THROWS);
         }
 
         @Deprecated
@@ -660,7 +762,7 @@ public class EventWatchBuilder {
 
         @Override
         public EventWatcher onWatch(EventListener eventListener, Event.Type... eventTypeArray) {
-            return build(eventListener, null, eventTypeArray);
+            return build(eventListener, null, null, eventTypeArray);
         }
 
     }
@@ -670,6 +772,9 @@ public class EventWatchBuilder {
         private final Set<Event.Type> eventTypeSet = new HashSet<>();
         private final List<Progress> progresses = new ArrayList<>();
 
+        // 需要采集的参数下标，null表示采集全部参数
+        private Set<Integer> argumentIndexSet = null;
+
         @Override
         public IBuildingForWatching withProgress(Progress progress) {
             if (null != progress) {
@@ -692,6 +797,38 @@ public class EventWatchBuilder {
             return this;
         }
 
+        @Override
+        public IBuildingForWatching withoutArguments() {
+            if (null == argumentIndexSet) {
+                argumentIndexSet = new LinkedHashSet<>();
+            }
+            return this;
+        }
+
+        @Override
+        public IBuildingForWatching withArguments(int... indexes) {
+            withoutArguments();
+            if (null != indexes) {
+                for (final int index : indexes) {
+                    argumentIndexSet.add(index);
+                }
+            }
+            return this;
+        }
+
+        // 转换为参数下标数组
+        private int[] toArgumentIndexes() {
+            if (null == argumentIndexSet) {
+                return null;
+            }
+            final int[] argumentIndexes = new int[argumentIndexSet.size()];
+            int pos = 0;
+            for (final int index : argumentIndexSet) {
+                argumentIndexes[pos++] = index;
+            }
+            return argumentIndexes;
+        }
+
         @Override
         public EventWatcher onWatch(AdviceListener adviceListener) {
             eventTypeSet.add(BEFORE);
@@ -702,13 +839,14 @@ public class EventWatchBuilder {
             return build(
                     new AdviceAdapterListener(adviceListener),
                     toProgressGroup(progresses),
+                    toArgumentIndexes(),
                     eventTypeSet.toArray(EMPTY)
             );
         }
 
         @Override
         public EventWatcher onWatch(EventListener eventListener, Event.Type... eventTypeArray) {
-            return build(eventListener, toProgressGroup(progresses), eventTypeArray);
+            return build(eventListener, toProgressGroup(progresses), toArgumentIndexes(), eventTypeArray);
         }
 
     }
@@ -716,25 +854,18 @@ public class EventWatchBuilder {
     private EventWatchCondition toEventWatchCondition() {
         final List<Filter> filters = new ArrayList<>();
         for (final BuildingForClass bfClass : bfClasses) {
-            final Filter filter = new Filter() {
+            // 先匹配access和名称，只有需要匹配的类型才去获取，没有获取的类型容器不会去解析
+            final Filter filter = new LazyFilter() {
                 @Override
-                public boolean doClassFilter(final int access,
-                                             final String javaClassName,
-                                             final String superClassTypeJavaClassName,
-                                             final String[] interfaceTypeJavaClassNameArray,
-                                             final String[] annotationTypeJavaClassNameArray) {
-                    return (access & bfClass.withAccess) == bfClass.withAccess
-                            && patternMatching(javaClassName, bfClass.pattern, patternType)
-                            && bfClass.hasInterfaceTypes.patternHas(interfaceTypeJavaClassNameArray)
-                            && bfClass.hasAnnotationTypes.patternHas(annotationTypeJavaClassNameArray);
+                public boolean doClassFilter(final ClassDescription classDescription) {
+                    return (classDescription.getAccess() & bfClass.withAccess) == bfClass.withAccess
+                            && bfClass.matcher.matching(classDescription.getJavaClassName())
+                            && (bfClass.hasInterfaceTypes.isEmpty() || bfClass.hasInterfaceTypes.patternHas(classDescription.getInterfaceTypeJavaClassNameArray()))
+                            && (bfClass.hasAnnotationTypes.isEmpty() || bfClass.hasAnnotationTypes.patternHas(classDescription.getAnnotationTypeJavaClassNameArray()));
                 }
 
                 @Override
-                public boolean doMethodFilter(final int access,
-                                              final String javaMethodName,
-                                              final String[] parameterTypeJavaClassNameArray,
-                                              final String[] throwsTypeJavaClassNameArray,
-                                              final String[] annotationTypeJavaClassNameArray) {
+                public boolean doMethodFilter(final BehaviorDescription behaviorDescription) {
                     // nothing to matching
                     if (bfClass.bfBehaviors.isEmpty()) {
                         return false;
@@ -742,11 +873,11 @@ public class EventWatchBuilder {
 
                     // matching any behavior
                     for (final BuildingForBehavior bfBehavior : bfClass.bfBehaviors) {
-                        if ((access & bfBehavior.withAccess) == bfBehavior.withAccess
-                                && patternMatching(javaMethodName, bfBehavior.pattern, patternType)
-                                && bfBehavior.withParameterTypes.patternWith(parameterTypeJavaClassNameArray)
-                                && bfBehavior.hasExceptionTypes.patternHas(throwsTypeJavaClassNameArray)
-                                && bfBehavior.hasAnnotationTypes.patternHas(annotationTypeJavaClassNameArray)) {
+                        if ((behaviorDescription.getAccess() & bfBehavior.withAccess) == bfBehavior.withAccess
+                                && bfBehavior.matcher.matching(behaviorDescription.getJavaMethodName())
+                                && (bfBehavior.withParameterTypes.isEmpty() || bfBehavior.withParameterTypes.patternWith(behaviorDescription.getParameterTypeJavaClassNameArray()))
+                                && (bfBehavior.hasExceptionTypes.isEmpty() || bfBehavior.hasExceptionTypes.patternHas(behaviorDescription.getThrowsTypeJavaClassNameArray()))
+                                && (bfBehavior.hasAnnotationTypes.isEmpty() || bfBehavior.hasAnnotationTypes.patternHas(behaviorDescription.getAnnotationTypeJavaClassNameArray()))) {
                             return true;
                         }//if
                     }//for
@@ -790,10 +921,52 @@ public class EventWatchBuilder {
                 !bfClass.hasAnnotationTypes.isEmpty(),
                 isBehaviorHasWithParameterTypes,
                 isBehaviorHasExceptionTypes,
-                isBehaviorHasAnnotationTypes
+                isBehaviorHasAnnotationTypes,
+                toJavaClassNamePrefix(bfClass.pattern, patternType),
+                bfClass.matcher,
+                toCanonicalKey(bfClass)
         );
     }
 
+    /**
+     * 生成类匹配器的规范KEY
+     * <p>
+     * KEY包含了所有影响匹配结果的条件，同样的构建过程一定得到同样的KEY
+     * </p>
+     *
+     * @param bfClass 类匹配器
+     * @return 规范KEY
+     */
+    private String toCanonicalKey(final BuildingForClass bfClass) {
+        final StringBuilder key = new StringBuilder();
+        appendCanonicalKey(key, patternType.name());
+        appendCanonicalKey(key, bfClass.pattern);
+        appendCanonicalKey(key, String.valueOf(bfClass.withAccess));
+        appendCanonicalKey(key, String.valueOf(bfClass.isIncludeSubClasses));
+        appendCanonicalKey(key, String.valueOf(bfClass.isIncludeBootstrap));
+        bfClass.hasInterfaceTypes.appendCanonicalKey(key);
+        bfClass.hasAnnotationTypes.appendCanonicalKey(key);
+        appendCanonicalKey(key, String.valueOf(bfClass.bfBehaviors.size()));
+        for (final BuildingForBehavior bfBehavior : bfClass.bfBehaviors) {
+            appendCanonicalKey(key, bfBehavior.matcher.getPattern());
+            appendCanonicalKey(key, String.valueOf(bfBehavior.withAccess));
+            bfBehavior.withParameterTypes.appendCanonicalKey(key);
+            bfBehavior.hasExceptionTypes.appendCanonicalKey(key);
+            bfBehavior.hasAnnotationTypes.appendCanonicalKey(key);
+        }
+        return key.toString();
+    }
+
+    // 每一段都以长度作为前缀，任意内容的模式拼接在一起都不会产生歧义
+    private static void appendCanonicalKey(final StringBuilder key,
+                                           final String part) {
+        if (null == part) {
+            key.append("-1:");
+        } else {
+            key.append(part.length()).append(':').append(part);
+        }
+    }
+
     private ProgressGroup toProgressGroup(final List<Progress> progresses) {
         if (progresses.isEmpty()) {
             return null;
@@ -803,14 +976,12 @@ public class EventWatchBuilder {
 
     private EventWatcher build(final EventListener listener,
                                final Progress progress,
+                               final int[] argumentIndexes,
                                final Event.Type... eventTypes) {
 
-        final int watchId = moduleEventWatcher.watch(
-                toEventWatchCondition(),
-                listener,
-                progress,
-                eventTypes
-        );
+        final int watchId = null == argumentIndexes
+                ? moduleEventWatcher.watch(toEventWatchCondition(), listener, progress, eventTypes)
+                : moduleEventWatcher.watch(toEventWatchCondition(), listener, progress, argumentIndexes, eventTypes);
 
         return new EventWatcher() {
 
@@ -899,6 +1070,19 @@ public class EventWatchBuilder {
             return groups.isEmpty();
         }
 
+        /*
+         * 追加到规范KEY
+         */
+        void appendCanonicalKey(final StringBuilder key) {
+            EventWatchBuilder.appendCanonicalKey(key, String.valueOf(groups.size()));
+            for (final Group group : groups) {
+                EventWatchBuilder.appendCanonicalKey(key, String.valueOf(group.matcherArray.length));
+                for (final PatternMatcher matcher : group.matcherArray) {
+                    EventWatchBuilder.appendCanonicalKey(key, matcher.getPattern());
+                }
+            }
+        }
+
         /*
          * 模式匹配With
          */
@@ -942,24 +1126,26 @@ public class EventWatchBuilder {
      */
     private class Group {
 
-        final String[] patternArray;
+        final PatternMatcher[] matcherArray;
 
         Group(String[] patternArray) {
-            this.patternArray = GaArrayUtils.isEmpty(patternArray)
-                    ? new String[0]
-                    : patternArray;
+            final int length = GaArrayUtils.getLength(patternArray);
+            this.matcherArray = new PatternMatcher[length];
+            for (int index = 0; index < length; index++) {
+                matcherArray[index] = compile(patternArray[index], patternType);
+            }
         }
 
         /*
          * stringArray中任意字符串能匹配上匹配模式
          */
         boolean anyMatching(final String[] stringArray,
-                            final String pattern) {
+                            final PatternMatcher matcher) {
             if (GaArrayUtils.isEmpty(stringArray)) {
                 return false;
             }
             for (final String string : stringArray) {
-                if (patternMatching(string, pattern, patternType)) {
+                if (matcher.matching(string)) {
                     return true;
                 }
             }
@@ -972,8 +1158,8 @@ public class EventWatchBuilder {
          */
         boolean matchingHas(final String[] stringArray) {
 
-            for (final String pattern : patternArray) {
-                if (anyMatching(stringArray, pattern)) {
+            for (final PatternMatcher matcher : matcherArray) {
+                if (anyMatching(stringArray, matcher)) {
                     continue;
                 }
                 return false;
@@ -994,12 +1180,12 @@ public class EventWatchBuilder {
 
             // 长度不一样就不用不配了
             int length;
-            if ((length = GaArrayUtils.getLength(stringArray)) != GaArrayUtils.getLength(patternArray)) {
+            if ((length = GaArrayUtils.getLength(stringArray)) != matcherArray.length) {
                 return false;
             }
             // 长度相同则逐个位置比较，只要有一个位置不符，则判定不通过
             for (int index = 0; index < length; index++) {
-                if (!patternMatching(stringArray[index], patternArray[index], patternType)) {
+                if (!matcherArray[index].matching(stringArray[index])) {
                     return false;
                 }
             }
@@ -0,0 +1,66 @@
+package com.alibaba.jvm.sandbox.api.resource;
+
+import java.util.List;
+
+/**
+ * 缓存监控器
+ * <p>
+ * 查看沙箱内部缓存的命中情况，用于评估缓存容量的配置是否合理
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public interface CacheMonitor {
+
+    /**
+     * 缓存信息
+     *
+     * @since {@code sandbox-api:1.4.0}
+     */
+    interface CacheInfo {
+
+        /**
+         * 获取缓存名称
+         *
+         * @return 缓存名称
+         */
+        String getName();
+
+        /**
+         * 获取缓存当前的条目数量
+         *
+         * @return 条目数量
+         */
+        long getSize();
+
+        /**
+         * 获取命中次数
+         *
+         * @return 命中次数
+         */
+        long getHitCount();
+
+        /**
+         * 获取未命中次数
+         *
+         * @return 未命中次数
+         */
+        long getMissCount();
+
+        /**
+         * 获取因容量限制而被淘汰的条目数量
+         *
+         * @return 淘汰数量
+         */
+        long getEvictionCount();
+
+    }
+
+    /**
+     * 获取所有缓存的信息
+     *
+     * @return 缓存信息集合
+     */
+    List<CacheInfo> getCacheInfos();
+
+}
@@ -50,6 +50,34 @@ public interface ModuleEventWatcher {
      */
     int watch(EventWatchCondition condition, EventListener listener, Progress progress, Event.Type... eventType);
 
+    /**
+     * 观察事件，并声明BEFORE事件需要采集的参数
+     * <p>
+     * 参数采集需要对每个参数进行装箱并构造参数数组，对于只关心耗时、不读取参数的监听器，
+     * 可以通过{@code argumentIndexes}缩小采集范围：
+     * </p>
+     * <ul>
+     * <li>{@code null}：采集全部参数，与{@link #watch(EventWatchCondition, EventListener, Progress, Event.Type...)}一致</li>
+     * <li>空数组：不采集任何参数，{@link com.alibaba.jvm.sandbox.api.event.BeforeEvent#argumentArray}为空数组</li>
+     * <li>其他：只采集指定下标的参数，参数数组长度不变，未采集的位置为null，且对未采集位置的修改不会生效</li>
+     * </ul>
+     * <p>
+     * 默认实现忽略{@code argumentIndexes}，采集全部参数
+     * </p>
+     *
+     * @param condition       事件观察条件，只有符合条件的类/方法才会被观察
+     * @param listener        事件监听器
+     *                        观察到的事件将会告知此事件监听器
+     * @param progress        观察渲染进度报告
+     * @param argumentIndexes 需要采集的参数下标，从0开始
+     * @param eventType       观察事件类型
+     * @return {@code watchId}，本次观察的唯一编号，{@code watcherId}对象将会是整个操作的唯一KEY，后续删除观察事件的时候也需要通过同一个{@code watcherId}来完成
+     * @since {@code sandbox-api:1.4.0}
+     */
+    default int watch(EventWatchCondition condition, EventListener listener, Progress progress, int[] argumentIndexes, Event.Type... eventType) {
+        return watch(condition, listener, progress, eventType);
+    }
+
     /**
      * 删除观察事件
      *
@@ -140,6 +168,13 @@ public interface ModuleEventWatcher {
      * 通过这样的报告方式可以让外部感知到当前渲染的进度。
      * 在渲染完成之前，事件是不会触发给到{@link EventListener}的
      * </p>
+     * <p>
+     * 从{@code sandbox-api:1.4.0}开始，容器会将多个类合并为一批进行渲染(批次大小见{@code retransform.batch.size})，
+     * 进度报告的时机随之改变：{@link #progressOnSuccess(Class, int)}不再在每个类渲染之前报告，
+     * 而是在整批渲染成功之后，按序号逐个报告批次中的类；批次失败时会拆分重试，
+     * 最终渲染失败的类通过{@link #progressOnFailed(Class, int, Throwable)}报告。
+     * 因此收到progressOnSuccess时该类已经完成渲染，同一批中的各个类会在渲染完成后集中报告
+     * </p>
      */
     interface Progress {
 
@@ -152,6 +187,7 @@ public interface ModuleEventWatcher {
 
         /**
          * 进度报告(成功)
+         * <p>在该类所在的批次渲染成功之后报告</p>
          *
          * @param clazz 当前进行行变的类
          * @param index 当前形变类的序号,从0开始
@@ -160,6 +196,7 @@ public interface ModuleEventWatcher {
 
         /**
          * 进度报告(失败)
+         * <p>在批次拆分重试后仍然渲染失败时报告，不会再为该类报告{@link #progressOnSuccess(Class, int)}</p>
          *
          * @param clazz 当前进行行变的类
          * @param index 当前形变类的序号,从0开始
@@ -0,0 +1,416 @@
+package com.alibaba.jvm.sandbox.api.util;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 预编译的模式匹配器
+ * <p>
+ * 模式在构建时只编译一次，匹配时不再解释模式字符串：
+ * 1. 不含通配的模式直接比较字符串，只在头部或尾部通配的模式比较前缀或后缀
+ * 2. 其他通配符表达式编译为字符数组和通配标记，匹配时只做一次带回溯的线性扫描，不递归
+ * 3. 其他正则表达式只编译一次{@link Pattern}
+ * </p>
+ * <p>
+ * 通配符表达式的匹配结果与{@link GaStringUtils#matching(String, String)}一致，
+ * 正则表达式的匹配结果与{@link String#matches(String)}一致
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public abstract class PatternMatcher {
+
+    private final String pattern;
+
+    private PatternMatcher(final String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * 获取模式字符串
+     *
+     * @return 模式字符串
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * 匹配字符串
+     *
+     * @param string 目标字符串
+     * @return TRUE:匹配成功 / FALSE:匹配失败，目标字符串为null时一定失败
+     */
+    public boolean matching(final String string) {
+        return null != string
+                && doMatching(string);
+    }
+
+    abstract boolean doMatching(String string);
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + pattern + "]";
+    }
+
+    /**
+     * 编译通配符表达式
+     *
+     * @param wildcard 通配符表达式，支持'*'、'?'以及'\'转义
+     * @return 模式匹配器
+     */
+    public static PatternMatcher wildcard(final String wildcard) {
+        if (null == wildcard) {
+            return new Never(null);
+        }
+
+        // 解析出字面字符以及每个字符是否为通配
+        final StringBuilder chars = new StringBuilder(wildcard.length());
+        final StringBuilder kinds = new StringBuilder(wildcard.length());
+        for (int index = 0; index < wildcard.length(); index++) {
+            final char c = wildcard.charAt(index);
+            if (c == '\\') {
+                // 末尾悬空的转义符不能匹配任何字符串
+                if (++index >= wildcard.length()) {
+                    return new Never(wildcard);
+                }
+                chars.append(wildcard.charAt(index));
+                kinds.append(Wildcard.LITERAL);
+            } else if (c == '*') {
+                // 连续的'*'与一个'*'效果相同
+                if (kinds.length() == 0 || kinds.charAt(kinds.length() - 1) != Wildcard.ANY_MANY) {
+                    chars.append(c);
+                    kinds.append(Wildcard.ANY_MANY);
+                }
+            } else if (c == '?') {
+                chars.append(c);
+                kinds.append(Wildcard.ANY_ONE);
+            } else {
+                chars.append(c);
+                kinds.append(Wildcard.LITERAL);
+            }
+        }
+
+        final String kindString = kinds.toString();
+        if (kindString.indexOf(Wildcard.ANY_ONE) < 0) {
+            final int firstAnyMany = kindString.indexOf(Wildcard.ANY_MANY);
+            final int lastAnyMany = kindString.lastIndexOf(Wildcard.ANY_MANY);
+            final int length = kindString.length();
+            if (firstAnyMany < 0) {
+                return new Exact(wildcard, chars.toString());
+            }
+            if (length == 1) {
+                return new Any(wildcard, false);
+            }
+            if (firstAnyMany == lastAnyMany && firstAnyMany == length - 1) {
+                return new Prefix(wildcard, chars.substring(0, length - 1), false);
+            }
+            if (firstAnyMany == lastAnyMany && firstAnyMany == 0) {
+                return new Suffix(wildcard, chars.substring(1), false);
+            }
+            if (firstAnyMany == 0 && lastAnyMany == length - 1
+                    && kindString.indexOf(Wildcard.ANY_MANY, 1) == length - 1) {
+                return new Contains(wildcard, chars.substring(1, length - 1));
+            }
+        }
+        return new Wildcard(wildcard, chars.toString().toCharArray(), kindString.toCharArray());
+    }
+
+    /**
+     * 编译正则表达式
+     * <p>
+     * 与{@link String#matches(String)}保持一致，错误的正则表达式不会在编译时报错，而是在匹配时抛出{@link PatternSyntaxException}
+     * </p>
+     *
+     * @param regex 正则表达式
+     * @return 模式匹配器
+     */
+    public static PatternMatcher regex(final String regex) {
+        if (null == regex) {
+            return new Never(null);
+        }
+        if (".*".equals(regex)) {
+            return new Any(regex, true);
+        }
+
+        // 整体是字面量
+        final String literal = toRegexLiteral(regex);
+        if (null != literal) {
+            return new Exact(regex, literal);
+        }
+
+        // 字面量之后跟着.*
+        if (regex.endsWith(".*")) {
+            final String prefix = toRegexLiteral(regex.substring(0, regex.length() - 2));
+            if (null != prefix) {
+                return new Prefix(regex, prefix, true);
+            }
+        }
+
+        // .*之后跟着字面量
+        if (regex.startsWith(".*")) {
+            final String suffix = toRegexLiteral(regex.substring(2));
+            if (null != suffix) {
+                return new Suffix(regex, suffix, true);
+            }
+        }
+
+        try {
+            return new Regex(regex, Pattern.compile(regex));
+        } catch (PatternSyntaxException cause) {
+            return new Regex(regex, null);
+        }
+    }
+
+    // 正则表达式中的元字符
+    private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
+    /*
+     * 将只表示字面量的正则表达式转换为字面量，不是字面量时返回null
+     * 只识别整体的\Q...\E引用、不含元字符的字符串以及以'\'转义的非字母数字字符
+     */
+    private static String toRegexLiteral(final String regex) {
+        if (regex.startsWith("\\Q")
+                && regex.endsWith("\\E")
+                && regex.indexOf("\\E") == regex.length() - 2) {
+            return regex.substring(2, regex.length() - 2);
+        }
+        final StringBuilder literal = new StringBuilder(regex.length());
+        for (int index = 0; index < regex.length(); index++) {
+            final char c = regex.charAt(index);
+            if (c == '\\') {
+                if (index + 1 >= regex.length()) {
+                    return null;
+                }
+                final char escaped = regex.charAt(++index);
+                if (Character.isLetterOrDigit(escaped)) {
+                    return null;
+                }
+                literal.append(escaped);
+            } else if (REGEX_META_CHARS.indexOf(c) >= 0) {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.toString();
+    }
+
+    /*
+     * 正则表达式中的'.'不匹配行结束符，判断字符串中从指定位置开始的部分是否不含行结束符
+     */
+    private static boolean isWithoutLineTerminator(final String string,
+                                                   final int beginIndex,
+                                                   final int endIndex) {
+        for (int index = beginIndex; index < endIndex; index++) {
+            final char c = string.charAt(index);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 永远不匹配
+     */
+    private static class Never extends PatternMatcher {
+
+        Never(final String pattern) {
+            super(pattern);
+        }
+
+        @Override
+        boolean doMatching(final String string) {
+            return false;
+        }
+
+    }
+
+    /**
+     * 匹配任意字符串
+     */
+    private static class Any extends PatternMatcher {
+
+        private final boolean isRegex;
+
+        Any(final String pattern,
+            final boolean isRegex) {
+            super(pattern);
+            this.isRegex = isRegex;
+        }
+
+        @Override
+        boolean doMatching(final String string) {
+            return !isRegex
+                    || isWithoutLineTerminator(string, 0, string.length());
+        }
+
+    }
+
+    /**
+     * 完全相等
+     */
+    private static class Exact extends PatternMatcher {
+
+        private final String literal;
+
+        Exact(final String pattern,
+              final String literal) {
+            super(pattern);
+            this.literal = literal;
+        }
+
+        @Override
+        boolean doMatching(final String string) {
+            return literal.equals(string);
+        }
+
+    }
+
+    /**
+     * 前缀相等
+     */
+    private static class Prefix extends PatternMatcher {
+
+        private final String prefix;
+        private final boolean isRegex;
+
+        Prefix(final String pattern,
+               final String prefix,
+               final boolean isRegex) {
+            super(pattern);
+            this.prefix = prefix;
+            this.isRegex = isRegex;
+        }
+
+        @Override
+        boolean doMatching(final String string) {
+            return string.startsWith(prefix)
+                    && (!isRegex || isWithoutLineTerminator(string, prefix.length(), string.length()));
+        }
+
+    }
+
+    /**
+     * 后缀相等
+     */
+    private static class Suffix extends PatternMatcher {
+
+        private final String suffix;
+        private final boolean isRegex;
+
+        Suffix(final String pattern,
+               final String suffix,
+               final boolean isRegex) {
+            super(pattern);
+            this.suffix = suffix;
+            this.isRegex = isRegex;
+        }
+
+        @Override
+        boolean doMatching(final String string) {
+            return string.endsWith(suffix)
+                    && (!isRegex || isWithoutLineTerminator(string, 0, string.length() - suffix.length()));
+        }
+
+    }
+
+    /**
+     * 包含(只用于通配符表达式)
+     */
+    private static class Contains extends PatternMatcher {
+
+        private final String infix;
+
+        Contains(final String pattern,
+                 final String infix) {
+            super(pattern);
+            this.infix = infix;
+        }
+
+        @Override
+        boolean doMatching(final String string) {
+            return string.contains(infix);
+        }
+
+    }
+
+    /**
+     * 正则表达式
+     */
+    private static class Regex extends PatternMatcher {
+
+        // 编译失败时为null
+        private final Pattern compiled;
+
+        Regex(final String pattern,
+              final Pattern compiled) {
+            super(pattern);
+            this.compiled = compiled;
+        }
+
+        @Override
+        boolean doMatching(final String string) {
+            return null == compiled
+                    ? string.matches(getPattern())
+                    : compiled.matcher(string).matches();
+        }
+
+    }
+
+    /**
+     * 通配符表达式
+     * <p>
+     * 遇到'*'时记录回溯点，后续匹配失败时让最近的'*'多吞一个字符再继续，整个过程不递归也不分配对象
+     * </p>
+     */
+    private static class Wildcard extends PatternMatcher {
+
+        static final char LITERAL = 'L';
+        static final char ANY_ONE = '?';
+        static final char ANY_MANY = '*';
+
+        private final char[] chars;
+        private final char[] kinds;
+
+        Wildcard(final String pattern,
+                 final char[] chars,
+                 final char[] kinds) {
+            super(pattern);
+            this.chars = chars;
+            this.kinds = kinds;
+        }
+
+        @Override
+        boolean doMatching(final String string) {
+            final int sLen = string.length();
+            final int pLen = kinds.length;
+            int sIndex = 0, pIndex = 0;
+            int starPIndex = -1, starSIndex = 0;
+            while (sIndex < sLen) {
+                if (pIndex < pLen
+                        && (kinds[pIndex] == ANY_ONE || kinds[pIndex] == LITERAL && chars[pIndex] == string.charAt(sIndex))) {
+                    sIndex++;
+                    pIndex++;
+                } else if (pIndex < pLen
+                        && kinds[pIndex] == ANY_MANY) {
+                    starPIndex = pIndex++;
+                    starSIndex = sIndex;
+                } else if (starPIndex >= 0) {
+                    pIndex = starPIndex + 1;
+                    sIndex = ++starSIndex;
+                } else {
+                    return false;
+                }
+            }
+            while (pIndex < pLen
+                    && kinds[pIndex] == ANY_MANY) {
+                pIndex++;
+            }
+            return pIndex == pLen;
+        }
+
+    }
+
+}
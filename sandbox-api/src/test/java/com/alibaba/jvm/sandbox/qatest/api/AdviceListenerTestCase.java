@@ -3,13 +3,18 @@ package com.alibaba.jvm.sandbox.qatest.api;
 import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
 import com.alibaba.jvm.sandbox.api.event.ReturnEvent;
 import com.alibaba.jvm.sandbox.api.event.ThrowsEvent;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.Advice;
 import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.Behavior;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
 import com.alibaba.jvm.sandbox.qatest.api.mock.MockForBuilderModuleEventWatcher;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class AdviceListenerTestCase {
 
 
@@ -96,4 +101,127 @@ public class AdviceListenerTestCase {
 
     }
 
+    // 嵌套调用两轮：外层调用toString()，内层调用length()，返回本轮所有通知
+    private static List<Advice> invokeNestedTwice(final AdviceListener listener) throws Throwable {
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatch(listener);
+        final EventListener eventListener = mockForBuilderModuleEventWatcher.getEventListener();
+        final ClassLoader loader = AdviceListenerTestCase.class.getClassLoader();
+        for (int index = 0; index < 2; index++) {
+            final int outerInvokeId = 10001 + index * 2;
+            final int innerInvokeId = outerInvokeId + 1;
+            eventListener.onEvent(new BeforeEvent(10001, outerInvokeId, 1, loader, "java.lang.String", "toString", "()Ljava/lang/String;", "outer", new Object[]{}));
+            eventListener.onEvent(new BeforeEvent(10001, innerInvokeId, 2, loader, "java.lang.String", "length", "()I", "inner", new Object[]{}));
+            eventListener.onEvent(new ReturnEvent(10001, innerInvokeId, 5));
+            eventListener.onEvent(new ReturnEvent(10001, outerInvokeId, "outer"));
+        }
+        return ADVICES.get();
+    }
+
+    // 一次调用过程：外层调用toString()，内层先后调用两次length()，返回本轮所有通知
+    private static List<Advice> invokeSiblings(final AdviceListener listener) throws Throwable {
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatch(listener);
+        final EventListener eventListener = mockForBuilderModuleEventWatcher.getEventListener();
+        final ClassLoader loader = AdviceListenerTestCase.class.getClassLoader();
+        eventListener.onEvent(new BeforeEvent(10001, 10001, 1, loader, "java.lang.String", "toString", "()Ljava/lang/String;", "outer", new Object[]{}));
+        for (int index = 0; index < 2; index++) {
+            final int innerInvokeId = 10002 + index;
+            eventListener.onEvent(new BeforeEvent(10001, innerInvokeId, 2, loader, "java.lang.String", "length", "()I", "inner", new Object[]{}));
+            eventListener.onEvent(new ReturnEvent(10001, innerInvokeId, 5));
+        }
+        eventListener.onEvent(new ReturnEvent(10001, 10001, "outer"));
+        return ADVICES.get();
+    }
+
+    private static final ThreadLocal<List<Advice>> ADVICES = ThreadLocal.withInitial(ArrayList::new);
+
+    // 记录通知，并校验通知在处理过程中的状态
+    private static class RecordAdviceListener extends AdviceListener {
+
+        private final boolean isAdviceReusable;
+
+        RecordAdviceListener(final boolean isAdviceReusable) {
+            this.isAdviceReusable = isAdviceReusable;
+            ADVICES.get().clear();
+        }
+
+        @Override
+        protected boolean isAdviceReusable() {
+            return isAdviceReusable;
+        }
+
+        @Override
+        protected void before(Advice advice) throws Throwable {
+            ADVICES.get().add(advice);
+            if ("inner".equals(advice.getTarget())) {
+                Assert.assertFalse(advice.isProcessTop());
+                Assert.assertEquals("outer", advice.getProcessTop().getTarget());
+            } else {
+                Assert.assertTrue(advice.isProcessTop());
+            }
+            Assert.assertFalse(advice.hasMark("mark"));
+            advice.mark("mark");
+        }
+
+        @Override
+        protected void after(Advice advice) throws Throwable {
+            Assert.assertTrue(advice.isReturn());
+            Assert.assertTrue(advice.hasMark("mark"));
+            Assert.assertEquals(advice.getTarget(), advice.getBehavior().getName().equals("toString") ? "outer" : "inner");
+        }
+
+    }
+
+    @Test
+    public void test$$AdviceListener$$reusable() throws Throwable {
+        final List<Advice> advices = invokeSiblings(new RecordAdviceListener(true));
+        Assert.assertEquals(3, advices.size());
+
+        // 同一个调用过程中同一调用深度上的通知对象被复用，通知处理完成后被清空
+        Assert.assertSame(advices.get(1), advices.get(2));
+        Assert.assertNotSame(advices.get(0), advices.get(1));
+        Assert.assertNull(advices.get(0).getTarget());
+        Assert.assertNull(advices.get(0).getReturnObj());
+        Assert.assertFalse(advices.get(0).hasMark("mark"));
+    }
+
+    @Test
+    public void test$$AdviceListener$$reusableWithinProcess() throws Throwable {
+        final List<Advice> advices = invokeNestedTwice(new RecordAdviceListener(true));
+        Assert.assertEquals(4, advices.size());
+
+        // 调用过程结束后操作堆栈被丢弃，不同调用过程之间不复用通知对象
+        Assert.assertNotSame(advices.get(0), advices.get(2));
+        Assert.assertNotSame(advices.get(1), advices.get(3));
+    }
+
+    @Test
+    public void test$$AdviceListener$$notReusable() throws Throwable {
+        final List<Advice> advices = invokeNestedTwice(new RecordAdviceListener(false));
+        Assert.assertEquals(4, advices.size());
+
+        // 默认每次调用都创建新的通知对象，通知处理完成后依然可以使用
+        Assert.assertNotSame(advices.get(0), advices.get(2));
+        Assert.assertNotSame(advices.get(1), advices.get(3));
+        Assert.assertEquals("outer", advices.get(0).getTarget());
+        Assert.assertEquals("outer", advices.get(0).getReturnObj());
+        Assert.assertTrue(advices.get(0).hasMark("mark"));
+
+        // 同一个行为的通知共享同一个行为，GC之后也不会重新解析
+        Assert.assertSame(advices.get(0).getBehavior(), advices.get(2).getBehavior());
+        final Behavior behavior = advices.get(0).getBehavior();
+        System.gc();
+        Assert.assertSame(behavior, advices.get(2).getBehavior());
+        Assert.assertEquals("length", advices.get(3).getBehavior().getName());
+    }
+
 }
@@ -0,0 +1,83 @@
+package com.alibaba.jvm.sandbox.qatest.api;
+
+import com.alibaba.jvm.sandbox.api.listener.ext.Behavior;
+import com.alibaba.jvm.sandbox.api.listener.ext.BehaviorCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+public class BehaviorCacheTestCase {
+
+    static class Target {
+
+        Target() {
+        }
+
+        Target(String name) {
+        }
+
+        void say() {
+        }
+
+        void say(String words) {
+        }
+
+    }
+
+    // 只在test$behaviorCache$getBehavior中使用，保证第一次查找一定未命中，与测试方法的执行顺序无关
+    static class GetBehaviorTarget extends Target {
+
+        GetBehaviorTarget() {
+        }
+
+        GetBehaviorTarget(String name) {
+        }
+
+        @Override
+        void say() {
+        }
+
+        @Override
+        void say(String words) {
+        }
+
+    }
+
+    @Test
+    public void test$behaviorCache$getBehavior() throws NoSuchMethodException {
+        final BehaviorCache cache = BehaviorCache.instance;
+        final long missCount = cache.getMissCount();
+        final long hitCount = cache.getHitCount();
+
+        final Behavior say = cache.getBehavior(GetBehaviorTarget.class, "say", "(Ljava/lang/String;)V");
+        Assert.assertEquals(GetBehaviorTarget.class.getDeclaredMethod("say", String.class), say.getTarget());
+        Assert.assertEquals(GetBehaviorTarget.class.getDeclaredMethod("say"), cache.getBehavior(GetBehaviorTarget.class, "say", "()V").getTarget());
+        Assert.assertEquals(GetBehaviorTarget.class.getDeclaredConstructor(String.class), cache.getBehavior(GetBehaviorTarget.class, "<init>", "(Ljava/lang/String;)V").getTarget());
+        Assert.assertNull(cache.getBehavior(GetBehaviorTarget.class, "say", "(I)V"));
+
+        // 同一个类的所有行为只解析一次，之后的查找都命中缓存
+        Assert.assertEquals(missCount + 1, cache.getMissCount());
+        Assert.assertEquals(hitCount + 3, cache.getHitCount());
+        Assert.assertSame(say.getTarget(), cache.getBehavior(GetBehaviorTarget.class, "say", "(Ljava/lang/String;)V").getTarget());
+        Assert.assertTrue(cache.size() > 0);
+    }
+
+    @Test
+    public void test$behaviorCache$bootstrapOnlyValue() throws Exception {
+        BehaviorCache.instance.getBehavior(Target.class, "say", "()V");
+        final Field behaviorsOfClassField = BehaviorCache.class.getDeclaredField("behaviorsOfClass");
+        behaviorsOfClassField.setAccessible(true);
+        final Map<?, ?> behaviors = (Map<?, ?>) ((ClassValue<?>) behaviorsOfClassField.get(BehaviorCache.instance)).get(Target.class);
+
+        // 挂在类上的行为表不能引用沙箱ClassLoader加载的类型，否则会通过ClassValue反向强引用沙箱ClassLoader
+        Assert.assertNull(behaviors.getClass().getClassLoader());
+        Assert.assertFalse(behaviors.isEmpty());
+        for (final Map.Entry<?, ?> entry : behaviors.entrySet()) {
+            Assert.assertNull(entry.getKey().getClass().getClassLoader());
+            Assert.assertNull(entry.getValue().getClass().getClassLoader());
+        }
+    }
+
+}
@@ -2,6 +2,7 @@ package com.alibaba.jvm.sandbox.qatest.api;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.filter.AccessFlags;
+import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
@@ -59,6 +60,35 @@ public class EventWatchBuilderTestCase {
         Assert.assertEquals(1, mockForBuilderModuleEventWatcher.getEventWatchCondition().getOrFilterArray().length);
     }
 
+    @Test
+    public void test$$EventWatchBuilder$$normal$$withArguments() {
+
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatch(new AdviceListener());
+        Assert.assertNull(mockForBuilderModuleEventWatcher.getArgumentIndexes());
+
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatching()
+                .withoutArguments()
+                .onWatch(new AdviceListener());
+        Assert.assertArrayEquals(new int[0], mockForBuilderModuleEventWatcher.getArgumentIndexes());
+
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatching()
+                .withArguments(2, 0)
+                .withArguments(0)
+                .onWatch(new AdviceListener());
+        Assert.assertArrayEquals(new int[]{2, 0}, mockForBuilderModuleEventWatcher.getArgumentIndexes());
+    }
+
     @Test
     public void test$$EventWatchBuilder$$normal$$CallOnly() {
 
@@ -173,4 +203,54 @@ public class EventWatchBuilderTestCase {
 
     }
 
+    private static String getJavaClassNamePrefix(final EventWatchBuilder.PatternType patternType,
+                                                 final String pattern) {
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher, patternType)
+                .onClass(pattern)
+                .onBehavior("*")
+                .onWatch(new AdviceListener());
+        return ((ExtFilterImplByV140) mockForBuilderModuleEventWatcher.getEventWatchCondition().getOrFilterArray()[0])
+                .getJavaClassNamePrefix();
+    }
+
+    @Test
+    public void test$$EventWatchBuilder$$javaClassNamePrefix() {
+        Assert.assertEquals("java.lang.String", getJavaClassNamePrefix(EventWatchBuilder.PatternType.WILDCARD, "java.lang.String"));
+        Assert.assertEquals("java.lang.", getJavaClassNamePrefix(EventWatchBuilder.PatternType.WILDCARD, "java.lang.*"));
+        Assert.assertEquals("java.lang.Str", getJavaClassNamePrefix(EventWatchBuilder.PatternType.WILDCARD, "java.lang.Str?ng"));
+        Assert.assertNull(getJavaClassNamePrefix(EventWatchBuilder.PatternType.WILDCARD, "*"));
+
+        Assert.assertEquals("java.lang.String", getJavaClassNamePrefix(REGEX, "\\Qjava.lang.String\\E"));
+        Assert.assertEquals("java.lang.", getJavaClassNamePrefix(REGEX, "java\\.lang\\..*"));
+        Assert.assertEquals("java.util.Map$Entry", getJavaClassNamePrefix(REGEX, "java\\.util\\.Map\\$Entry"));
+        Assert.assertEquals("java.lang.Str", getJavaClassNamePrefix(REGEX, "java\\.lang\\.Stri?ng"));
+        Assert.assertNull(getJavaClassNamePrefix(REGEX, "java\\.lang\\.String|java\\.lang\\.Integer"));
+        Assert.assertNull(getJavaClassNamePrefix(REGEX, ".*"));
+    }
+
+    private static String toCanonicalKey(final String javaMethodName,
+                                         final String... parameterTypes) {
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior(javaMethodName)
+                .withParameterTypes(parameterTypes)
+                .onWatch(new AdviceListener());
+        final Filter filter = mockForBuilderModuleEventWatcher.getEventWatchCondition().getOrFilterArray()[0];
+        return ((ExtFilterImplByV140) filter).getCanonicalKey();
+    }
+
+    @Test
+    public void test$$EventWatchBuilder$$canonicalKey() {
+        final String key = toCanonicalKey("indexOf", "int");
+        Assert.assertNotNull(key);
+        Assert.assertEquals(key, toCanonicalKey("indexOf", "int"));
+        Assert.assertFalse(key.equals(toCanonicalKey("indexOf", "int", "int")));
+        Assert.assertFalse(key.equals(toCanonicalKey("lastIndexOf", "int")));
+        Assert.assertFalse(toCanonicalKey("a", "b,c").equals(toCanonicalKey("a", "b", "c")));
+    }
+
 }
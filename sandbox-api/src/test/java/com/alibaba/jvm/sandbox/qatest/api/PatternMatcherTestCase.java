@@ -0,0 +1,121 @@
+package com.alibaba.jvm.sandbox.qatest.api;
+
+import com.alibaba.jvm.sandbox.api.util.GaStringUtils;
+import com.alibaba.jvm.sandbox.api.util.PatternMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.regex.PatternSyntaxException;
+
+public class PatternMatcherTestCase {
+
+    private static final String[] STRINGS = {
+            "",
+            "a",
+            "*",
+            "?",
+            "\\",
+            "java.lang.String",
+            "java.lang.StringBuilder",
+            "java.util.Map$Entry",
+            "com.example.UserController",
+            "com.example.UserControllerImpl",
+            "com.example.service.impl.OrderServiceImpl",
+            "aaa",
+            "abab",
+            "mississippi",
+            "line\nbreak",
+            "line\u2028break"
+    };
+
+    @Test
+    public void test$$PatternMatcher$$wildcard() {
+        final String[] wildcards = {
+                "",
+                "*",
+                "**",
+                "?",
+                "a",
+                "a\\",
+                "\\*",
+                "\\?",
+                "\\\\",
+                "java.lang.String",
+                "java.lang.*",
+                "java.lang.Str?ng",
+                "java.lang.Str?ng*",
+                "*Controller",
+                "*Controller*",
+                "*.service.*.*Impl",
+                "com.*.User*",
+                "*a*b",
+                "a*a",
+                "m*ss*pi",
+                "*\\*",
+                "line*",
+                "*break"
+        };
+        for (final String wildcard : wildcards) {
+            final PatternMatcher matcher = PatternMatcher.wildcard(wildcard);
+            for (final String string : STRINGS) {
+                Assert.assertEquals(
+                        wildcard + " : " + string,
+                        GaStringUtils.matching(string, wildcard),
+                        matcher.matching(string)
+                );
+            }
+            Assert.assertFalse(matcher.matching(null));
+        }
+        Assert.assertFalse(PatternMatcher.wildcard(null).matching("a"));
+    }
+
+    @Test
+    public void test$$PatternMatcher$$regex() {
+        final String[] regexes = {
+                "",
+                ".*",
+                "a",
+                "\\Qjava.lang.String\\E",
+                "\\Qjava.lang.\\E.*",
+                "java\\.lang\\.String",
+                "java\\.lang\\..*",
+                "java\\.util\\.Map\\$Entry",
+                "java\\.lang\\.Stri?ng",
+                "java\\.lang\\.String|java\\.lang\\.Integer",
+                ".*Controller",
+                ".*Controller.*",
+                "a\\.*",
+                "\\\\",
+                "line.*",
+                ".*break",
+                "(ab)*"
+        };
+        for (final String regex : regexes) {
+            final PatternMatcher matcher = PatternMatcher.regex(regex);
+            for (final String string : STRINGS) {
+                Assert.assertEquals(
+                        regex + " : " + string,
+                        string.matches(regex),
+                        matcher.matching(string)
+                );
+            }
+            Assert.assertFalse(matcher.matching(null));
+        }
+        Assert.assertFalse(PatternMatcher.regex(null).matching("a"));
+    }
+
+    @Test
+    public void test$$PatternMatcher$$illegalRegex() {
+        Assert.assertEquals("java.lang.*", PatternMatcher.wildcard("java.lang.*").getPattern());
+
+        // 错误的正则表达式与String#matches()一样，等到匹配时才失败
+        final PatternMatcher matcher = PatternMatcher.regex("java.lang.(String");
+        try {
+            matcher.matching("java.lang.String");
+            Assert.fail();
+        } catch (PatternSyntaxException cause) {
+            // ignore
+        }
+    }
+
+}
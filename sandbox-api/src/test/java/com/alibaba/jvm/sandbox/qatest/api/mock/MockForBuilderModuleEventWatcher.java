@@ -22,6 +22,9 @@ public class MockForBuilderModuleEventWatcher implements ModuleEventWatcher {
     private final AtomicReference<Event.Type[]> eventTypeArrayRef
             = new AtomicReference<Event.Type[]>();
 
+    private final AtomicReference<int[]> argumentIndexesRef
+            = new AtomicReference<int[]>();
+
     public EventWatchCondition getEventWatchCondition() {
         return eventWatchConditionRef.get();
     }
@@ -38,6 +41,10 @@ public class MockForBuilderModuleEventWatcher implements ModuleEventWatcher {
         return eventTypeArrayRef.get();
     }
 
+    public int[] getArgumentIndexes() {
+        return argumentIndexesRef.get();
+    }
+
     @Override
     public int watch(Filter filter, EventListener listener, Progress progress, Event.Type... eventType) {
         return 0;
@@ -57,6 +64,12 @@ public class MockForBuilderModuleEventWatcher implements ModuleEventWatcher {
         return 0;
     }
 
+    @Override
+    public int watch(EventWatchCondition condition, EventListener listener, Progress progress, int[] argumentIndexes, Event.Type... eventType) {
+        argumentIndexesRef.set(argumentIndexes);
+        return watch(condition, listener, progress, eventType);
+    }
+
     @Override
     public void delete(int watcherId, Progress progress) {
 
@@ -0,0 +1,70 @@
+package com.alibaba.jvm.sandbox.core.enhance.weaver;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件处理器查找性能基准测试
+ * <p>
+ * 每个事件都需要根据listenerId找到对应的事件处理器，
+ * 对比原有{@code ConcurrentHashMap<Integer, EventProcessor>}与当前数组下标访问的单次查找开销。
+ * listenerId来自全局序列，从1000开始，超出了Integer的缓存范围，原有实现每次查找都会产生一次装箱
+ * </p>
+ * <p>
+ * EventListenerHandler实现了Spy中的接口，Fork出的JVM需要将sandbox-spy的类追加到BootClassPath中
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xbootclasspath/a:../sandbox-spy/target/classes")
+@State(Scope.Benchmark)
+public class EventProcessorLookupBenchmark {
+
+    @Param({"1", "16"})
+    public int listenerCount;
+
+    private final Map<Integer, EventProcessor> legacyMapping = new ConcurrentHashMap<>();
+    private final EventListenerHandler handler = new EventListenerHandler();
+    private int[] listenerIds;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        listenerIds = new int[listenerCount];
+        for (int index = 0; index < listenerCount; index++) {
+            final int listenerId = 1000 + index * 7;
+            final EventListener listener = event -> {
+            };
+            final Event.Type[] eventTypes = Event.Type.values();
+            listenerIds[index] = listenerId;
+            legacyMapping.put(listenerId, new EventProcessor(listenerId, listener, eventTypes));
+            handler.active(listenerId, listener, eventTypes);
+        }
+    }
+
+    private int nextListenerId() {
+        final int index = cursor++;
+        if (cursor == listenerIds.length) {
+            cursor = 0;
+        }
+        return listenerIds[index];
+    }
+
+    @Benchmark
+    public EventProcessor legacy() {
+        return legacyMapping.get(nextListenerId());
+    }
+
+    @Benchmark
+    public EventProcessor current() {
+        return handler.getEventProcessor(nextListenerId());
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+import static org.objectweb.asm.ClassReader.EXPAND_FRAMES;
+import static org.objectweb.asm.ClassWriter.COMPUTE_FRAMES;
+import static org.objectweb.asm.ClassWriter.COMPUTE_MAXS;
+
+/**
+ * 计算共同父类的性能基准测试
+ * <p>
+ * 以Guava中的类作为大批量增强的类集合，先按COMPUTE_FRAMES重新计算一遍栈帧，
+ * 记录下ClassWriter所有的共同父类查询，再对比原有按类结构解析家族关系的实现与当前实现的总开销。
+ * 原有实现每次查询都要读取并解析两个类的字节码，当前实现优先使用已加载的类并在查询之间共享类型的继承关系
+ * </p>
+ * <p>
+ * 类型继承关系的缓存以ObjectIDs分配的ID作为KEY，它依赖sandbox-spy中的类，Fork出的JVM需要将sandbox-spy的类追加到BootClassPath中
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xbootclasspath/a:../sandbox-spy/target/classes")
+@State(Scope.Benchmark)
+public class CommonSuperClassBenchmark {
+
+    @Param({"2000"})
+    public int classCount;
+
+    private final ClassLoader loader = getClass().getClassLoader();
+    private final List<String[]> queries = new ArrayList<>();
+
+    @Setup
+    public void setup() throws Exception {
+        final File jarFile = new File(ImmutableList.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        try (final JarFile jar = new JarFile(jarFile)) {
+            final Enumeration<JarEntry> entries = jar.entries();
+            int count = 0;
+            while (entries.hasMoreElements() && count < classCount) {
+                final JarEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class")) {
+                    continue;
+                }
+                final byte[] byteCodes;
+                try (final InputStream is = jar.getInputStream(entry)) {
+                    byteCodes = IOUtils.toByteArray(is);
+                }
+                recordQueries(byteCodes);
+                count++;
+            }
+        }
+    }
+
+    private void recordQueries(final byte[] byteCodes) {
+        final ClassReader cr = new ClassReader(byteCodes);
+        cr.accept(new ClassWriter(COMPUTE_FRAMES | COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                queries.add(new String[]{type1, type2});
+                return AsmUtils.getCommonSuperClass(type1, type2, loader);
+            }
+        }, EXPAND_FRAMES);
+    }
+
+    @Benchmark
+    public void legacy(final Blackhole blackhole) {
+        for (final String[] query : queries) {
+            blackhole.consume(getCommonSuperClassImplByAsm(query[0], query[1], loader));
+        }
+    }
+
+    @Benchmark
+    public void current(final Blackhole blackhole) {
+        for (final String[] query : queries) {
+            blackhole.consume(AsmUtils.getCommonSuperClass(query[0], query[1], loader));
+        }
+    }
+
+    // 原有实现
+    private static String getCommonSuperClassImplByAsm(String type1, String type2, ClassLoader targetClassLoader) {
+        InputStream inputStreamOfType1 = null, inputStreamOfType2 = null;
+        try {
+            if (null == targetClassLoader) {
+                targetClassLoader = ClassLoader.getSystemClassLoader();
+            }
+            if (null == targetClassLoader) {
+                return "java/lang/Object";
+            }
+            inputStreamOfType1 = targetClassLoader.getResourceAsStream(type1 + ".class");
+            if (null == inputStreamOfType1) {
+                return "java/lang/Object";
+            }
+            inputStreamOfType2 = targetClassLoader.getResourceAsStream(type2 + ".class");
+            if (null == inputStreamOfType2) {
+                return "java/lang/Object";
+            }
+            final ClassStructure classStructureOfType1 = ClassStructureFactory.createClassStructure(inputStreamOfType1, targetClassLoader);
+            final ClassStructure classStructureOfType2 = ClassStructureFactory.createClassStructure(inputStreamOfType2, targetClassLoader);
+            if (classStructureOfType2.getFamilyTypeClassStructures().contains(classStructureOfType1)) {
+                return type1;
+            }
+            if (classStructureOfType1.getFamilyTypeClassStructures().contains(classStructureOfType2)) {
+                return type2;
+            }
+            if (classStructureOfType1.getAccess().isInterface()
+                    || classStructureOfType2.getAccess().isInterface()) {
+                return "java/lang/Object";
+            }
+            ClassStructure classStructure = classStructureOfType1;
+            do {
+                classStructure = classStructure.getSuperClassStructure();
+                if (null == classStructure) {
+                    return "java/lang/Object";
+                }
+            } while (!classStructureOfType2.getFamilyTypeClassStructures().contains(classStructure));
+            return toInternalClassName(classStructure.getJavaClassName());
+        } finally {
+            IOUtils.closeQuietly(inputStreamOfType1);
+            IOUtils.closeQuietly(inputStreamOfType2);
+        }
+    }
+
+}
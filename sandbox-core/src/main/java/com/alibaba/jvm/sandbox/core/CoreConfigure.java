@@ -2,6 +2,7 @@ package com.alibaba.jvm.sandbox.core;
 
 import com.alibaba.jvm.sandbox.api.Information;
 import com.alibaba.jvm.sandbox.core.util.FeatureCodec;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -38,6 +39,16 @@ public class CoreConfigure {
 
     private static final String KEY_UNSAFE_ENABLE = "unsafe.enable";
     private static final String KEY_NATIVE_SUPPORTED = "native.supported";
+    private static final String KEY_RETRANSFORM_BATCH_SIZE = "retransform.batch.size";
+    private static final int DEFAULT_VAL_RETRANSFORM_BATCH_SIZE = 64;
+    private static final String KEY_CLASS_MATCHING_PARALLELISM = "class.matching.parallelism";
+    private static final int DEFAULT_VAL_CLASS_MATCHING_PARALLELISM = 1;
+    private static final String KEY_LOADED_CLASS_INDEX_ENABLE = "loaded.class.index.enable";
+    private static final String KEY_CLASS_STRUCTURE_CACHE_MAX_SIZE = "class.structure.cache.max.size";
+    private static final String KEY_CLASS_STRUCTURE_CACHE_MAX_WEIGHT = "class.structure.cache.max.weight";
+    private static final String KEY_WOVEN_BYTECODE_CACHE_MAX_WEIGHT = "woven.bytecode.cache.max.weight";
+    private static final String KEY_MATCHING_RESULT_MEMO_MAX_SIZE = "matching.result.memo.max.size";
+    private static final int DEFAULT_VAL_MATCHING_RESULT_MEMO_MAX_SIZE = 64;
 
     // 受保护key数组，在保护key范围之内，以用户传递的配置为准，系统配置不允许覆盖
     private static final String[] PROTECT_KEY_ARRAY = {KEY_NAMESPACE, KEY_SANDBOX_HOME, KEY_LAUNCH_MODE, KEY_SERVER_IP, KEY_SERVER_PORT, KEY_SERVER_CHARSET};
@@ -294,6 +305,75 @@ public class CoreConfigure {
         return BooleanUtils.toBoolean(featureMap.get(KEY_UNSAFE_ENABLE));
     }
 
+    /**
+     * 获取单次retransformClasses调用最多形变的类数量
+     * <p>小于等于1时逐个类形变</p>
+     *
+     * @return retransform.batch.size
+     */
+    public int getReTransformBatchSize() {
+        return NumberUtils.toInt(featureMap.get(KEY_RETRANSFORM_BATCH_SIZE), DEFAULT_VAL_RETRANSFORM_BATCH_SIZE);
+    }
+
+    /**
+     * 获取匹配已加载类的并行度
+     * <p>默认为1，即在调用线程中串行匹配。大于1时模块的过滤器会被多个线程同时调用，需要模块的过滤器是线程安全的，所以需要显式开启</p>
+     *
+     * @return class.matching.parallelism
+     */
+    public int getClassMatchingParallelism() {
+        return NumberUtils.toInt(featureMap.get(KEY_CLASS_MATCHING_PARALLELISM), DEFAULT_VAL_CLASS_MATCHING_PARALLELISM);
+    }
+
+    /**
+     * 是否启用已加载类索引
+     * <p>默认启用</p>
+     *
+     * @return loaded.class.index.enable
+     */
+    public boolean isLoadedClassIndexEnable() {
+        return BooleanUtils.toBooleanDefaultIfNull(BooleanUtils.toBooleanObject(featureMap.get(KEY_LOADED_CLASS_INDEX_ENABLE)), true);
+    }
+
+    /**
+     * 获取类结构缓存最多缓存的类结构数量
+     *
+     * @return class.structure.cache.max.size
+     */
+    public long getClassStructureCacheMaxSize() {
+        return NumberUtils.toLong(featureMap.get(KEY_CLASS_STRUCTURE_CACHE_MAX_SIZE), ClassStructureCache.DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * 获取类结构缓存最多缓存的字节码总字节数
+     * <p>默认不按字节数限制，大于0时优先于{@link #getClassStructureCacheMaxSize()}</p>
+     *
+     * @return class.structure.cache.max.weight
+     */
+    public long getClassStructureCacheMaxWeight() {
+        return NumberUtils.toLong(featureMap.get(KEY_CLASS_STRUCTURE_CACHE_MAX_WEIGHT), 0);
+    }
+
+    /**
+     * 获取增强后字节码缓存最多缓存的字节码总字节数
+     * <p>默认为0，不开启缓存</p>
+     *
+     * @return woven.bytecode.cache.max.weight
+     */
+    public long getWovenByteCodeCacheMaxWeight() {
+        return NumberUtils.toLong(featureMap.get(KEY_WOVEN_BYTECODE_CACHE_MAX_WEIGHT), 0);
+    }
+
+    /**
+     * 获取已加载类匹配结果备忘最多备忘的匹配结果数量
+     * <p>默认为64，小于等于0时不开启备忘</p>
+     *
+     * @return matching.result.memo.max.size
+     */
+    public int getMatchingResultMemoMaxSize() {
+        return NumberUtils.toInt(featureMap.get(KEY_MATCHING_RESULT_MEMO_MAX_SIZE), DEFAULT_VAL_MATCHING_RESULT_MEMO_MAX_SIZE);
+    }
+
     /**
      * 获取沙箱安装目录
      *
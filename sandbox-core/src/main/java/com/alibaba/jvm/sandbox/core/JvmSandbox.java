@@ -1,11 +1,17 @@
 package com.alibaba.jvm.sandbox.core;
 
+import com.alibaba.jvm.sandbox.core.enhance.WovenByteCodeCache;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.ThreadContext;
 import com.alibaba.jvm.sandbox.core.manager.CoreModuleManager;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreModuleManager;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultProviderManager;
+import com.alibaba.jvm.sandbox.core.manager.impl.LoadedClassIndex;
+import com.alibaba.jvm.sandbox.core.manager.impl.MatchingResultMemo;
+import com.alibaba.jvm.sandbox.core.util.ListenerIDs;
 import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
 import com.alibaba.jvm.sandbox.core.util.SpyUtils;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 
@@ -26,11 +32,16 @@ public class JvmSandbox {
     static {
         earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.util.SandboxClassUtils");
         earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureImplByAsm");
+        earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache");
+        earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.enhance.WovenByteCodeCache");
         earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler");
     }
 
     private final CoreConfigure cfg;
     private final CoreModuleManager coreModuleManager;
+    private final DefaultCoreLoadedClassDataSource coreLoadedClassDataSource;
+    private final LoadedClassIndex loadedClassIndex;
+    private final MatchingResultMemo matchingResultMemo;
 
     // 判断是否支持native
     private boolean isNativeSupported(Instrumentation inst) {
@@ -53,10 +64,30 @@ public class JvmSandbox {
         // 是否支持Native方法增强
         cfg.setNativeSupported(isNativeSupported(inst));
 
+        // 类结构缓存
+        ClassStructureCache.init(cfg.getClassStructureCacheMaxSize(), cfg.getClassStructureCacheMaxWeight());
+
+        // 增强后字节码缓存
+        WovenByteCodeCache.init(cfg.getWovenByteCodeCacheMaxWeight());
+
+        // 已加载类索引
+        this.loadedClassIndex = cfg.isLoadedClassIndexEnable()
+                ? new LoadedClassIndex(inst)
+                : null;
+
+        // 已加载类匹配结果备忘
+        this.matchingResultMemo = cfg.getMatchingResultMemoMaxSize() > 0
+                ? new MatchingResultMemo(inst, cfg.getMatchingResultMemoMaxSize())
+                : null;
+
+        this.coreLoadedClassDataSource = new DefaultCoreLoadedClassDataSource(
+                inst, cfg.isEnableUnsafe(), cfg.isNativeSupported(), cfg.getClassMatchingParallelism(), loadedClassIndex, matchingResultMemo
+        );
+
         this.coreModuleManager = SandboxProtector.instance.protectProxy(CoreModuleManager.class, new DefaultCoreModuleManager(
                 cfg,
                 inst,
-                new DefaultCoreLoadedClassDataSource(inst, cfg.isEnableUnsafe(), cfg.isNativeSupported()),
+                coreLoadedClassDataSource,
                 new DefaultProviderManager(cfg)
         ));
         init();
@@ -64,6 +95,12 @@ public class JvmSandbox {
 
     private void init() {
         doEarlyLoadSandboxClass();
+        if (null != loadedClassIndex) {
+            loadedClassIndex.open();
+        }
+        if (null != matchingResultMemo) {
+            matchingResultMemo.open();
+        }
         SpyUtils.init(cfg.getNamespace()); // default
     }
 
@@ -97,9 +134,34 @@ public class JvmSandbox {
         // 卸载所有的模块
         coreModuleManager.unloadAll();
 
+        // 关闭已加载类数据源，停止并行匹配线程
+        coreLoadedClassDataSource.close();
+
+        // 关闭已加载类索引
+        if (null != loadedClassIndex) {
+            loadedClassIndex.close();
+        }
+
+        // 关闭已加载类匹配结果备忘
+        if (null != matchingResultMemo) {
+            matchingResultMemo.close();
+        }
+
+        // 清空类结构缓存
+        ClassStructureCache.getInstance().invalidateAll();
+
+        // 清空增强后字节码缓存
+        WovenByteCodeCache.getInstance().invalidateAll();
+
+        // 归还事件监听器ID
+        ListenerIDs.instance.releaseAll();
+
         // 清理Spy
         SpyUtils.clean(cfg.getNamespace());
 
+        // 清理所有线程的上下文
+        ThreadContext.cleanAll();
+
     }
 
 }
@@ -2,6 +2,7 @@ package com.alibaba.jvm.sandbox.core.classloader;
 
 import com.alibaba.jvm.sandbox.api.annotation.Stealth;
 import com.alibaba.jvm.sandbox.api.spi.ModuleJarUnLoadSpi;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -151,6 +152,9 @@ public class ModuleJarClassLoader extends RoutingURLClassLoader {
             logger.warn("close ModuleJarClassLoader[file={}] failed. JDK7+", moduleJarFile, cause);
         } finally {
 
+            // 模块中的类结构不会再被用到
+            ClassStructureCache.getInstance().invalidate(this);
+
             // 在这里删除掉临时文件
             FileUtils.deleteQuietly(tempModuleJarFile);
 
@@ -2,6 +2,8 @@ package com.alibaba.jvm.sandbox.core.enhance;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -21,11 +23,95 @@ public interface Enhancer {
      * @param eventTypeArray   需要配埋入的事件类型
      * @return 增强后的字节码数组
      */
+    default byte[] toByteCodeArray(ClassLoader loader,
+                                   byte[] srcByteCodeArray,
+                                   Set<String> signCodes,
+                                   String namespace,
+                                   int listenerId,
+                                   Event.Type[] eventTypeArray) {
+        return toByteCodeArray(loader, srcByteCodeArray, signCodes, namespace, listenerId, eventTypeArray, null);
+    }
+
+    /**
+     * 转换为增强后的字节码数组
+     *
+     * @param loader           目标类加载器
+     * @param srcByteCodeArray 源字节码数组
+     * @param signCodes        需要被增强的行为签名
+     * @param namespace        命名空间
+     * @param listenerId       需要埋入的监听器ID
+     * @param eventTypeArray   需要配埋入的事件类型
+     * @param argumentIndexes  BEFORE事件需要采集的参数下标，null表示采集全部参数
+     * @return 增强后的字节码数组
+     */
+    default byte[] toByteCodeArray(ClassLoader loader,
+                                   byte[] srcByteCodeArray,
+                                   Set<String> signCodes,
+                                   String namespace,
+                                   int listenerId,
+                                   Event.Type[] eventTypeArray,
+                                   int[] argumentIndexes) {
+        return toByteCodeArray(
+                loader,
+                srcByteCodeArray,
+                namespace,
+                Collections.singletonList(new Weaving(signCodes, listenerId, eventTypeArray, argumentIndexes))
+        );
+    }
+
+    /**
+     * 转换为增强后的字节码数组
+     * <p>
+     * 多个监听器在同一次ASM遍历中完成织入，先织入的监听器位于内层，
+     * 与依次对字节码做多次增强的结果保持一致
+     * </p>
+     *
+     * @param loader           目标类加载器
+     * @param srcByteCodeArray 源字节码数组
+     * @param namespace        命名空间
+     * @param weavings         需要织入的监听器，按织入顺序排列
+     * @return 增强后的字节码数组
+     */
     byte[] toByteCodeArray(ClassLoader loader,
                            byte[] srcByteCodeArray,
-                           Set<String> signCodes,
                            String namespace,
-                           int listenerId,
-                           Event.Type[] eventTypeArray);
+                           List<Weaving> weavings);
+
+    /**
+     * 单个监听器的织入
+     */
+    class Weaving {
+
+        /**
+         * 需要被增强的行为签名
+         */
+        public final Set<String> signCodes;
+
+        /**
+         * 需要埋入的监听器ID
+         */
+        public final int listenerId;
+
+        /**
+         * 需要配埋入的事件类型
+         */
+        public final Event.Type[] eventTypeArray;
+
+        /**
+         * BEFORE事件需要采集的参数下标，null表示采集全部参数
+         */
+        public final int[] argumentIndexes;
+
+        public Weaving(final Set<String> signCodes,
+                       final int listenerId,
+                       final Event.Type[] eventTypeArray,
+                       final int[] argumentIndexes) {
+            this.signCodes = signCodes;
+            this.listenerId = listenerId;
+            this.eventTypeArray = eventTypeArray;
+            this.argumentIndexes = argumentIndexes;
+        }
+
+    }
 
 }
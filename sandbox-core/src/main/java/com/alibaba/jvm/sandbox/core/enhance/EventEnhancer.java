@@ -5,19 +5,22 @@ import com.alibaba.jvm.sandbox.core.enhance.weaver.asm.EventWeaver;
 import com.alibaba.jvm.sandbox.core.util.AsmUtils;
 import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.com.alibaba.jvm.sandbox.spy.Spy;
 import java.io.File;
 import java.io.IOException;
-import java.util.Set;
+import java.util.List;
 
 import static org.apache.commons.io.FileUtils.writeByteArrayToFile;
-import static org.objectweb.asm.ClassReader.EXPAND_FRAMES;
+import static org.objectweb.asm.ClassReader.SKIP_FRAMES;
 import static org.objectweb.asm.ClassWriter.COMPUTE_FRAMES;
 import static org.objectweb.asm.ClassWriter.COMPUTE_MAXS;
 import static org.objectweb.asm.Opcodes.ASM7;
+import static org.objectweb.asm.Opcodes.V1_6;
 
 /**
  * 事件代码增强器
@@ -27,6 +30,10 @@ import static org.objectweb.asm.Opcodes.ASM7;
 public class EventEnhancer implements Enhancer {
 
     private static final Logger logger = LoggerFactory.getLogger(EventEnhancer.class);
+
+    // 类文件中主版本号的偏移量：magic(4) + minor_version(2)
+    private static final int CLASS_MAJOR_VERSION_OFFSET = 6;
+
     private final String nativePrefix;
 
     public EventEnhancer(String nativePrefix) {
@@ -36,13 +43,17 @@ public class EventEnhancer implements Enhancer {
 
     /**
      * 创建ClassWriter for asm
+     * <p>
+     * ClassWriter以ClassReader构建，常量池原样复制。没有被改写的方法在ClassReader中读取时直接拿到的是ClassWriter的MethodWriter，
+     * ASM会将这些方法的字节码(包括原有的StackMapTable)原样复制，只有被改写的方法才需要重新计算栈帧
+     * </p>
      *
      * @param cr ClassReader
      * @return ClassWriter
      */
     private ClassWriter createClassWriter(final ClassLoader targetClassLoader,
                                           final ClassReader cr) {
-        return new ClassWriter(cr, COMPUTE_FRAMES | COMPUTE_MAXS) {
+        return new ClassWriter(cr, toComputeFlags(cr)) {
 
             /*
              * 注意，为了自动计算帧的大小，有时必须计算两个类共同的父类。
@@ -61,6 +72,15 @@ public class EventEnhancer implements Enhancer {
         };
     }
 
+    /*
+     * JDK6之前版本的类由类型推导校验，不需要栈帧，只计算操作数栈和局部变量表的大小即可
+     */
+    private static int toComputeFlags(final ClassReader cr) {
+        return cr.readUnsignedShort(CLASS_MAJOR_VERSION_OFFSET) < V1_6
+                ? COMPUTE_MAXS
+                : COMPUTE_FRAMES | COMPUTE_MAXS;
+    }
+
     private static final boolean isDumpClass = false;
 
     /*
@@ -95,24 +115,30 @@ public class EventEnhancer implements Enhancer {
     @Override
     public byte[] toByteCodeArray(final ClassLoader targetClassLoader,
                                   final byte[] byteCodeArray,
-                                  final Set<String> signCodes,
                                   final String namespace,
-                                  final int listenerId,
-                                  final Event.Type[] eventTypeArray) {
+                                  final List<Weaving> weavings) {
         // 返回增强后字节码
         final ClassReader cr = new ClassReader(byteCodeArray);
         final ClassWriter cw = createClassWriter(targetClassLoader, cr);
         final int targetClassLoaderObjectID = ObjectIDs.instance.identity(targetClassLoader);
-        cr.accept(
-                new EventWeaver(ASM7, cw, namespace, listenerId,
-                        targetClassLoaderObjectID,
-                        cr.getClassName(),
-                        signCodes,
-                        eventTypeArray,
-                        nativePrefix
-                ),
-                EXPAND_FRAMES
-        );
+        final int namespaceIndex = Spy.getNamespaceIndex(namespace);
+
+        // 先织入的监听器需要最先接收到原始字节码，所以倒序串联
+        ClassVisitor cv = cw;
+        for (int index = weavings.size() - 1; index >= 0; index--) {
+            final Weaving weaving = weavings.get(index);
+            cv = new EventWeaver(ASM7, cv, namespaceIndex, weaving.listenerId,
+                    targetClassLoaderObjectID,
+                    cr.getClassName(),
+                    weaving.signCodes,
+                    weaving.eventTypeArray,
+                    weaving.argumentIndexes,
+                    nativePrefix
+            );
+        }
+
+        // 被改写方法的栈帧会由ClassWriter重新计算，没有被改写的方法原样复制，都不需要读取原有的栈帧
+        cr.accept(cv, SKIP_FRAMES);
         return dumpClassIfNecessary(cr.getClassName(), cw.toByteArray());
     }
 
@@ -0,0 +1,188 @@
+package com.alibaba.jvm.sandbox.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 增强后字节码缓存
+ * <p>
+ * 模块冻结激活、观察删除后重建等场景下，同一个类会以完全相同的输入被重新增强，
+ * 命中缓存时直接返回上次增强的字节码，不需要再经过ASM
+ * </p>
+ * <p>
+ * 1. 缓存KEY是原始字节码、ClassLoader的对象ID({@link ObjectIDs})、类名、命名空间以及所有织入的监听器ID、事件类型、
+ * 行为签名和参数下标的摘要
+ * 2. 增强后的字节码中织入了行为ID、监听器ID等只在当前JVM中有效的ID，所以只缓存在内存中，不能跨JVM复用
+ * 3. 按字节码总字节数限制容量，默认不开启
+ * </p>
+ */
+public class WovenByteCodeCache {
+
+    private static volatile WovenByteCodeCache instance = new WovenByteCodeCache(0);
+
+    // 不开启时为null
+    private final Cache<HashCode, byte[]> cache;
+
+    private WovenByteCodeCache(final long maximumWeight) {
+        this.cache = maximumWeight > 0
+                ? CacheBuilder.newBuilder()
+                .recordStats()
+                .maximumWeight(maximumWeight)
+                .weigher((HashCode key, byte[] value) -> value.length)
+                .build()
+                : null;
+    }
+
+    /**
+     * 按配置重新初始化增强后字节码缓存，已缓存的字节码会被丢弃
+     *
+     * @param maximumWeight 最多缓存的字节码总字节数，小于等于0时不开启缓存
+     */
+    public static void init(final long maximumWeight) {
+        instance = new WovenByteCodeCache(maximumWeight);
+    }
+
+    /**
+     * 获取增强后字节码缓存
+     *
+     * @return 增强后字节码缓存
+     */
+    public static WovenByteCodeCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * 是否开启了缓存
+     *
+     * @return TRUE:开启;FALSE:未开启
+     */
+    public boolean isEnabled() {
+        return null != cache;
+    }
+
+    /**
+     * 计算缓存KEY
+     *
+     * @param loader            目标类所在ClassLoader
+     * @param internalClassName 目标类名(内部类名)
+     * @param namespace         命名空间
+     * @param srcByteCodeArray  原始字节码
+     * @param weavings          按织入顺序排列的织入信息
+     * @return 缓存KEY
+     */
+    public HashCode toKey(final ClassLoader loader,
+                          final String internalClassName,
+                          final String namespace,
+                          final byte[] srcByteCodeArray,
+                          final List<Enhancer.Weaving> weavings) {
+        final Hasher hasher = Hashing.murmur3_128().newHasher()
+                .putInt(ObjectIDs.instance.identity(loader));
+        putString(hasher, internalClassName);
+        putString(hasher, namespace);
+        hasher.putInt(srcByteCodeArray.length).putBytes(srcByteCodeArray);
+        hasher.putInt(weavings.size());
+        for (final Enhancer.Weaving weaving : weavings) {
+            hasher.putInt(weaving.listenerId);
+            hasher.putInt(weaving.eventTypeArray.length);
+            for (final Event.Type eventType : weaving.eventTypeArray) {
+                hasher.putInt(eventType.ordinal());
+            }
+
+            // 行为签名是无序的集合，排序后再计算
+            final List<String> signCodes = new ArrayList<>(weaving.signCodes);
+            Collections.sort(signCodes);
+            hasher.putInt(signCodes.size());
+            for (final String signCode : signCodes) {
+                putString(hasher, signCode);
+            }
+
+            // null表示采集全部参数
+            if (null == weaving.argumentIndexes) {
+                hasher.putInt(-1);
+            } else {
+                hasher.putInt(weaving.argumentIndexes.length);
+                for (final int argumentIndex : weaving.argumentIndexes) {
+                    hasher.putInt(argumentIndex);
+                }
+            }
+        }
+        return hasher.hash();
+    }
+
+    // 带上长度，避免相邻的字符串拼接后产生歧义
+    private static void putString(final Hasher hasher,
+                                  final String string) {
+        if (null == string) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(string.length()).putUnencodedChars(string);
+        }
+    }
+
+    /**
+     * 获取增强后字节码
+     *
+     * @param key 缓存KEY
+     * @return 增强后字节码，未命中或未开启缓存时为null
+     */
+    public byte[] get(final HashCode key) {
+        return null == cache
+                ? null
+                : cache.getIfPresent(key);
+    }
+
+    /**
+     * 缓存增强后字节码
+     *
+     * @param key           缓存KEY
+     * @param byteCodeArray 增强后字节码
+     */
+    public void put(final HashCode key,
+                    final byte[] byteCodeArray) {
+        if (null != cache) {
+            cache.put(key, byteCodeArray);
+        }
+    }
+
+    /**
+     * 失效所有增强后字节码
+     */
+    public void invalidateAll() {
+        if (null != cache) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * 获取缓存的增强后字节码数量
+     *
+     * @return 字节码数量
+     */
+    public long size() {
+        return null == cache
+                ? 0
+                : cache.size();
+    }
+
+    /**
+     * 获取缓存统计
+     *
+     * @return 缓存统计
+     */
+    public CacheStats stats() {
+        return null == cache
+                ? new CacheStats(0, 0, 0, 0, 0, 0)
+                : cache.stats();
+    }
+
+}
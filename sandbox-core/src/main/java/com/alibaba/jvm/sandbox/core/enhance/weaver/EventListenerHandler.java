@@ -5,15 +5,14 @@ import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.event.InvokeEvent;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.util.BehaviorIDs;
 import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
-import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.com.alibaba.jvm.sandbox.spy.Spy;
 import java.com.alibaba.jvm.sandbox.spy.SpyHandler;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.alibaba.jvm.sandbox.api.event.Event.Type.IMMEDIATELY_RETURN;
@@ -21,7 +20,6 @@ import static com.alibaba.jvm.sandbox.api.event.Event.Type.IMMEDIATELY_THROWS;
 import static com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils.isInterruptEventHandler;
 import static java.com.alibaba.jvm.sandbox.spy.Spy.Ret.newInstanceForNone;
 import static java.com.alibaba.jvm.sandbox.spy.Spy.Ret.newInstanceForThrows;
-import static org.apache.commons.lang3.ArrayUtils.contains;
 import static org.apache.commons.lang3.StringUtils.join;
 
 /**
@@ -38,8 +36,50 @@ public class EventListenerHandler implements SpyHandler {
     private final AtomicInteger invokeIdSequencer = new AtomicInteger(1000);
 
     // 全局处理器ID:处理器映射集合
-    private final Map<Integer/*LISTENER_ID*/, EventProcessor> mappingOfEventProcessor
-            = new ConcurrentHashMap<>();
+    // 以事件监听器ID的槽位作为数组下标，每个事件只需要一次数组访问即可找到事件处理器，避免了Integer装箱
+    // 槽位可复用，数组长度只随同时存在的监听器数量增长；修改时原地写入后重新发布数组引用，只有扩容时才需要复制
+    private volatile EventProcessor[] eventProcessors = new EventProcessor[0];
+
+    /**
+     * 获取事件处理器
+     *
+     * @param listenerId 事件监听器ID
+     * @return 事件处理器，若尚未注册则返回null
+     */
+    EventProcessor getEventProcessor(final int listenerId) {
+        final EventProcessor[] processors = eventProcessors;
+        final int slot = Spy.getListenerSlot(listenerId);
+        if (slot >= processors.length) {
+            return null;
+        }
+        // 槽位上可能已经是复用了该槽位的其他事件监听器
+        final EventProcessor processor = processors[slot];
+        return null != processor && processor.listenerId == listenerId
+                ? processor
+                : null;
+    }
+
+    /*
+     * 设置事件处理器，processor为null时表示移除
+     * 返回被替换掉的事件处理器
+     */
+    private synchronized EventProcessor setEventProcessor(final int listenerId,
+                                                          final EventProcessor processor) {
+        final EventProcessor previous = getEventProcessor(listenerId);
+        if (null == processor && null == previous) {
+            return null;
+        }
+
+        final int slot = Spy.getListenerSlot(listenerId);
+        EventProcessor[] processors = eventProcessors;
+        if (slot >= processors.length) {
+            processors = Arrays.copyOf(processors, Math.max(slot + 1, processors.length * 2));
+        }
+        processors[slot] = processor;
+        // 重新发布数组，保证数组元素的写入对读线程可见
+        eventProcessors = processors;
+        return previous;
+    }
 
     /**
      * 注册事件处理器
@@ -51,7 +91,11 @@ public class EventListenerHandler implements SpyHandler {
     public void active(final int listenerId,
                        final EventListener listener,
                        final Event.Type[] eventTypes) {
-        mappingOfEventProcessor.put(listenerId, new EventProcessor(listenerId, listener, eventTypes));
+        final EventProcessor previous = setEventProcessor(listenerId, new EventProcessor(listenerId, listener, eventTypes));
+        if (null != previous) {
+            previous.frozen();
+        }
+        Spy.setListenerActivated(listenerId, true);
         logger.info("activated listener[id={};target={};] event={}",
                 listenerId,
                 listener,
@@ -65,12 +109,15 @@ public class EventListenerHandler implements SpyHandler {
      * @param listenerId 事件处理器ID
      */
     public void frozen(int listenerId) {
-        final EventProcessor processor = mappingOfEventProcessor.remove(listenerId);
+        // 先关闭字节码中的监听器开关，增强后的方法不再进入Spy
+        Spy.setListenerActivated(listenerId, false);
+        final EventProcessor processor = setEventProcessor(listenerId, null);
         if (null == processor) {
             logger.debug("ignore frozen listener={}, because not found.", listenerId);
             return;
         }
 
+        processor.frozen();
         logger.info("frozen listener[id={};target={};]",
                 listenerId,
                 processor.listener
@@ -87,6 +134,7 @@ public class EventListenerHandler implements SpyHandler {
      * @param invokeId   调用ID
      * @param event      调用事件
      * @param processor  事件处理器
+     * @param process    事件处理器在当前线程中的处理单元
      * @return 处理返回结果
      * @throws Throwable 当出现未知异常时,且事件处理器为中断流程事件时抛出
      */
@@ -94,12 +142,13 @@ public class EventListenerHandler implements SpyHandler {
                                 final int processId,
                                 final int invokeId,
                                 final Event event,
-                                final EventProcessor processor) throws Throwable {
+                                final EventProcessor processor,
+                                final EventProcessor.Process process) throws Throwable {
         // 获取事件监听器
         final EventListener listener = processor.listener;
 
         // 如果当前事件不在事件监听器处理列表中，则直接返回，不处理事件
-        if (!contains(processor.eventTypes, event.type)) {
+        if (!processor.isSubscribed(event.type)) {
             return newInstanceForNone();
         }
 
@@ -119,8 +168,6 @@ public class EventListenerHandler implements SpyHandler {
         // 代码执行流程变更
         catch (ProcessControlException pce) {
 
-            final EventProcessor.Process process = processor.processRef.get();
-
             final ProcessControlException.State state = pce.getState();
             logger.debug("on-event: event|{}|{}|{}|{}, process-changed: {}. isIgnoreProcessEvent={};",
                     event.type,
@@ -240,7 +287,7 @@ public class EventListenerHandler implements SpyHandler {
 
         // 核对是否需要补偿，如果目标监听器没监听过这类事件，则不需要进行补偿
         if (!(event instanceof InvokeEvent)
-                || !contains(processor.eventTypes, event.type)) {
+                || !processor.isSubscribed(event.type)) {
             return;
         }
 
@@ -249,7 +296,7 @@ public class EventListenerHandler implements SpyHandler {
 
         // 补偿立即返回事件
         if (pce.getState() == ProcessControlException.State.RETURN_IMMEDIATELY
-                && contains(processor.eventTypes, IMMEDIATELY_RETURN)) {
+                && processor.isSubscribed(IMMEDIATELY_RETURN)) {
             compensateEvent = process
                     .getEventFactory()
                     .makeImmediatelyReturnEvent(iEvent.processId, iEvent.invokeId, pce.getRespond());
@@ -257,7 +304,7 @@ public class EventListenerHandler implements SpyHandler {
 
         // 补偿立即抛出事件
         else if (pce.getState() == ProcessControlException.State.THROWS_IMMEDIATELY
-                && contains(processor.eventTypes, IMMEDIATELY_THROWS)) {
+                && processor.isSubscribed(IMMEDIATELY_THROWS)) {
             compensateEvent = process
                     .getEventFactory()
                     .makeImmediatelyThrowsEvent(iEvent.processId, iEvent.invokeId, (Throwable) pce.getRespond());
@@ -302,16 +349,18 @@ public class EventListenerHandler implements SpyHandler {
     }
 
     @Override
-    public Spy.Ret handleOnBefore(int listenerId, int targetClassLoaderObjectID, Object[] argumentArray, String javaClassName, String javaMethodName, String javaMethodDesc, Object target) throws Throwable {
+    public Spy.Ret handleOnBefore(int listenerId, int behaviorId, Object[] argumentArray, Object target) throws Throwable {
+
+        final ThreadContext context = ThreadContext.current();
 
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
+        if (context.isInProtecting()) {
             logger.debug("listener={} is in protecting, ignore processing before-event", listenerId);
             return newInstanceForNone();
         }
 
         // 获取事件处理器
-        final EventProcessor processor = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor processor = getEventProcessor(listenerId);
 
         // 如果尚未注册,则直接返回,不做任何处理
         if (null == processor) {
@@ -319,8 +368,17 @@ public class EventListenerHandler implements SpyHandler {
             return newInstanceForNone();
         }
 
+        // 获取被增强的行为
+        final BehaviorIDs.Behavior behavior = BehaviorIDs.instance.getBehavior(behaviorId);
+
+        // 行为ID不是由当前沙箱分配的，说明字节码来自其他沙箱，不做任何处理
+        if (null == behavior) {
+            logger.debug("listener={} found unknown behavior={}, ignore processing before-event.", listenerId, behaviorId);
+            return newInstanceForNone();
+        }
+
         // 获取调用跟踪信息
-        final EventProcessor.Process process = processor.processRef.get();
+        final EventProcessor.Process process = context.getProcess(processor);
 
         // 如果当前处理ID被忽略，则立即返回
         if (process.isIgnoreProcess()) {
@@ -335,19 +393,18 @@ public class EventListenerHandler implements SpyHandler {
         // 调用过程ID
         final int processId = process.getProcessId();
 
-        final ClassLoader javaClassLoader = ObjectIDs.instance.getObject(targetClassLoaderObjectID);
+        final ClassLoader javaClassLoader = ObjectIDs.instance.getObject(behavior.classLoaderObjectID);
         final BeforeEvent event = process.getEventFactory().makeBeforeEvent(
                 processId,
                 invokeId,
+                behaviorId,
+                behavior,
                 javaClassLoader,
-                javaClassName,
-                javaMethodName,
-                javaMethodDesc,
                 target,
                 argumentArray
         );
         try {
-            return handleEvent(listenerId, processId, invokeId, event, processor);
+            return handleEvent(listenerId, processId, invokeId, event, processor, process);
         } finally {
             process.getEventFactory().returnEvent(event);
         }
@@ -368,13 +425,15 @@ public class EventListenerHandler implements SpyHandler {
                                 final Object object,
                                 final boolean isReturn) throws Throwable {
 
+        final ThreadContext context = ThreadContext.current();
+
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
+        if (context.isInProtecting()) {
             logger.debug("listener={} is in protecting, ignore processing {}-event", listenerId, isReturn ? "return" : "throws");
             return newInstanceForNone();
         }
 
-        final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor wrap = getEventProcessor(listenerId);
 
         // 如果尚未注册,则直接返回,不做任何处理
         if (null == wrap) {
@@ -382,7 +441,7 @@ public class EventListenerHandler implements SpyHandler {
             return newInstanceForNone();
         }
 
-        final EventProcessor.Process process = wrap.processRef.get();
+        final EventProcessor.Process process = context.getProcess(wrap);
 
         // 如果当前调用过程信息堆栈是空的,说明
         // 1. BEFORE/RETURN错位
@@ -391,7 +450,7 @@ public class EventListenerHandler implements SpyHandler {
         if (process.isEmptyStack()) {
 
             // 修复 #194 问题
-            wrap.processRef.remove();
+            // 空堆栈的处理单元会在下一次获取时被重置，这里不需要再做清理
 
             return newInstanceForNone();
         }
@@ -427,7 +486,7 @@ public class EventListenerHandler implements SpyHandler {
                 : process.getEventFactory().makeThrowsEvent(processId, invokeId, (Throwable) object);
 
         try {
-            return handleEvent(listenerId, processId, invokeId, event, wrap);
+            return handleEvent(listenerId, processId, invokeId, event, wrap, process);
         } finally {
             process.getEventFactory().returnEvent(event);
         }
@@ -438,19 +497,21 @@ public class EventListenerHandler implements SpyHandler {
     @Override
     public void handleOnCallBefore(int listenerId, int lineNumber, String owner, String name, String desc) throws Throwable {
 
+        final ThreadContext context = ThreadContext.current();
+
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
+        if (context.isInProtecting()) {
             logger.debug("listener={} is in protecting, ignore processing call-before-event", listenerId);
             return;
         }
 
-        final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor wrap = getEventProcessor(listenerId);
         if (null == wrap) {
             logger.debug("listener={} is not activated, ignore processing call-before-event.", listenerId);
             return;
         }
 
-        final EventProcessor.Process process = wrap.processRef.get();
+        final EventProcessor.Process process = context.getProcess(wrap);
 
         // 如果当前调用过程信息堆栈是空的,有两种情况
         // 1. CALL_BEFORE事件和BEFORE事件错位
@@ -473,7 +534,7 @@ public class EventListenerHandler implements SpyHandler {
                 .getEventFactory()
                 .makeCallBeforeEvent(processId, invokeId, lineNumber, owner, name, desc);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(listenerId, processId, invokeId, event, wrap, process);
         } finally {
             process.getEventFactory().returnEvent(event);
         }
@@ -482,19 +543,21 @@ public class EventListenerHandler implements SpyHandler {
     @Override
     public void handleOnCallReturn(int listenerId) throws Throwable {
 
+        final ThreadContext context = ThreadContext.current();
+
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
+        if (context.isInProtecting()) {
             logger.debug("listener={} is in protecting, ignore processing call-return-event", listenerId);
             return;
         }
 
-        final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor wrap = getEventProcessor(listenerId);
         if (null == wrap) {
             logger.debug("listener={} is not activated, ignore processing call-return-event.", listenerId);
             return;
         }
 
-        final EventProcessor.Process process = wrap.processRef.get();
+        final EventProcessor.Process process = context.getProcess(wrap);
         if (process.isEmptyStack()) {
             return;
         }
@@ -511,7 +574,7 @@ public class EventListenerHandler implements SpyHandler {
                 .getEventFactory()
                 .makeCallReturnEvent(processId, invokeId);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(listenerId, processId, invokeId, event, wrap, process);
         } finally {
             process.getEventFactory().returnEvent(event);
         }
@@ -520,19 +583,21 @@ public class EventListenerHandler implements SpyHandler {
     @Override
     public void handleOnCallThrows(int listenerId, String throwException) throws Throwable {
 
+        final ThreadContext context = ThreadContext.current();
+
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
+        if (context.isInProtecting()) {
             logger.debug("listener={} is in protecting, ignore processing call-throws-event", listenerId);
             return;
         }
 
-        final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor wrap = getEventProcessor(listenerId);
         if (null == wrap) {
             logger.debug("listener={} is not activated, ignore processing call-throws-event.", listenerId);
             return;
         }
 
-        final EventProcessor.Process process = wrap.processRef.get();
+        final EventProcessor.Process process = context.getProcess(wrap);
         if (process.isEmptyStack()) {
             return;
         }
@@ -549,7 +614,7 @@ public class EventListenerHandler implements SpyHandler {
                 .getEventFactory()
                 .makeCallThrowsEvent(processId, invokeId, throwException);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(listenerId, processId, invokeId, event, wrap, process);
         } finally {
             process.getEventFactory().returnEvent(event);
         }
@@ -558,19 +623,21 @@ public class EventListenerHandler implements SpyHandler {
     @Override
     public void handleOnLine(int listenerId, int lineNumber) throws Throwable {
 
+        final ThreadContext context = ThreadContext.current();
+
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
+        if (context.isInProtecting()) {
             logger.debug("listener={} is in protecting, ignore processing call-line-event", listenerId);
             return;
         }
 
-        final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor wrap = getEventProcessor(listenerId);
         if (null == wrap) {
             logger.debug("listener={} is not activated, ignore processing line-event.", listenerId);
             return;
         }
 
-        final EventProcessor.Process process = wrap.processRef.get();
+        final EventProcessor.Process process = context.getProcess(wrap);
 
         // 如果当前调用过程信息堆栈是空的,说明BEFORE/LINE错位
         // 处理方式是直接返回,不做任何事件的处理和代码流程的改变
@@ -588,7 +655,7 @@ public class EventListenerHandler implements SpyHandler {
 
         final Event event = process.getEventFactory().makeLineEvent(processId, invokeId, lineNumber);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(listenerId, processId, invokeId, event, wrap, process);
         } finally {
             process.getEventFactory().returnEvent(event);
         }
@@ -597,7 +664,7 @@ public class EventListenerHandler implements SpyHandler {
     // ---- 自检查
     public void checkEventProcessor(final int... listenerIds) {
         for (int listenerId : listenerIds) {
-            final EventProcessor processor = mappingOfEventProcessor.get(listenerId);
+            final EventProcessor processor = getEventProcessor(listenerId);
             if (null == processor) {
                 throw new IllegalStateException(String.format("listener=%s not existed.", listenerId));
             }
@@ -3,11 +3,14 @@ package com.alibaba.jvm.sandbox.core.enhance.weaver;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.core.enhance.annotation.Interrupted;
-import com.alibaba.jvm.sandbox.core.util.collection.GaStack;
-import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeGaStack;
+import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeIntStack;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.ref.WeakReference;
+
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.isIn;
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.toMask;
 import static com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils.isInterruptEventHandler;
 
 /**
@@ -19,16 +22,28 @@ class EventProcessor {
 
     /**
      * 处理单元
+     * <p>
+     * 处理单元存放在线程上下文中，生命周期与线程相同，所以只通过弱引用持有所属的事件处理器：
+     * 事件处理器冻结并从{@link EventListenerHandler}中移除后，即使线程再也不经过沙箱，
+     * 事件监听器以及加载它的模块ClassLoader也能被正常回收
+     * </p>
      */
-    class Process {
+    static class Process {
+
+        private final Logger logger;
+
+        // 所属的事件处理器
+        private final WeakReference<EventProcessor> processorRef;
 
-        // 事件工厂
-        private final SingleEventFactory eventFactory
-                = new SingleEventFactory();
+        // 所属的事件监听器ID
+        private final int listenerId;
+
+        // 所属的线程上下文
+        private final ThreadContext context;
 
         // 调用堆栈
-        private final GaStack<Integer> stack
-                = new ThreadUnsafeGaStack<>();
+        private final ThreadUnsafeIntStack stack
+                = new ThreadUnsafeIntStack();
 
         // 是否需要忽略整个调用过程
         private boolean isIgnoreProcess = false;
@@ -36,6 +51,31 @@ class EventProcessor {
         // 是否来自ImmediatelyThrowsException所抛出的异常
         private boolean isExceptionFromImmediately = false;
 
+        Process(final EventProcessor processor,
+                final ThreadContext context) {
+            this.logger = processor.logger;
+            this.processorRef = new WeakReference<>(processor);
+            this.listenerId = processor.listenerId;
+            this.context = context;
+        }
+
+        /**
+         * 获取所属的事件处理器
+         *
+         * @return 事件处理器，已被回收时返回null
+         */
+        EventProcessor getProcessor() {
+            return processorRef.get();
+        }
+
+        /**
+         * 重置处理单元，开始一个新的调用过程
+         */
+        void reset() {
+            isIgnoreProcess = false;
+            isExceptionFromImmediately = false;
+        }
+
         /**
          * 压入调用ID
          *
@@ -73,8 +113,7 @@ class EventProcessor {
                 invokeId = stack.pop();
             }
             if (stack.isEmpty()) {
-                processRef.remove();
-                logger.debug("clean TLS: event-processor, listener={};", listenerId);
+                logger.debug("process-stack is empty, process finished, listener={};", listenerId);
             }
             return invokeId;
         }
@@ -149,7 +188,7 @@ class EventProcessor {
          * @return 事件工厂
          */
         SingleEventFactory getEventFactory() {
-            return eventFactory;
+            return context.getEventFactory();
         }
 
     }
@@ -173,7 +212,12 @@ class EventProcessor {
     final int listenerId;
     final EventListener listener;
     final Event.Type[] eventTypes;
-    final ThreadLocal<Process> processRef = ThreadLocal.withInitial(Process::new);
+
+    // 订阅事件类型的掩码，由eventTypes预先计算，事件处理时只需一次位与判断
+    final int eventTypeMask;
+
+    // 事件处理器是否处于激活状态，冻结后线程上下文中遗留的处理单元会被清理
+    private volatile boolean isActivated = true;
 
     EventProcessor(final int listenerId,
                    final EventListener listener,
@@ -181,12 +225,48 @@ class EventProcessor {
 
         this.listenerId = listenerId;
         this.eventTypes = eventTypes;
+        this.eventTypeMask = toMask(eventTypes);
         this.listener = isInterruptEventHandler(listener.getClass())
                 ? new InterruptedEventListenerImpl(listener)
                 : listener;
     }
 
 
+    /**
+     * 判断事件处理器是否订阅了指定的事件类型
+     *
+     * @param type 事件类型
+     * @return TRUE:已订阅;FALSE:未订阅
+     */
+    boolean isSubscribed(final Event.Type type) {
+        return isIn(eventTypeMask, type);
+    }
+
+    /**
+     * 获取当前线程的处理单元
+     *
+     * @return 处理单元
+     */
+    Process getProcess() {
+        return ThreadContext.current().getProcess(this);
+    }
+
+    /**
+     * 事件处理器是否处于激活状态
+     *
+     * @return TRUE:激活；FALSE：已冻结
+     */
+    boolean isActivated() {
+        return isActivated;
+    }
+
+    /**
+     * 冻结事件处理器
+     */
+    void frozen() {
+        isActivated = false;
+    }
+
     /**
      * 校验器，用于校验事件处理器状态是否正确
      * <p>用于测试用例</p>
@@ -195,8 +275,8 @@ class EventProcessor {
 
         void check() {
 
-            final EventProcessor.Process process = processRef.get();
-            final ThreadUnsafeGaStack<Integer> stack = (ThreadUnsafeGaStack<Integer>) process.stack;
+            final EventProcessor.Process process = getProcess();
+            final ThreadUnsafeIntStack stack = process.stack;
 
             if (!process.isEmptyStack()) {
                 throw new IllegalStateException(String.format("process-stack is not empty! listener=%s;\n%s",
@@ -207,16 +287,16 @@ class EventProcessor {
 
             for (int index = 0; index < stack.getElementArray().length; index++) {
                 if (index <= stack.getCurrent()) {
-                    if (null == stack.getElementArray()[index]) {
-                        throw new IllegalStateException(String.format("process-stack element is null at index=[%d], listener=%s;\n%s",
+                    if (ThreadUnsafeIntStack.EMPTY_ELEMENT == stack.getElementArray()[index]) {
+                        throw new IllegalStateException(String.format("process-stack element is empty at index=[%d], listener=%s;\n%s",
                                 index,
                                 listenerId,
                                 toString(stack)
                         ));
                     }
                 } else {
-                    if (null != stack.getElementArray()[index]) {
-                        throw new IllegalStateException(String.format("process-stack element is not null at index=[%d], listener=%s;\n%s",
+                    if (ThreadUnsafeIntStack.EMPTY_ELEMENT != stack.getElementArray()[index]) {
+                        throw new IllegalStateException(String.format("process-stack element is not empty at index=[%d], listener=%s;\n%s",
                                 index,
                                 listenerId,
                                 toString(stack)
@@ -232,7 +312,7 @@ class EventProcessor {
 
         }
 
-        String toString(ThreadUnsafeGaStack<Integer> stack) {
+        String toString(ThreadUnsafeIntStack stack) {
             final StringBuilder stackSB = new StringBuilder(String.format("stack[deep=%d;current=%d;]{\n", stack.deep(), stack.getCurrent()));
             for (int index = 0; index < stack.getElementArray().length; index++) {
                 stackSB.append("\t[").append(index).append("] = ").append(stack.getElementArray()[index]).append("\n");
@@ -1,6 +1,7 @@
 package com.alibaba.jvm.sandbox.core.enhance.weaver;
 
 import com.alibaba.jvm.sandbox.api.event.*;
+import com.alibaba.jvm.sandbox.core.util.BehaviorIDs;
 import com.alibaba.jvm.sandbox.core.util.UnCaughtException;
 import com.alibaba.jvm.sandbox.core.util.UnsafeUtils;
 import sun.misc.Unsafe;
@@ -20,6 +21,7 @@ class SingleEventFactory {
     private static final Unsafe unsafe;
     private static final long processIdFieldInInvokeEventOffset;
     private static final long invokeIdFieldInInvokeEventOffset;
+    private static final long behaviorIdFieldInBeforeEventOffset;
     private static final long javaClassLoaderFieldInBeforeEventOffset;
     private static final long javaClassNameFieldInBeforeEventOffset;
     private static final long javaMethodNameFieldInBeforeEventOffset;
@@ -41,6 +43,7 @@ class SingleEventFactory {
             unsafe = UnsafeUtils.getUnsafe();
             processIdFieldInInvokeEventOffset = unsafe.objectFieldOffset(InvokeEvent.class.getDeclaredField("processId"));
             invokeIdFieldInInvokeEventOffset = unsafe.objectFieldOffset(InvokeEvent.class.getDeclaredField("invokeId"));
+            behaviorIdFieldInBeforeEventOffset = unsafe.objectFieldOffset(BeforeEvent.class.getDeclaredField("behaviorId"));
             javaClassLoaderFieldInBeforeEventOffset = unsafe.objectFieldOffset(BeforeEvent.class.getDeclaredField("javaClassLoader"));
             javaClassNameFieldInBeforeEventOffset = unsafe.objectFieldOffset(BeforeEvent.class.getDeclaredField("javaClassName"));
             javaMethodNameFieldInBeforeEventOffset = unsafe.objectFieldOffset(BeforeEvent.class.getDeclaredField("javaMethodName"));
@@ -74,10 +77,9 @@ class SingleEventFactory {
 
     public BeforeEvent makeBeforeEvent(final int processId,
                                        final int invokeId,
+                                       final int behaviorId,
+                                       final BehaviorIDs.Behavior behavior,
                                        final ClassLoader javaClassLoader,
-                                       final String javaClassName,
-                                       final String javaMethodName,
-                                       final String javaMethodDesc,
                                        final Object target,
                                        final Object[] argumentArray) {
         if (null == beforeEvent) {
@@ -85,10 +87,11 @@ class SingleEventFactory {
         }
         unsafe.putInt(beforeEvent, processIdFieldInInvokeEventOffset, processId);
         unsafe.putInt(beforeEvent, invokeIdFieldInInvokeEventOffset, invokeId);
+        unsafe.putInt(beforeEvent, behaviorIdFieldInBeforeEventOffset, behaviorId);
         unsafe.putObject(beforeEvent, javaClassLoaderFieldInBeforeEventOffset, javaClassLoader);
-        unsafe.putObject(beforeEvent, javaClassNameFieldInBeforeEventOffset, javaClassName);
-        unsafe.putObject(beforeEvent, javaMethodNameFieldInBeforeEventOffset, javaMethodName);
-        unsafe.putObject(beforeEvent, javaMethodDescFieldInBeforeEventOffset, javaMethodDesc);
+        unsafe.putObject(beforeEvent, javaClassNameFieldInBeforeEventOffset, behavior.javaClassName);
+        unsafe.putObject(beforeEvent, javaMethodNameFieldInBeforeEventOffset, behavior.javaMethodName);
+        unsafe.putObject(beforeEvent, javaMethodDescFieldInBeforeEventOffset, behavior.javaMethodDesc);
         unsafe.putObject(beforeEvent, targetFieldInBeforeEventOffset, target);
         unsafe.putObject(beforeEvent, argumentArrayFieldInBeforeEventOffset, argumentArray);
         return beforeEvent;
@@ -206,6 +209,8 @@ class SingleEventFactory {
     public void returnEvent(Event event) {
         switch (event.type) {
             case BEFORE:
+                // 事件工厂随线程上下文长期存在，需要释放对业务ClassLoader的引用
+                unsafe.putObject(event, javaClassLoaderFieldInBeforeEventOffset, null);
                 unsafe.putObject(event, targetFieldInBeforeEventOffset, null);
                 unsafe.putObject(event, argumentArrayFieldInBeforeEventOffset, null);
                 break;
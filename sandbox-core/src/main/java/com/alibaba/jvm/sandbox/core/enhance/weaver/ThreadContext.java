@@ -0,0 +1,144 @@
+package com.alibaba.jvm.sandbox.core.enhance.weaver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 线程上下文
+ * <p>
+ * 集中存放一个线程在沙箱中的所有状态：守护区域引用计数、各个事件处理器的处理单元以及事件工厂，
+ * 每个事件只需要一次ThreadLocal查找即可拿到全部状态。上下文在线程的整个生命周期中复用，
+ * 不会在调用栈清空时销毁重建，避免了高并发下ThreadLocalMap条目的反复创建和清理
+ * </p>
+ * <p>
+ * ThreadLocal中实际存放的是一个由BootstrapClassLoader加载的{@code Object[]}容器，
+ * 沙箱销毁时通过{@link #cleanAll()}清空所有容器，业务线程便不会再间接持有沙箱的ClassLoader
+ * </p>
+ */
+public class ThreadContext {
+
+    // 所有线程的上下文容器，用于沙箱销毁时统一清理
+    private static final Map<Object[], Boolean> holders
+            = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final ThreadLocal<Object[]> holderRef = ThreadLocal.withInitial(() -> new Object[1]);
+
+    /**
+     * 获取当前线程的上下文
+     *
+     * @return 当前线程的上下文
+     */
+    public static ThreadContext current() {
+        final Object[] holder = holderRef.get();
+        final ThreadContext context = (ThreadContext) holder[0];
+        if (null != context) {
+            return context;
+        }
+        final ThreadContext newContext = new ThreadContext();
+        holder[0] = newContext;
+        holders.put(holder, Boolean.TRUE);
+        return newContext;
+    }
+
+    /**
+     * 清理所有线程的上下文
+     * <p>沙箱销毁时调用</p>
+     */
+    public static void cleanAll() {
+        synchronized (holders) {
+            for (final Object[] holder : holders.keySet()) {
+                holder[0] = null;
+            }
+            holders.clear();
+        }
+    }
+
+    // 守护区域引用计数
+    private int protecting = 0;
+
+    // 事件工厂
+    private final SingleEventFactory eventFactory = new SingleEventFactory();
+
+    // 当前线程中各个事件处理器的处理单元
+    private final ArrayList<EventProcessor.Process> processes = new ArrayList<>(4);
+
+    private ThreadContext() {
+
+    }
+
+    /**
+     * 进入守护区域
+     *
+     * @return 进入之前的守护区域引用计数
+     */
+    public int enterProtecting() {
+        return protecting++;
+    }
+
+    /**
+     * 离开守护区域
+     *
+     * @return 离开之后的守护区域引用计数
+     */
+    public int exitProtecting() {
+        final int referenceCount = --protecting;
+        // 进出不匹配时修正引用计数，避免后续的守护判断持续错误
+        if (referenceCount < 0) {
+            protecting = 0;
+        }
+        return referenceCount;
+    }
+
+    /**
+     * 判断当前是否处于守护区域中
+     *
+     * @return TRUE:在守护区域中；FALSE：非守护区域中
+     */
+    public boolean isInProtecting() {
+        return protecting > 0;
+    }
+
+    /**
+     * 获取事件工厂
+     *
+     * @return 事件工厂
+     */
+    SingleEventFactory getEventFactory() {
+        return eventFactory;
+    }
+
+    /**
+     * 获取事件处理器在当前线程中的处理单元
+     * <p>
+     * 调用栈为空的处理单元会被重置后再返回，等价于开始一个新的调用过程；
+     * 每次查找都会清理所有已经冻结或已被回收的事件处理器所遗留的处理单元
+     * </p>
+     *
+     * @param processor 事件处理器
+     * @return 处理单元
+     */
+    EventProcessor.Process getProcess(final EventProcessor processor) {
+        EventProcessor.Process found = null;
+        for (int index = processes.size() - 1; index >= 0; index--) {
+            final EventProcessor.Process process = processes.get(index);
+            final EventProcessor owner = process.getProcessor();
+            if (owner == processor) {
+                found = process;
+            } else if (null == owner || !owner.isActivated()) {
+                processes.remove(index);
+            }
+        }
+        if (null != found) {
+            if (found.isEmptyStack()) {
+                found.reset();
+            }
+            return found;
+        }
+        final EventProcessor.Process process = new EventProcessor.Process(processor, this);
+        processes.add(process);
+        return process;
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.alibaba.jvm.sandbox.core.enhance.weaver.asm;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.util.BehaviorIDs;
 import org.objectweb.asm.*;
 import org.objectweb.asm.commons.JSRInlinerAdapter;
 import org.slf4j.Logger;
@@ -10,9 +11,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.EMPTY_MASK;
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.isIn;
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.toMask;
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toJavaClassName;
-import static org.apache.commons.lang3.ArrayUtils.contains;
 import static org.apache.commons.lang3.StringUtils.join;
 
 /**
@@ -24,11 +27,15 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final int targetClassLoaderObjectID;
-    private final String namespace;
+    private final int namespaceIndex;
     private final int listenerId;
     private final String targetJavaClassName;
     private final Set<String> signCodes;
     private final Event.Type[] eventTypeArray;
+    private final int eventTypeMask;
+
+    // BEFORE事件需要采集的参数下标，null表示采集全部参数
+    private final int[] argumentIndexes;
     private final String nativePrefix;
     private final List<ProxyMethod> proxyNativeAsmMethods = new ArrayList<>();
 
@@ -45,31 +52,36 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
 
     public EventWeaver(final int api,
                        final ClassVisitor cv,
-                       final String namespace,
+                       final int namespaceIndex,
                        final int listenerId,
                        final int targetClassLoaderObjectID,
                        final String targetClassInternalName,
                        final Set<String/*BehaviorStructure#getSignCode()*/> signCodes,
                        final Event.Type[] eventTypeArray,
+                       final int[] argumentIndexes,
                        final String nativePrefix) {
         super(api, cv);
         this.targetClassLoaderObjectID = targetClassLoaderObjectID;
-        this.namespace = namespace;
+        this.namespaceIndex = namespaceIndex;
         this.listenerId = listenerId;
         this.targetJavaClassName = toJavaClassName(targetClassInternalName);
         this.signCodes = signCodes;
         this.eventTypeArray = eventTypeArray;
+        this.eventTypeMask = toMask(eventTypeArray);
+        this.argumentIndexes = argumentIndexes;
         this.nativePrefix = nativePrefix;
 
-        this.isLineEnable = contains(eventTypeArray, Event.Type.LINE);
-        this.hasCallBefore = contains(eventTypeArray, Event.Type.CALL_BEFORE);
-        this.hasCallReturn = contains(eventTypeArray, Event.Type.CALL_RETURN);
-        this.hasCallThrows = contains(eventTypeArray, Event.Type.CALL_THROWS);
+        this.isLineEnable = isIn(eventTypeMask, Event.Type.LINE);
+        this.hasCallBefore = isIn(eventTypeMask, Event.Type.CALL_BEFORE);
+        this.hasCallReturn = isIn(eventTypeMask, Event.Type.CALL_RETURN);
+        this.hasCallThrows = isIn(eventTypeMask, Event.Type.CALL_THROWS);
         this.isCallEnable = hasCallBefore || hasCallReturn || hasCallThrows;
     }
 
+    // 未订阅任何事件类型时没有监听器能消费Spy事件，无需增强
     private boolean isMatchedBehavior(final String signCode) {
-        return signCodes.contains(signCode);
+        return EMPTY_MASK != eventTypeMask
+                && signCodes.contains(signCode);
     }
 
     private String getBehaviorSignCode(final String name,
@@ -112,10 +124,8 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
             private final Label endCatchBlock = new Label();
             private int newLocal = -1;
 
-            // 加载ClassLoader
-            private void loadClassLoader() {
-                push(targetClassLoaderObjectID);
-            }
+            // 行为ID，BEFORE事件通过行为ID查出ClassLoader、类名、方法名和方法签名
+            private final int behaviorId = BehaviorIDs.instance.identity(targetClassLoaderObjectID, targetJavaClassName, name, desc);
 
             /**
              * 流程控制
@@ -126,20 +136,19 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 if (!name.startsWith(nativePrefix)) {
                     getCodeLock().lock(() -> {
                         mark(beginLabel);
-                        loadArgArray();
-                        dup();
-                        push(namespace);
-                        push(listenerId);
-                        loadClassLoader();
-                        push(targetJavaClassName);
-                        push(name);
-                        push(desc);
-                        loadThisOrPushNullIfIsStatic();
-                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnBefore);
-                        swap();
-                        storeArgArray();
-                        pop();
-                        processControl(desc, false);
+                        ifListenerActivated(listenerId, () -> {
+                            loadArgArray(argumentIndexes);
+                            dup();
+                            push(namespaceIndex);
+                            push(listenerId);
+                            push(behaviorId);
+                            loadThisOrPushNullIfIsStatic();
+                            invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnBefore);
+                            swap();
+                            storeArgArray(argumentIndexes);
+                            pop();
+                            processControl(desc, false);
+                        });
                         final String proxyMethodName = nativePrefix + name;
                         final ProxyMethod proxyMethod = new ProxyMethod(access, proxyMethodName, desc);
                         final String owner = toInternalClassName(targetJavaClassName);
@@ -154,22 +163,26 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                             mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, proxyMethod.getName(), proxyMethod.getDescriptor(), false);
                         }
                         proxyNativeAsmMethods.add(proxyMethod);
-                        loadReturn(Type.getReturnType(desc));
-                        push(namespace);
-                        push(listenerId);
-                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnReturn);
-                        processControl(desc, true);
+                        ifListenerActivated(listenerId, () -> {
+                            loadReturn(Type.getReturnType(desc));
+                            push(namespaceIndex);
+                            push(listenerId);
+                            invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnReturn);
+                            processControl(desc, true);
+                        });
                         returnValue();
                         mark(endLabel);
                         mv.visitLabel(startCatchBlock);
                         visitTryCatchBlock(beginLabel, endLabel, startCatchBlock, ASM_TYPE_THROWABLE.getInternalName());
                         newLocal = newLocal(ASM_TYPE_THROWABLE);
                         storeLocal(newLocal);
-                        loadLocal(newLocal);
-                        push(namespace);
-                        push(listenerId);
-                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnThrows);
-                        processControl(desc, false);
+                        ifListenerActivated(listenerId, () -> {
+                            loadLocal(newLocal);
+                            push(namespaceIndex);
+                            push(listenerId);
+                            invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnThrows);
+                            processControl(desc, false);
+                        });
                         loadLocal(newLocal);
                         throwException();
                         mv.visitLabel(endCatchBlock);
@@ -197,10 +210,8 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
             // 所以这里需要用一个标记为告知后续的代码编织，绕开super()和this()
             private boolean isMethodEnter = false;
 
-            // 加载ClassLoader
-            private void loadClassLoader() {
-                push(targetClassLoaderObjectID);
-            }
+            // 行为ID，BEFORE事件通过行为ID查出ClassLoader、类名、方法名和方法签名
+            private final int behaviorId = BehaviorIDs.instance.identity(targetClassLoaderObjectID, targetJavaClassName, name, desc);
 
             @Override
             protected void onMethodEnter() {
@@ -210,20 +221,19 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                  */
                 getCodeLock().lock(() -> {
                     mark(beginLabel);
-                    loadArgArray();
-                    dup();
-                    push(namespace);
-                    push(listenerId);
-                    loadClassLoader();
-                    push(targetJavaClassName);
-                    push(name);
-                    push(desc);
-                    loadThisOrPushNullIfIsStatic();
-                    invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnBefore);
-                    swap();
-                    storeArgArray();
-                    pop();
-                    processControl(desc, false);
+                    ifListenerActivated(listenerId, () -> {
+                        loadArgArray(argumentIndexes);
+                        dup();
+                        push(namespaceIndex);
+                        push(listenerId);
+                        push(behaviorId);
+                        loadThisOrPushNullIfIsStatic();
+                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnBefore);
+                        swap();
+                        storeArgArray(argumentIndexes);
+                        pop();
+                        processControl(desc, false);
+                    });
                 });
 
                 // 标记方法体已进入
@@ -282,13 +292,13 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                     /*
                      * 触发Return事件并执行流程变更逻辑
                      */
-                    getCodeLock().lock(() -> {
+                    getCodeLock().lock(() -> ifListenerActivated(listenerId, () -> {
                         loadReturn(opcode);
-                        push(namespace);
+                        push(namespaceIndex);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnReturn);
                         processControl(desc, true);
-                    });
+                    }));
 
                 }
             }
@@ -305,11 +315,13 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 getCodeLock().lock(() -> {
                     newLocal = newLocal(ASM_TYPE_THROWABLE);
                     storeLocal(newLocal);
-                    loadLocal(newLocal);
-                    push(namespace);
-                    push(listenerId);
-                    invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnThrows);
-                    processControl(desc, false);
+                    ifListenerActivated(listenerId, () -> {
+                        loadLocal(newLocal);
+                        push(namespaceIndex);
+                        push(listenerId);
+                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnThrows);
+                        processControl(desc, false);
+                    });
                     loadLocal(newLocal);
                 });
 
@@ -324,12 +336,12 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
             @Override
             public void visitLineNumber(final int lineNumber, Label label) {
                 if (isMethodEnter && isLineEnable) {
-                    getCodeLock().lock(() -> {
+                    getCodeLock().lock(() -> ifListenerActivated(listenerId, () -> {
                         push(lineNumber);
-                        push(namespace);
+                        push(namespaceIndex);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnLine);
-                    });
+                    }));
                 }
                 super.visitLineNumber(lineNumber, label);
                 this.tracingCurrentLineNumber = lineNumber;
@@ -351,26 +363,26 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
 
                 if (hasCallBefore) {
                     // 方法调用前通知
-                    getCodeLock().lock(() -> {
+                    getCodeLock().lock(() -> ifListenerActivated(listenerId, () -> {
                         push(tracingCurrentLineNumber);
                         push(toJavaClassName(owner));
                         push(name);
                         push(desc);
-                        push(namespace);
+                        push(namespaceIndex);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallBefore);
-                    });
+                    }));
                 }
 
                 // 如果没有CALL_THROWS事件,其实是可以不用对方法调用进行try...catch
                 // 这样可以节省大量的字节码
                 if (!hasCallThrows) {
                     super.visitMethodInsn(opcode, owner, name, desc, itf);
-                    getCodeLock().lock(() -> {
-                        push(namespace);
+                    getCodeLock().lock(() -> ifListenerActivated(listenerId, () -> {
+                        push(namespaceIndex);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallReturn);
-                    });
+                    }));
                     return;
                 }
 
@@ -389,11 +401,11 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
 
                 if (hasCallReturn) {
                     // 方法调用后通知
-                    getCodeLock().lock(() -> {
-                        push(namespace);
+                    getCodeLock().lock(() -> ifListenerActivated(listenerId, () -> {
+                        push(namespaceIndex);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallReturn);
-                    });
+                    }));
                 }
                 goTo(tracingFinallyLabel);
 
@@ -402,14 +414,14 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 // {
 
                 catchException(tracingBeginLabel, tracingEndLabel, ASM_TYPE_THROWABLE);
-                getCodeLock().lock(() -> {
+                getCodeLock().lock(() -> ifListenerActivated(listenerId, () -> {
                     dup();
                     invokeVirtual(ASM_TYPE_OBJECT, ASM_METHOD_Object$getClass);
                     invokeVirtual(ASM_TYPE_CLASS, ASM_METHOD_Class$getName);
-                    push(namespace);
+                    push(namespaceIndex);
                     push(listenerId);
                     invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallThrows);
-                });
+                }));
 
                 throwException();
 
@@ -1,5 +1,6 @@
 package com.alibaba.jvm.sandbox.core.enhance.weaver.asm;
 
+import com.alibaba.jvm.sandbox.core.enhance.weaver.CodeLock;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
@@ -72,6 +73,80 @@ public class ReWriteAdapter extends CodeLockAdapter implements Opcodes, AsmTypes
         }
     }
 
+    // 参数下标是否需要采集
+    private boolean isCaptureArgument(final int[] argumentIndexes, final int index) {
+        if (null == argumentIndexes) {
+            return true;
+        }
+        for (final int argumentIndex : argumentIndexes) {
+            if (argumentIndex == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 是否有需要采集的参数
+    private boolean hasCaptureArgument(final int[] argumentIndexes) {
+        for (int i = 0; i < argumentTypeArray.length; i++) {
+            if (isCaptureArgument(argumentIndexes, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按需加载参数数组
+     * <p>
+     * 1. {@code argumentIndexes}为null时加载全部参数
+     * 2. 没有需要采集的参数时加载{@link Spy#EMPTY_ARGUMENT_ARRAY}，不产生任何分配
+     * 3. 其他情况参数数组长度不变，只对需要采集的参数进行装箱
+     * </p>
+     *
+     * @param argumentIndexes 需要采集的参数下标
+     */
+    final protected void loadArgArray(final int[] argumentIndexes) {
+        if (null == argumentIndexes) {
+            loadArgArray();
+            return;
+        }
+        if (!hasCaptureArgument(argumentIndexes)) {
+            getStatic(ASM_TYPE_SPY, "EMPTY_ARGUMENT_ARRAY", ASM_TYPE_OBJECT_ARRAY);
+            return;
+        }
+        push(argumentTypeArray.length);
+        newArray(ASM_TYPE_OBJECT);
+        for (int i = 0; i < argumentTypeArray.length; i++) {
+            if (!isCaptureArgument(argumentIndexes, i)) {
+                continue;
+            }
+            dup();
+            push(i);
+            loadArg(i);
+            box(argumentTypeArray[i]);
+            arrayStore(ASM_TYPE_OBJECT);
+        }
+    }
+
+    /**
+     * 按需保存参数数组，只有被采集的参数才会被写回
+     *
+     * @param argumentIndexes 需要采集的参数下标
+     */
+    final protected void storeArgArray(final int[] argumentIndexes) {
+        for (int i = 0; i < argumentTypeArray.length; i++) {
+            if (!isCaptureArgument(argumentIndexes, i)) {
+                continue;
+            }
+            dup();
+            push(i);
+            arrayLoad(ASM_TYPE_OBJECT);
+            unbox(argumentTypeArray[i]);
+            storeArg(i);
+        }
+    }
+
     /**
      * 加载返回值
      * @param returnType 返回值类型
@@ -193,6 +268,24 @@ public class ReWriteAdapter extends CodeLockAdapter implements Opcodes, AsmTypes
         }
     }
 
+    /**
+     * 仅当事件监听器处于激活状态时执行代码块
+     * <p>
+     * 代码块执行前后的操作数栈必须保持一致
+     * </p>
+     *
+     * @param listenerId 事件监听器ID
+     * @param block      代码块
+     */
+    final protected void ifListenerActivated(int listenerId, CodeLock.Block block) {
+        final Label skipLabel = new Label();
+        push(listenerId);
+        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$isListenerActivated);
+        ifZCmp(EQ, skipLabel);
+        block.code();
+        mark(skipLabel);
+    }
+
     /**
      * 方法流程控制
      *
@@ -0,0 +1,82 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.api.listener.ext.BehaviorCache;
+import com.alibaba.jvm.sandbox.api.resource.CacheMonitor;
+import com.alibaba.jvm.sandbox.core.enhance.WovenByteCodeCache;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
+import com.google.common.cache.CacheStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 默认缓存监控器实现
+ */
+class DefaultCacheMonitor implements CacheMonitor {
+
+    @Override
+    public List<CacheInfo> getCacheInfos() {
+        final List<CacheInfo> cacheInfos = new ArrayList<>();
+        final ClassStructureCache classStructureCache = ClassStructureCache.getInstance();
+        cacheInfos.add(new CacheInfoImplByGuava("class-structure", classStructureCache.size(), classStructureCache.stats()));
+        final WovenByteCodeCache wovenByteCodeCache = WovenByteCodeCache.getInstance();
+        if (wovenByteCodeCache.isEnabled()) {
+            cacheInfos.add(new CacheInfoImplByGuava("woven-bytecode", wovenByteCodeCache.size(), wovenByteCodeCache.stats()));
+        }
+        final BehaviorCache behaviorCache = BehaviorCache.instance;
+        cacheInfos.add(new CacheInfoImplByGuava("behavior", behaviorCache.size(), new CacheStats(
+                behaviorCache.getHitCount(),
+                behaviorCache.getMissCount(),
+                0,
+                0,
+                0,
+                behaviorCache.getEvictionCount()
+        )));
+        return cacheInfos;
+    }
+
+    /**
+     * 以Guava的缓存统计实现的缓存信息
+     */
+    static class CacheInfoImplByGuava implements CacheInfo {
+
+        private final String name;
+        private final long size;
+        private final CacheStats stats;
+
+        CacheInfoImplByGuava(final String name,
+                             final long size,
+                             final CacheStats stats) {
+            this.name = name;
+            this.size = size;
+            this.stats = stats;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public long getHitCount() {
+            return stats.hitCount();
+        }
+
+        @Override
+        public long getMissCount() {
+            return stats.missCount();
+        }
+
+        @Override
+        public long getEvictionCount() {
+            return stats.evictionCount();
+        }
+
+    }
+
+}
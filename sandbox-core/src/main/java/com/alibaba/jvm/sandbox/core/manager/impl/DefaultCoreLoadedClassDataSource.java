@@ -4,6 +4,7 @@ import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
 import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.GroupMatcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.UnsupportedMatcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
@@ -12,6 +13,12 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.instrument.Instrumentation;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
 import static com.alibaba.jvm.sandbox.core.util.SandboxClassUtils.isComeFromSandboxFamily;
@@ -24,17 +31,72 @@ import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalCla
  */
 public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSource {
 
+    // 并行匹配时每个任务负责的类数量，已加载类不超过这个数量时直接在当前线程匹配
+    private static final int MATCHING_SLICE_SIZE = 512;
+
+    // 并行匹配线程空闲多久之后退出(秒)
+    private static final long MATCHING_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    // 并行匹配线程序号
+    private static final AtomicInteger matchingThreadIndex = new AtomicInteger();
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Instrumentation inst;
     private final boolean isEnableUnsafe;
     private final boolean isNativeSupported;
+    private final int matchingParallelism;
+    private final LoadedClassIndex loadedClassIndex;
+    private final MatchingResultMemo matchingResultMemo;
+
+    // 并行匹配线程池，第一次并行匹配时才创建
+    private ExecutorService matchingExecutor;
+    private boolean isClosed = false;
 
     public DefaultCoreLoadedClassDataSource(final Instrumentation inst,
                                             final boolean isEnableUnsafe,
                                             final boolean isNativeSupported) {
+        this(inst, isEnableUnsafe, isNativeSupported, 1, null);
+    }
+
+    /**
+     * 构造已加载类数据源
+     *
+     * @param inst                inst
+     * @param isEnableUnsafe      是否允许增强rt.jar的类
+     * @param isNativeSupported   是否支持native方法增强
+     * @param matchingParallelism 匹配已加载类的并行度，小于等于1时在调用线程中串行匹配
+     * @param loadedClassIndex    已加载类索引，为null时每次都匹配所有已加载的类
+     */
+    public DefaultCoreLoadedClassDataSource(final Instrumentation inst,
+                                            final boolean isEnableUnsafe,
+                                            final boolean isNativeSupported,
+                                            final int matchingParallelism,
+                                            final LoadedClassIndex loadedClassIndex) {
+        this(inst, isEnableUnsafe, isNativeSupported, matchingParallelism, loadedClassIndex, null);
+    }
+
+    /**
+     * 构造已加载类数据源
+     *
+     * @param inst                inst
+     * @param isEnableUnsafe      是否允许增强rt.jar的类
+     * @param isNativeSupported   是否支持native方法增强
+     * @param matchingParallelism 匹配已加载类的并行度，小于等于1时在调用线程中串行匹配
+     * @param loadedClassIndex    已加载类索引，为null时每次都匹配所有已加载的类
+     * @param matchingResultMemo  已加载类匹配结果备忘，为null时每次都重新匹配
+     */
+    public DefaultCoreLoadedClassDataSource(final Instrumentation inst,
+                                            final boolean isEnableUnsafe,
+                                            final boolean isNativeSupported,
+                                            final int matchingParallelism,
+                                            final LoadedClassIndex loadedClassIndex,
+                                            final MatchingResultMemo matchingResultMemo) {
         this.inst = inst;
         this.isEnableUnsafe = isEnableUnsafe;
         this.isNativeSupported = isNativeSupported;
+        this.matchingParallelism = matchingParallelism;
+        this.loadedClassIndex = loadedClassIndex;
+        this.matchingResultMemo = matchingResultMemo;
     }
 
     @Override
@@ -73,7 +135,26 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
 
     @Override
     public List<Class<?>> findForReTransform(final Matcher matcher) {
-        return find(matcher, true);
+        if (null == matchingResultMemo) {
+            return find(matcher, true);
+        }
+
+        // 同样的匹配条件在没有新类加载时直接复用上次的匹配结果
+        final String key = MatchingResultMemo.toKey(matcher);
+        if (null == key) {
+            return find(matcher, true);
+        }
+        final List<Class<?>> memoized = matchingResultMemo.get(key);
+        if (null != memoized) {
+            logger.debug("reuse memoized matching result, found {} classes.", memoized.size());
+            return memoized;
+        }
+
+        // 代数必须在匹配开始之前获取，匹配过程中有新类加载时不做备忘
+        final long generation = matchingResultMemo.getGeneration();
+        final List<Class<?>> classes = find(matcher, true);
+        matchingResultMemo.put(key, generation, classes);
+        return classes;
     }
 
     private List<Class<?>> find(final Matcher matcher,
@@ -82,55 +163,197 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
         SandboxProtector.instance.enterProtecting();
         try {
 
-            final List<Class<?>> classes = new ArrayList<>();
             if (null == matcher) {
-                return classes;
+                return new ArrayList<>();
             }
 
-            final Iterator<Class<?>> itForLoaded = iteratorForLoadedClasses();
-            while (itForLoaded.hasNext()) {
-                final Class<?> clazz = itForLoaded.next();
+            final Class<?>[] loaded = findCandidates(matcher);
+            if (matchingParallelism > 1
+                    && loaded.length > MATCHING_SLICE_SIZE) {
+                return findInParallel(matcher, isRemoveUnsupported, loaded);
+            }
+            return find(matcher, isRemoveUnsupported, loaded, 0, loaded.length);
 
-                // #242 的建议，过滤掉sandbox家族的类
-                if (isComeFromSandboxFamily(toInternalClassName(clazz.getName()), clazz.getClassLoader())) {
-                    continue;
-                }
+        } finally {
+            SandboxProtector.instance.exitProtecting();
+        }
+
+    }
 
-                // 过滤掉对于JVM认为不可修改的类
-                if (isRemoveUnsupported
-                        && !inst.isModifiableClass(clazz)) {
-                    // logger.debug("remove from findForReTransform, because class:{} is unModifiable", clazz.getName());
-                    continue;
+    /*
+     * 找出有可能被匹配上的已加载类
+     * 匹配器能给出类名前缀时从已加载类索引中检索，否则只能返回所有已加载的类
+     */
+    private Class<?>[] findCandidates(final Matcher matcher) {
+        if (null != loadedClassIndex) {
+            final Set<Class<?>> candidates = findCandidatesFromIndex(matcher);
+            if (null != candidates) {
+                return candidates.toArray(new Class<?>[0]);
+            }
+        }
+        return inst.getAllLoadedClasses();
+    }
+
+    // 无法确定候选范围时返回null
+    private Set<Class<?>> findCandidatesFromIndex(final Matcher matcher) {
+        if (matcher instanceof ExtFilterMatcher) {
+            final ExtFilterMatcher extFilterMatcher = (ExtFilterMatcher) matcher;
+            final String javaClassNamePrefix = extFilterMatcher.getJavaClassNamePrefix();
+            return null == javaClassNamePrefix
+                    ? null
+                    : loadedClassIndex.find(javaClassNamePrefix, extFilterMatcher.isIncludeSubClasses());
+        }
+        if (matcher instanceof GroupMatcher.Or
+                && null != ((GroupMatcher.Or) matcher).getMatcherArray()) {
+            final Set<Class<?>> candidates = new LinkedHashSet<>();
+            for (final Matcher subMatcher : ((GroupMatcher.Or) matcher).getMatcherArray()) {
+                final Set<Class<?>> subCandidates = findCandidatesFromIndex(subMatcher);
+                if (null == subCandidates) {
+                    return null;
                 }
-                try {
-                    if (isRemoveUnsupported) {
-                        if (new UnsupportedMatcher(clazz.getClassLoader(), isEnableUnsafe, isNativeSupported)
-                                .and(matcher)
-                                .matching(ClassStructureFactory.createClassStructure(clazz))
-                                .isMatched()) {
-                            classes.add(clazz);
-                        }
-                    } else {
-                        if (matcher.matching(ClassStructureFactory.createClassStructure(clazz)).isMatched()) {
-                            classes.add(clazz);
-                        }
+                candidates.addAll(subCandidates);
+            }
+            return candidates;
+        }
+        return null;
+    }
+
+    /*
+     * 获取并行匹配线程池，第一次使用时创建
+     * 线程池在数据源的整个生命周期中复用，空闲的线程会自动退出，数据源关闭后返回null
+     */
+    private synchronized ExecutorService getMatchingExecutor() {
+        if (isClosed) {
+            return null;
+        }
+        if (null == matchingExecutor) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    matchingParallelism,
+                    matchingParallelism,
+                    MATCHING_THREAD_KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "sandbox-class-matching-" + matchingThreadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
                     }
+            );
+            executor.allowCoreThreadTimeOut(true);
+            matchingExecutor = executor;
+        }
+        return matchingExecutor;
+    }
 
-                } catch (Throwable cause) {
-                    // 在这里可能会遇到非常坑爹的模块卸载错误
-                    // 当一个URLClassLoader被动态关闭之后，但JVM已经加载的类并不知情（因为没有GC）
-                    // 所以当尝试获取这个类更多详细信息的时候会引起关联类的ClassNotFoundException等未知的错误（取决于底层ClassLoader的实现）
-                    // 这里没有办法穷举出所有的异常情况，所以catch Throwable来完成异常容灾处理
-                    // 当解析类出现异常的时候，直接简单粗暴的认为根本没有这个类就好了
-                    logger.debug("remove from findForReTransform, because loading class:{} occur an exception", clazz.getName(), cause);
-                }
+    /**
+     * 关闭数据源，停止并行匹配线程池
+     * <p>关闭之后的匹配都在调用线程中串行完成</p>
+     */
+    public synchronized void close() {
+        isClosed = true;
+        if (null != matchingExecutor) {
+            matchingExecutor.shutdownNow();
+            matchingExecutor = null;
+        }
+    }
+
+    /*
+     * 将已加载类切分为多个片段，交由并行匹配线程池匹配，匹配结果按已加载类的原有顺序合并
+     * 守护区域的引用计数是线程级别的，所以每个匹配任务都需要各自进入守护区域
+     * 并行匹配出现意外时退化为在当前线程中串行匹配
+     */
+    private List<Class<?>> findInParallel(final Matcher matcher,
+                                          final boolean isRemoveUnsupported,
+                                          final Class<?>[] loaded) {
+        final ExecutorService executor = getMatchingExecutor();
+        if (null == executor) {
+            return find(matcher, isRemoveUnsupported, loaded, 0, loaded.length);
+        }
+        final int sliceCount = (loaded.length + MATCHING_SLICE_SIZE - 1) / MATCHING_SLICE_SIZE;
+        final List<Future<List<Class<?>>>> futures = new ArrayList<>(sliceCount);
+        try {
+            for (int from = 0; from < loaded.length; from += MATCHING_SLICE_SIZE) {
+                final int sliceFrom = from;
+                final int sliceTo = Math.min(from + MATCHING_SLICE_SIZE, loaded.length);
+                futures.add(executor.submit(() -> {
+                    SandboxProtector.instance.enterProtecting();
+                    try {
+                        return find(matcher, isRemoveUnsupported, loaded, sliceFrom, sliceTo);
+                    } finally {
+                        SandboxProtector.instance.exitProtecting();
+                    }
+                }));
+            }
+            final List<Class<?>> classes = new ArrayList<>();
+            for (final Future<List<Class<?>>> future : futures) {
+                classes.addAll(future.get());
             }
             return classes;
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+            cancel(futures);
+            logger.warn("find classes in parallel was interrupted, fallback to find in current thread.", cause);
+        } catch (Throwable cause) {
+            cancel(futures);
+            logger.warn("find classes in parallel occur an exception, fallback to find in current thread.", cause);
+        }
+        return find(matcher, isRemoveUnsupported, loaded, 0, loaded.length);
+    }
 
-        } finally {
-            SandboxProtector.instance.exitProtecting();
+    // 取消尚未完成的匹配任务
+    private static void cancel(final List<? extends Future<?>> futures) {
+        for (final Future<?> future : futures) {
+            future.cancel(true);
         }
+    }
 
+    /*
+     * 匹配已加载类中[from,to)区间内的类
+     */
+    private List<Class<?>> find(final Matcher matcher,
+                                final boolean isRemoveUnsupported,
+                                final Class<?>[] loaded,
+                                final int from,
+                                final int to) {
+        final List<Class<?>> classes = new ArrayList<>();
+        for (int index = from; index < to; index++) {
+            final Class<?> clazz = loaded[index];
+
+            // #242 的建议，过滤掉sandbox家族的类
+            if (isComeFromSandboxFamily(toInternalClassName(clazz.getName()), clazz.getClassLoader())) {
+                continue;
+            }
+
+            // 过滤掉对于JVM认为不可修改的类
+            if (isRemoveUnsupported
+                    && !inst.isModifiableClass(clazz)) {
+                // logger.debug("remove from findForReTransform, because class:{} is unModifiable", clazz.getName());
+                continue;
+            }
+            try {
+                if (isRemoveUnsupported) {
+                    if (new UnsupportedMatcher(clazz.getClassLoader(), isEnableUnsafe, isNativeSupported)
+                            .and(matcher)
+                            .matching(ClassStructureFactory.createClassStructure(clazz))
+                            .isMatched()) {
+                        classes.add(clazz);
+                    }
+                } else {
+                    if (matcher.matching(ClassStructureFactory.createClassStructure(clazz)).isMatched()) {
+                        classes.add(clazz);
+                    }
+                }
+
+            } catch (Throwable cause) {
+                // 在这里可能会遇到非常坑爹的模块卸载错误
+                // 当一个URLClassLoader被动态关闭之后，但JVM已经加载的类并不知情（因为没有GC）
+                // 所以当尝试获取这个类更多详细信息的时候会引起关联类的ClassNotFoundException等未知的错误（取决于底层ClassLoader的实现）
+                // 这里没有办法穷举出所有的异常情况，所以catch Throwable来完成异常容灾处理
+                // 当解析类出现异常的时候，直接简单粗暴的认为根本没有这个类就好了
+                logger.debug("remove from findForReTransform, because loading class:{} occur an exception", clazz.getName(), cause);
+            }
+        }
+        return classes;
     }
 
 
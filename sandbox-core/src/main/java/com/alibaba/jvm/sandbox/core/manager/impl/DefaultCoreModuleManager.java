@@ -44,6 +44,9 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
     private final CoreLoadedClassDataSource classDataSource;
     private final ProviderManager providerManager;
 
+    // 所有模块共享的类形变器
+    private final MultiplexClassFileTransformer multiplexClassFileTransformer;
+
     // 模块目录&文件集合
     private final File[] moduleLibDirArray;
 
@@ -66,6 +69,7 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
         this.inst = inst;
         this.classDataSource = classDataSource;
         this.providerManager = providerManager;
+        this.multiplexClassFileTransformer = new MultiplexClassFileTransformer(inst, cfg.isEnableUnsafe(), cfg.getNamespace());
 
         // 初始化模块目录
         this.moduleLibDirArray = mergeFileArray(
@@ -217,7 +221,7 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
                             new ReleaseResource<ModuleEventWatcher>(
                                     SandboxProtector.instance.protectProxy(
                                             ModuleEventWatcher.class,
-                                            new DefaultModuleEventWatcher(inst, classDataSource, coreModule, cfg.isEnableUnsafe(), cfg.getNamespace())
+                                            new DefaultModuleEventWatcher(inst, classDataSource, coreModule, multiplexClassFileTransformer, cfg.getReTransformBatchSize())
                                     )
                             ) {
                                 @Override
@@ -301,6 +305,16 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
                     );
                 }
 
+                // CacheMonitor注入
+                else if (CacheMonitor.class.isAssignableFrom(fieldType)) {
+                    writeField(
+                            resourceField,
+                            module,
+                            new DefaultCacheMonitor(),
+                            true
+                    );
+                }
+
                 // 其他情况需要输出日志警告
                 else {
                     logger.warn("module inject @Resource ignored: field not found. module={};class={};type={};field={};",
@@ -37,8 +37,10 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
     private final Instrumentation inst;
     private final CoreLoadedClassDataSource classDataSource;
     private final CoreModule coreModule;
-    private final boolean isEnableUnsafe;
-    private final String namespace;
+    private final MultiplexClassFileTransformer multiplexClassFileTransformer;
+
+    // 单次retransformClasses调用最多形变的类数量，为1时退化为逐个类形变
+    private final int reTransformBatchSize;
 
     // 观察ID序列生成器
     private final Sequencer watchIdSequencer = new Sequencer();
@@ -46,13 +48,13 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
     DefaultModuleEventWatcher(final Instrumentation inst,
                               final CoreLoadedClassDataSource classDataSource,
                               final CoreModule coreModule,
-                              final boolean isEnableUnsafe,
-                              final String namespace) {
+                              final MultiplexClassFileTransformer multiplexClassFileTransformer,
+                              final int reTransformBatchSize) {
         this.inst = inst;
         this.classDataSource = classDataSource;
         this.coreModule = coreModule;
-        this.isEnableUnsafe = isEnableUnsafe;
-        this.namespace = namespace;
+        this.multiplexClassFileTransformer = multiplexClassFileTransformer;
+        this.reTransformBatchSize = Math.max(1, reTransformBatchSize);
     }
 
 
@@ -81,6 +83,7 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
 
     /*
      * 形变观察所影响的类
+     * 每批最多{@link #reTransformBatchSize}个类合并为一次retransformClasses调用，批次失败时再二分定位出失败的类
      */
     private void reTransformClasses(
         final int watchId,
@@ -95,52 +98,90 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
         }
 
         if (logger.isDebugEnabled()) {
-            logger.debug("reTransformClasses={};module={};watch={};",
-                    waitingReTransformClasses, coreModule.getUniqueId(), watchId);
+            logger.debug("reTransformClasses={};module={};watch={};batch-size={};",
+                    waitingReTransformClasses, coreModule.getUniqueId(), watchId, reTransformBatchSize);
         }
 
-        int index = 0;
-        for (final Class<?> waitingReTransformClass : waitingReTransformClasses) {
-            index++;
-            try {
-                if (null != progress) {
-                    try {
-                        progress.progressOnSuccess(waitingReTransformClass, index);
-                    } catch (Throwable cause) {
-                        // 在进行进度汇报的过程中抛出异常,直接进行忽略,因为不影响形变的主体流程
-                        // 仅仅只是一个汇报作用而已
-                        logger.warn("watch={} in module={} on {} report progressOnSuccess occur exception at index={};total={};",
-                                watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                                index - 1, total,
-                                cause
-                        );
-                    }
-                }
-                inst.retransformClasses(waitingReTransformClass);
-                logger.info("watch={} in module={} single reTransform {} success, at index={};total={};",
-                        watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                        index - 1, total
-                );
-            } catch (Throwable causeOfReTransform) {
-                logger.warn("watch={} in module={} single reTransform {} failed, at index={};total={}. ignore this class.",
-                        watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                        index - 1, total,
+        for (int from = 0; from < total; from += reTransformBatchSize) {
+            reTransformBatch(
+                    watchId,
+                    waitingReTransformClasses,
+                    from,
+                    Math.min(from + reTransformBatchSize, total),
+                    progress
+            );
+        }
+
+    }
+
+    /*
+     * 批量形变[from,to)区间内的类
+     * JVM对一次retransformClasses中的所有类要么全部形变成功，要么全部不生效，
+     * 所以批次失败时可以二分后重试，直到定位出单个失败的类
+     */
+    private void reTransformBatch(final int watchId,
+                                  final List<Class<?>> waitingReTransformClasses,
+                                  final int from,
+                                  final int to,
+                                  final Progress progress) {
+        final int total = waitingReTransformClasses.size();
+        try {
+            inst.retransformClasses(waitingReTransformClasses.subList(from, to).toArray(new Class<?>[0]));
+        } catch (Throwable causeOfReTransform) {
+
+            // 批次中有多个类时二分重试
+            if (to - from > 1) {
+                logger.info("watch={} in module={} batch reTransform failed, at index=[{},{});total={}. retry by bisection.",
+                        watchId, coreModule.getUniqueId(),
+                        from, to, total,
                         causeOfReTransform
                 );
-                if (null != progress) {
-                    try {
-                        progress.progressOnFailed(waitingReTransformClass, index, causeOfReTransform);
-                    } catch (Throwable cause) {
-                        logger.warn("watch={} in module={} on {} report progressOnFailed occur exception, at index={};total={};",
-                                watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                                index - 1, total,
-                                cause
-                        );
-                    }
+                final int middle = (from + to) >>> 1;
+                reTransformBatch(watchId, waitingReTransformClasses, from, middle, progress);
+                reTransformBatch(watchId, waitingReTransformClasses, middle, to, progress);
+                return;
+            }
+
+            final Class<?> waitingReTransformClass = waitingReTransformClasses.get(from);
+            logger.warn("watch={} in module={} single reTransform {} failed, at index={};total={}. ignore this class.",
+                    watchId, coreModule.getUniqueId(), waitingReTransformClass,
+                    from, total,
+                    causeOfReTransform
+            );
+            if (null != progress) {
+                try {
+                    progress.progressOnFailed(waitingReTransformClass, from + 1, causeOfReTransform);
+                } catch (Throwable cause) {
+                    logger.warn("watch={} in module={} on {} report progressOnFailed occur exception, at index={};total={};",
+                            watchId, coreModule.getUniqueId(), waitingReTransformClass,
+                            from, total,
+                            cause
+                    );
                 }
             }
-        }//for
+            return;
+        }
 
+        for (int index = from; index < to; index++) {
+            final Class<?> waitingReTransformClass = waitingReTransformClasses.get(index);
+            logger.info("watch={} in module={} single reTransform {} success, at index={};total={};",
+                    watchId, coreModule.getUniqueId(), waitingReTransformClass,
+                    index, total
+            );
+            if (null != progress) {
+                try {
+                    progress.progressOnSuccess(waitingReTransformClass, index + 1);
+                } catch (Throwable cause) {
+                    // 在进行进度汇报的过程中抛出异常,直接进行忽略,因为不影响形变的主体流程
+                    // 仅仅只是一个汇报作用而已
+                    logger.warn("watch={} in module={} on {} report progressOnSuccess occur exception at index={};total={};",
+                            watchId, coreModule.getUniqueId(), waitingReTransformClass,
+                            index, total,
+                            cause
+                    );
+                }
+            }
+        }
     }
 
     @Override
@@ -155,7 +196,7 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                      final EventListener listener,
                      final Progress progress,
                      final Event.Type... eventType) {
-        return watch(new ExtFilterMatcher(make(filter)), listener, progress, eventType);
+        return watch(new ExtFilterMatcher(make(filter)), listener, progress, null, eventType);
     }
 
     @Override
@@ -163,45 +204,43 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                      final EventListener listener,
                      final Progress progress,
                      final Event.Type... eventType) {
-        return watch(toOrGroupMatcher(condition.getOrFilterArray()), listener, progress, eventType);
+        return watch(condition, listener, progress, null, eventType);
+    }
+
+    @Override
+    public int watch(final EventWatchCondition condition,
+                     final EventListener listener,
+                     final Progress progress,
+                     final int[] argumentIndexes,
+                     final Event.Type... eventType) {
+        return watch(toOrGroupMatcher(condition.getOrFilterArray()), listener, progress, argumentIndexes, eventType);
     }
 
     // 这里是用matcher重制过后的watch
     private int watch(final Matcher matcher,
                       final EventListener listener,
                       final Progress progress,
+                      final int[] argumentIndexes,
                       final Event.Type... eventType) {
         final int watchId = watchIdSequencer.next();
         final String uniqueId = coreModule.getUniqueId();
-        final boolean isNativeSupported = inst.isNativeMethodPrefixSupported();
 
-        // 给对应的模块追加ClassFileTransformer
+        // 给对应的模块追加观察
         final SandboxClassFileTransformer sandClassFileTransformer =
                 new SandboxClassFileTransformer(
                         watchId,
                         uniqueId,
                         matcher,
                         listener,
-                        isEnableUnsafe,
                         eventType,
-                        namespace,
-                        isNativeSupported
+                        argumentIndexes
                 );
 
         // 注册到CoreModule中
         coreModule.getSandboxClassFileTransformers().add(sandClassFileTransformer);
 
-        //这里addTransformer后，接下来引起的类加载都会经过sandClassFileTransformer
-        inst.addTransformer(sandClassFileTransformer, true);
-
-        //设定Native支持
-        if(isNativeSupported) {
-            inst.setNativeMethodPrefix(sandClassFileTransformer, sandClassFileTransformer.getNativePrefix());
-            logger.debug("watch={} in module={} enable native method supported, prefix={}",
-                    watchId,
-                    uniqueId,
-                    sandClassFileTransformer.getNativePrefix());
-        }
+        //这里注册观察后，接下来引起的类加载都会经过sandClassFileTransformer
+        multiplexClassFileTransformer.add(sandClassFileTransformer);
 
         // 查找需要渲染的类集合
         final List<Class<?>> waitingReTransformClasses = classDataSource.findForReTransform(matcher);
@@ -255,8 +294,8 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                 EventListenerHandler.getSingleton()
                         .frozen(sandboxClassFileTransformer.getListenerId());
 
-                // 在JVM中移除掉命中的ClassFileTransformer
-                inst.removeTransformer(sandboxClassFileTransformer);
+                // 移除掉命中的观察
+                multiplexClassFileTransformer.remove(sandboxClassFileTransformer);
 
                 // 计数
                 cCnt += sandboxClassFileTransformer.getAffectStatistic().cCnt();
@@ -307,7 +346,7 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                          final WatchCallback watchCb,
                          final Progress dProgress,
                          final Event.Type... eventType) throws Throwable {
-        final int watchId = watch(new ExtFilterMatcher(make(filter)), listener, wProgress, eventType);
+        final int watchId = watch(new ExtFilterMatcher(make(filter)), listener, wProgress, null, eventType);
         try {
             watchCb.watchCompleted();
         } finally {
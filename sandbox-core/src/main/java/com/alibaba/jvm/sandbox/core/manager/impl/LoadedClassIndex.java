@@ -0,0 +1,342 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.security.ProtectionDomain;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toJavaClassName;
+
+/**
+ * 已加载类索引
+ * <p>
+ * 以类名以及父类、接口的继承关系对已加载的类建立索引，按类名前缀检索时只需要访问命中的类，
+ * 不必每次都遍历{@link Instrumentation#getAllLoadedClasses()}
+ * </p>
+ * <p>
+ * 1. 第一次检索时对所有已加载的类做一次全量索引
+ * 2. 之后新加载的类由常驻的{@link ClassFileTransformer}记录类名和定义它的ClassLoader，
+ * 下次检索前通过{@link ClassLoader#findLoadedClass(String)}逐个取回Class对象补充索引，不再遍历所有已加载的类。
+ * 类在定义之前就会经过ClassFileTransformer，所以这里只能先记录下来，拿到Class对象需要等到类定义完成之后
+ * 3. 由BootstrapClassLoader新加载的类、或者当前JVM不允许反射调用{@link ClassLoader#findLoadedClass(String)}时，
+ * 仍然需要遍历一次{@link Instrumentation#getAllLoadedClasses()}来补充索引
+ * 4. 索引只持有类和ClassLoader的弱引用，不会阻碍类的卸载
+ * 5. 记录的新加载类只在检索时才会被消化，长时间没有检索而又有大量类加载时，记录超过上限后直接丢弃，
+ * 并将索引标记为过期，下次检索时重新做一次全量索引
+ * </p>
+ */
+public class LoadedClassIndex implements ClassFileTransformer {
+
+    /**
+     * 默认最多记录的新加载类数量
+     */
+    public static final int DEFAULT_MAX_PENDING_CLASSES = 10000;
+
+    // 待补充索引的类最多保留的检索次数，超过之后认为这个类没有被成功定义
+    private static final int MAX_PENDING_ROUNDS = 3;
+
+    // ClassLoader#findLoadedClass(String)，当前JVM不允许反射调用时为null
+    private static final Method FIND_LOADED_CLASS_METHOD = getFindLoadedClassMethod();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final Instrumentation inst;
+    private final int maxPendingClasses;
+
+    // 新加载但尚未索引的类 : 剩余保留的检索次数
+    private final ConcurrentHashMap<PendingClass, Integer> pendingClasses = new ConcurrentHashMap<>();
+
+    // 记录的新加载类是否超过上限被丢弃过，下次检索时需要重新做全量索引
+    private volatile boolean isOverflowed = false;
+
+    // 以下索引只在锁中访问
+    // 类名 : 同名类集合(来自不同的ClassLoader)
+    private final TreeMap<String, List<WeakReference<Class<?>>>> classIndex = new TreeMap<>();
+
+    // 父类或接口类名 : 直接子类或实现类的类名集合
+    private final Map<String, Set<String>> subClassIndex = new HashMap<>();
+
+    // 是否已经完成全量索引
+    private boolean isSnapshotted = false;
+
+    public LoadedClassIndex(final Instrumentation inst) {
+        this(inst, DEFAULT_MAX_PENDING_CLASSES);
+    }
+
+    /**
+     * 构造已加载类索引
+     *
+     * @param inst              inst
+     * @param maxPendingClasses 最多记录的新加载类数量，超过之后丢弃所有记录，下次检索时重新做全量索引
+     */
+    public LoadedClassIndex(final Instrumentation inst,
+                            final int maxPendingClasses) {
+        this.inst = inst;
+        this.maxPendingClasses = maxPendingClasses;
+    }
+
+    /**
+     * 开始记录新加载的类
+     */
+    public void open() {
+        inst.addTransformer(this, false);
+    }
+
+    /**
+     * 停止记录并清空索引
+     */
+    public synchronized void close() {
+        inst.removeTransformer(this);
+        pendingClasses.clear();
+        classIndex.clear();
+        subClassIndex.clear();
+        isSnapshotted = false;
+        isOverflowed = false;
+    }
+
+    @Override
+    public byte[] transform(final ClassLoader loader,
+                            final String internalClassName,
+                            final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain,
+                            final byte[] classfileBuffer) {
+        // 重定义的类之前已经被加载过
+        if (null == classBeingRedefined
+                && null != internalClassName) {
+            // 超过上限时不再逐个记录，丢弃已有的记录，由下次检索重新做全量索引
+            if (pendingClasses.size() >= maxPendingClasses) {
+                isOverflowed = true;
+                pendingClasses.clear();
+            }
+            pendingClasses.put(new PendingClass(toJavaClassName(internalClassName), loader), MAX_PENDING_ROUNDS);
+        }
+        return null;
+    }
+
+    /**
+     * 根据类名前缀检索已加载的类
+     *
+     * @param javaClassNamePrefix 类名前缀
+     * @param isIncludeSubClasses 是否同时检索所有子类或实现类
+     * @return 匹配的类集合
+     */
+    public synchronized Set<Class<?>> find(final String javaClassNamePrefix,
+                                           final boolean isIncludeSubClasses) {
+        refresh();
+
+        final Set<String> javaClassNames = new LinkedHashSet<>(
+                classIndex.subMap(javaClassNamePrefix, javaClassNamePrefix + Character.MAX_VALUE).keySet()
+        );
+
+        // 沿继承关系找出所有子类或实现类
+        if (isIncludeSubClasses) {
+            final Deque<String> waitingJavaClassNames = new ArrayDeque<>(javaClassNames);
+            while (!waitingJavaClassNames.isEmpty()) {
+                final Set<String> subJavaClassNames = subClassIndex.get(waitingJavaClassNames.poll());
+                if (null == subJavaClassNames) {
+                    continue;
+                }
+                for (final String subJavaClassName : subJavaClassNames) {
+                    if (javaClassNames.add(subJavaClassName)) {
+                        waitingJavaClassNames.add(subJavaClassName);
+                    }
+                }
+            }
+        }
+
+        final Set<Class<?>> classes = new LinkedHashSet<>();
+        for (final String javaClassName : javaClassNames) {
+            final List<WeakReference<Class<?>>> references = classIndex.get(javaClassName);
+            if (null == references) {
+                continue;
+            }
+            final Iterator<WeakReference<Class<?>>> referenceIt = references.iterator();
+            while (referenceIt.hasNext()) {
+                final Class<?> clazz = referenceIt.next().get();
+                if (null == clazz) {
+                    referenceIt.remove();
+                } else {
+                    classes.add(clazz);
+                }
+            }
+            if (references.isEmpty()) {
+                classIndex.remove(javaClassName);
+            }
+        }
+        return classes;
+    }
+
+    /*
+     * 补充索引
+     * 第一次调用或者记录被丢弃过时索引所有已加载的类，之后只索引记录下来的新加载的类
+     */
+    private void refresh() {
+        // 记录被丢弃过，重新做全量索引；丢弃之后新记录的类仍需逐个取回，它们可能在全量索引之后才完成定义
+        if (isOverflowed) {
+            isOverflowed = false;
+            isSnapshotted = false;
+        }
+
+        if (isSnapshotted && pendingClasses.isEmpty()) {
+            return;
+        }
+
+        if (!isSnapshotted) {
+            for (final Class<?> clazz : inst.getAllLoadedClasses()) {
+                index(clazz);
+            }
+            isSnapshotted = true;
+        }
+
+        // 逐个取回新加载的类，无法取回的类名只能从已加载类中查找
+        final Set<String> unresolvedJavaClassNames = new HashSet<>();
+        for (final PendingClass pendingClass : pendingClasses.keySet()) {
+            if (pendingClass.isUnloaded()) {
+                pendingClasses.remove(pendingClass);
+                continue;
+            }
+            if (pendingClass.isBootstrap() || null == FIND_LOADED_CLASS_METHOD) {
+                unresolvedJavaClassNames.add(pendingClass.javaClassName);
+                retain(pendingClass);
+                continue;
+            }
+            final Class<?> clazz = pendingClass.findLoadedClass();
+            if (null != clazz) {
+                index(clazz);
+                pendingClasses.remove(pendingClass);
+            } else {
+                // 可能在本次检索之后才完成定义，需要再保留几轮
+                retain(pendingClass);
+            }
+        }
+
+        if (!unresolvedJavaClassNames.isEmpty()) {
+            for (final Class<?> clazz : inst.getAllLoadedClasses()) {
+                if (unresolvedJavaClassNames.contains(clazz.getName())) {
+                    index(clazz);
+                    // 已经找到的BootstrapClassLoader的类不必再保留
+                    if (null == clazz.getClassLoader()) {
+                        pendingClasses.remove(new PendingClass(clazz.getName(), null));
+                    }
+                }
+            }
+        }
+    }
+
+    // 保留的检索次数减一，用完之后不再保留
+    private void retain(final PendingClass pendingClass) {
+        pendingClasses.computeIfPresent(
+                pendingClass,
+                (key, rounds) -> rounds > 1 ? rounds - 1 : null
+        );
+    }
+
+    private void index(final Class<?> clazz) {
+        final String javaClassName = clazz.getName();
+        final List<WeakReference<Class<?>>> references = classIndex.computeIfAbsent(javaClassName, name -> new ArrayList<>(1));
+        for (final WeakReference<Class<?>> reference : references) {
+            if (reference.get() == clazz) {
+                return;
+            }
+        }
+        references.add(new WeakReference<>(clazz));
+
+        try {
+            final Class<?> superClass = clazz.getSuperclass();
+            if (null != superClass) {
+                indexSubClass(superClass.getName(), javaClassName);
+            }
+            for (final Class<?> interfaceClass : clazz.getInterfaces()) {
+                indexSubClass(interfaceClass.getName(), javaClassName);
+            }
+        } catch (Throwable cause) {
+            // 与已加载类的匹配一样，获取类的继承关系出错时只能忽略
+            logger.debug("index sub class relation failed, class:{}", javaClassName, cause);
+        }
+    }
+
+    private void indexSubClass(final String javaClassName,
+                               final String subJavaClassName) {
+        subClassIndex.computeIfAbsent(javaClassName, name -> new HashSet<>()).add(subJavaClassName);
+    }
+
+    private static Method getFindLoadedClassMethod() {
+        try {
+            final Method method = ClassLoader.class.getDeclaredMethod("findLoadedClass", String.class);
+            method.setAccessible(true);
+            return method;
+        } catch (Throwable cause) {
+            LoggerFactory.getLogger(LoadedClassIndex.class)
+                    .info("ClassLoader#findLoadedClass is not accessible, new loaded classes will be indexed by scanning all loaded classes.", cause);
+            return null;
+        }
+    }
+
+    /**
+     * 新加载但尚未索引的类，以类名和定义它的ClassLoader作为KEY
+     */
+    private static class PendingClass {
+
+        private final String javaClassName;
+        private final WeakReference<ClassLoader> loaderRef;
+        private final boolean isBootstrap;
+        private final int hashCode;
+
+        PendingClass(final String javaClassName,
+                     final ClassLoader loader) {
+            this.javaClassName = javaClassName;
+            this.loaderRef = new WeakReference<>(loader);
+            this.isBootstrap = null == loader;
+            this.hashCode = 31 * javaClassName.hashCode() + System.identityHashCode(loader);
+        }
+
+        boolean isBootstrap() {
+            return isBootstrap;
+        }
+
+        // 定义它的ClassLoader已经被回收
+        boolean isUnloaded() {
+            return !isBootstrap && null == loaderRef.get();
+        }
+
+        // 类尚未定义完成或者取回出错时返回null
+        Class<?> findLoadedClass() {
+            final ClassLoader loader = loaderRef.get();
+            if (null == loader) {
+                return null;
+            }
+            try {
+                return (Class<?>) FIND_LOADED_CLASS_METHOD.invoke(loader, javaClassName);
+            } catch (Throwable cause) {
+                return null;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PendingClass)) {
+                return false;
+            }
+            final PendingClass that = (PendingClass) obj;
+            return hashCode == that.hashCode
+                    && isBootstrap == that.isBootstrap
+                    && javaClassName.equals(that.javaClassName)
+                    && loaderRef.get() == that.loaderRef.get();
+        }
+
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.GroupMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.ref.WeakReference;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已加载类匹配结果备忘
+ * <p>
+ * 多个模块观察同样的类和行为、或者同一个模块刷新后重新观察时，匹配条件完全相同，
+ * 在这期间没有新的类加载，匹配已加载类的结果就不会变化。这里以匹配器的规范KEY记下最近的匹配结果，
+ * 重复的观察直接复用，不必重新遍历已加载的类
+ * </p>
+ * <p>
+ * 1. 只有能给出规范KEY的匹配器才会备忘，见{@link #toKey(Matcher)}
+ * 2. 常驻的{@link ClassFileTransformer}在每次有新类加载时递增代数，备忘只在记录时的代数内有效
+ * 3. 类在定义之前就会经过ClassFileTransformer，最近刚有类加载时匹配结果可能遗漏尚未完成定义的类，
+ * 所以距离最近一次类加载不足{@link #DEFAULT_SETTLE_MILLIS}毫秒时开始的匹配不做备忘
+ * 4. 备忘只持有类的弱引用，不会阻碍类的卸载，已卸载的类直接从结果中去掉
+ * </p>
+ */
+public class MatchingResultMemo implements ClassFileTransformer {
+
+    /**
+     * 默认类加载平息时间(毫秒)
+     */
+    public static final long DEFAULT_SETTLE_MILLIS = 1000;
+
+    // 代数不可用
+    private static final long UNAVAILABLE_GENERATION = -1;
+
+    private final Instrumentation inst;
+    private final long settleNanos;
+    private final Cache<String, Memo> cache;
+
+    // 类加载代数，每次有新类加载时递增
+    private final AtomicLong generation = new AtomicLong();
+
+    // 最近一次类加载的时间
+    private volatile long lastLoadNanos;
+
+    public MatchingResultMemo(final Instrumentation inst,
+                              final long maximumSize) {
+        this(inst, maximumSize, DEFAULT_SETTLE_MILLIS);
+    }
+
+    /**
+     * 构造已加载类匹配结果备忘
+     *
+     * @param inst         inst
+     * @param maximumSize  最多备忘的匹配结果数量
+     * @param settleMillis 类加载平息时间(毫秒)，距离最近一次类加载不足这个时间时开始的匹配不做备忘
+     */
+    public MatchingResultMemo(final Instrumentation inst,
+                              final long maximumSize,
+                              final long settleMillis) {
+        this.inst = inst;
+        this.settleNanos = TimeUnit.MILLISECONDS.toNanos(settleMillis);
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        this.lastLoadNanos = System.nanoTime() - settleNanos;
+    }
+
+    /**
+     * 开始记录类加载
+     */
+    public void open() {
+        inst.addTransformer(this, false);
+    }
+
+    /**
+     * 停止记录并清空备忘
+     */
+    public void close() {
+        inst.removeTransformer(this);
+        cache.invalidateAll();
+    }
+
+    @Override
+    public byte[] transform(final ClassLoader loader,
+                            final String internalClassName,
+                            final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain,
+                            final byte[] classfileBuffer) {
+        // 重定义的类之前已经被加载过，不影响匹配结果
+        if (null == classBeingRedefined) {
+            lastLoadNanos = System.nanoTime();
+            generation.incrementAndGet();
+        }
+        return null;
+    }
+
+    /**
+     * 生成匹配器的规范KEY
+     *
+     * @param matcher 匹配器
+     * @return 规范KEY，匹配器中任意一个过滤器无法给出规范KEY时返回null
+     */
+    public static String toKey(final Matcher matcher) {
+        if (matcher instanceof ExtFilterMatcher) {
+            return ((ExtFilterMatcher) matcher).getCanonicalKey();
+        }
+        if (matcher instanceof GroupMatcher.Or) {
+            final Matcher[] matcherArray = ((GroupMatcher.Or) matcher).getMatcherArray();
+            if (null == matcherArray) {
+                return null;
+            }
+            final StringBuilder key = new StringBuilder("or:").append(matcherArray.length);
+            for (final Matcher subMatcher : matcherArray) {
+                final String subKey = toKey(subMatcher);
+                if (null == subKey) {
+                    return null;
+                }
+                key.append(':').append(subKey.length()).append(':').append(subKey);
+            }
+            return key.toString();
+        }
+        return null;
+    }
+
+    /**
+     * 在开始匹配之前获取当前的类加载代数
+     *
+     * @return 类加载代数，最近刚有类加载时不可备忘，返回-1
+     */
+    public long getGeneration() {
+        final long current = generation.get();
+        return System.nanoTime() - lastLoadNanos < settleNanos
+                ? UNAVAILABLE_GENERATION
+                : current;
+    }
+
+    /**
+     * 备忘匹配结果
+     *
+     * @param key              规范KEY
+     * @param matchGeneration  开始匹配之前获取的类加载代数
+     * @param classes          匹配结果
+     */
+    public void put(final String key,
+                    final long matchGeneration,
+                    final List<Class<?>> classes) {
+        if (null == key
+                || UNAVAILABLE_GENERATION == matchGeneration
+                || matchGeneration != generation.get()) {
+            return;
+        }
+        final List<WeakReference<Class<?>>> classRefs = new ArrayList<>(classes.size());
+        for (final Class<?> clazz : classes) {
+            classRefs.add(new WeakReference<>(clazz));
+        }
+        cache.put(key, new Memo(matchGeneration, classRefs));
+    }
+
+    /**
+     * 获取备忘的匹配结果
+     *
+     * @param key 规范KEY
+     * @return 匹配结果，没有备忘或者备忘之后有新的类加载时返回null
+     */
+    public List<Class<?>> get(final String key) {
+        if (null == key) {
+            return null;
+        }
+        final Memo memo = cache.getIfPresent(key);
+        if (null == memo) {
+            return null;
+        }
+        if (memo.generation != generation.get()) {
+            cache.invalidate(key);
+            return null;
+        }
+        final List<Class<?>> classes = new ArrayList<>(memo.classRefs.size());
+        for (final WeakReference<Class<?>> classRef : memo.classRefs) {
+            final Class<?> clazz = classRef.get();
+            if (null != clazz) {
+                classes.add(clazz);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * 获取备忘的匹配结果数量
+     *
+     * @return 匹配结果数量
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * 匹配结果
+     */
+    private static class Memo {
+
+        private final long generation;
+        private final List<WeakReference<Class<?>>> classRefs;
+
+        Memo(final long generation,
+             final List<WeakReference<Class<?>>> classRefs) {
+            this.generation = generation;
+            this.classRefs = classRefs;
+        }
+
+    }
+
+}
@@ -0,0 +1,309 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.core.enhance.Enhancer;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.WovenByteCodeCache;
+import com.alibaba.jvm.sandbox.core.util.SandboxClassUtils;
+import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
+import com.alibaba.jvm.sandbox.core.util.matcher.UnsupportedMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.google.common.hash.HashCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.alibaba.jvm.sandbox.core.manager.impl.SandboxClassFileTransformer.SANDBOX_SPECIAL_PREFIX;
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toJavaClassName;
+import static com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory.createClassStructure;
+
+/**
+ * 多路复用类形变器
+ * <p>
+ * 一个命名空间只向JVM注册一个ClassFileTransformer，由它调度所有观察：
+ * 每个类只解析一次类结构、只做一次不支持的行为判断，再用各个观察的匹配器分别匹配，
+ * 最后在一次ASM遍历中织入所有匹配上的监听器。类加载的开销不再随观察的数量线性增长
+ * </p>
+ * <p>
+ * 没有任何观察时会从JVM中注销，不影响类加载
+ * </p>
+ */
+public class MultiplexClassFileTransformer implements ClassFileTransformer {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Instrumentation inst;
+    private final boolean isEnableUnsafe;
+    private final String namespace;
+    private final boolean isNativeSupported;
+    private final String nativePrefix;
+
+    // 已注册的观察，按注册的先后顺序织入
+    private final List<SandboxClassFileTransformer> sandboxClassFileTransformers = new CopyOnWriteArrayList<>();
+
+    MultiplexClassFileTransformer(final Instrumentation inst,
+                                  final boolean isEnableUnsafe,
+                                  final String namespace) {
+        this.inst = inst;
+        this.isEnableUnsafe = isEnableUnsafe;
+        this.namespace = namespace;
+        this.isNativeSupported = inst.isNativeMethodPrefixSupported();
+        this.nativePrefix = String.format("%s$%s$", SANDBOX_SPECIAL_PREFIX, namespace);
+    }
+
+    /**
+     * 注册观察
+     * <p>第一个观察注册时向JVM注册本形变器</p>
+     *
+     * @param sandboxClassFileTransformer 观察
+     */
+    synchronized void add(final SandboxClassFileTransformer sandboxClassFileTransformer) {
+        final boolean isFirst = sandboxClassFileTransformers.isEmpty();
+        sandboxClassFileTransformers.add(sandboxClassFileTransformer);
+        if (!isFirst) {
+            return;
+        }
+
+        //这里addTransformer后，接下来引起的类加载都会经过本形变器
+        inst.addTransformer(this, true);
+
+        //设定Native支持
+        if (isNativeSupported) {
+            inst.setNativeMethodPrefix(this, nativePrefix);
+            logger.debug("namespace={} enable native method supported, prefix={}", namespace, nativePrefix);
+        }
+    }
+
+    /**
+     * 注销观察
+     * <p>最后一个观察注销时从JVM中注销本形变器</p>
+     *
+     * @param sandboxClassFileTransformer 观察
+     */
+    synchronized void remove(final SandboxClassFileTransformer sandboxClassFileTransformer) {
+        if (sandboxClassFileTransformers.remove(sandboxClassFileTransformer)
+                && sandboxClassFileTransformers.isEmpty()) {
+            inst.removeTransformer(this);
+        }
+    }
+
+    // 获取当前类结构
+    private ClassStructure getClassStructure(final ClassLoader loader,
+                                             final Class<?> classBeingRedefined,
+                                             final byte[] srcByteCodeArray) {
+        return null == classBeingRedefined
+                ? createClassStructure(srcByteCodeArray, loader)
+                : createClassStructure(classBeingRedefined);
+    }
+
+    @Override
+    public byte[] transform(final ClassLoader loader,
+                            final String internalClassName,
+                            final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain,
+                            final byte[] srcByteCodeArray) {
+
+        SandboxProtector.instance.enterProtecting();
+        try {
+
+            // 这里过滤掉Sandbox所需要的类|来自SandboxClassLoader所加载的类|来自ModuleJarClassLoader加载的类
+            // 防止ClassCircularityError的发生
+            if (SandboxClassUtils.isComeFromSandboxFamily(internalClassName, loader)) {
+                return null;
+            }
+
+            // 如果未开启unsafe开关，是不允许增强来自BootStrapClassLoader的类
+            if (!isEnableUnsafe
+                    && null == loader) {
+                logger.debug("transform ignore {}, class from bootstrap but unsafe.enable=false.", internalClassName);
+                return null;
+            }
+
+            // 先只凭类名排除一定不会被匹配的观察，所有观察都被排除时就不必解析字节码了
+            final List<SandboxClassFileTransformer> candidateTransformers = findCandidateTransformers(internalClassName);
+            if (candidateTransformers.isEmpty()) {
+                return null;
+            }
+
+            // 类结构和不支持的行为对所有观察都一样，只需要计算一次
+            final ClassStructure classStructure = getClassStructure(loader, classBeingRedefined, srcByteCodeArray);
+            final Set<String> supportedBehaviorSignCodes = new UnsupportedMatcher(loader, isEnableUnsafe, isNativeSupported)
+                    .matching(classStructure)
+                    .getBehaviorSignCodes();
+            if (supportedBehaviorSignCodes.isEmpty()) {
+                logger.debug("transform ignore {}, no behaviors supported in loader={}", internalClassName, loader);
+                return null;
+            }
+
+            // 逐个观察进行匹配，如果一个行为都没匹配上也不用继续了
+            final List<SandboxClassFileTransformer> matchedTransformers = new ArrayList<>();
+            final List<Enhancer.Weaving> weavings = new ArrayList<>();
+            for (final SandboxClassFileTransformer sandboxClassFileTransformer : candidateTransformers) {
+                final Set<String> behaviorSignCodes = matching(
+                        sandboxClassFileTransformer,
+                        classStructure,
+                        supportedBehaviorSignCodes,
+                        loader,
+                        internalClassName
+                );
+                if (behaviorSignCodes.isEmpty()) {
+                    continue;
+                }
+                matchedTransformers.add(sandboxClassFileTransformer);
+                weavings.add(new Enhancer.Weaving(
+                        behaviorSignCodes,
+                        sandboxClassFileTransformer.getListenerId(),
+                        sandboxClassFileTransformer.getEventTypeArray(),
+                        sandboxClassFileTransformer.getArgumentIndexes()
+                ));
+            }
+            if (matchedTransformers.isEmpty()) {
+                logger.debug("transform ignore {}, no behaviors matched in loader={}", internalClassName, loader);
+                return null;
+            }
+
+            // 找到匹配的类和方法，开始增强
+            return _transform(
+                    matchedTransformers,
+                    weavings,
+                    loader,
+                    internalClassName,
+                    srcByteCodeArray
+            );
+
+        } catch (Throwable cause) {
+            logger.warn("sandbox transform {} in loader={}; failed, namespace={}, will ignore this transform.",
+                    internalClassName,
+                    loader,
+                    namespace,
+                    cause
+            );
+            return null;
+        } finally {
+            SandboxProtector.instance.exitProtecting();
+        }
+    }
+
+    // 找出有可能匹配上这个类的观察
+    private List<SandboxClassFileTransformer> findCandidateTransformers(final String internalClassName) {
+        final String javaClassName = null == internalClassName
+                ? null
+                : toJavaClassName(internalClassName);
+        final List<SandboxClassFileTransformer> candidateTransformers = new ArrayList<>();
+        for (final SandboxClassFileTransformer sandboxClassFileTransformer : sandboxClassFileTransformers) {
+            if (sandboxClassFileTransformer.isMayMatching(javaClassName)) {
+                candidateTransformers.add(sandboxClassFileTransformer);
+            }
+        }
+        return candidateTransformers;
+    }
+
+    /*
+     * 匹配单个观察，返回匹配上的行为签名
+     * 单个观察匹配出错不影响其他观察
+     */
+    private Set<String> matching(final SandboxClassFileTransformer sandboxClassFileTransformer,
+                                 final ClassStructure classStructure,
+                                 final Set<String> supportedBehaviorSignCodes,
+                                 final ClassLoader loader,
+                                 final String internalClassName) {
+        try {
+            final MatchingResult result = sandboxClassFileTransformer.getMatcher().matching(classStructure);
+            if (!result.isMatched()) {
+                return Collections.emptySet();
+            }
+            final Set<String> behaviorSignCodes = result.getBehaviorSignCodes();
+            behaviorSignCodes.retainAll(supportedBehaviorSignCodes);
+            return behaviorSignCodes;
+        } catch (Throwable cause) {
+            logger.warn("sandbox matching {} in loader={}; failed, module={} at watch={}, will ignore this transform.",
+                    internalClassName,
+                    loader,
+                    sandboxClassFileTransformer.getUniqueId(),
+                    sandboxClassFileTransformer.getWatchId(),
+                    cause
+            );
+            return Collections.emptySet();
+        }
+    }
+
+    private byte[] _transform(final List<SandboxClassFileTransformer> matchedTransformers,
+                              final List<Enhancer.Weaving> weavings,
+                              final ClassLoader loader,
+                              final String internalClassName,
+                              final byte[] srcByteCodeArray) {
+
+        // 输入完全相同时直接使用上次增强的字节码
+        final WovenByteCodeCache wovenByteCodeCache = WovenByteCodeCache.getInstance();
+        final HashCode wovenKey = wovenByteCodeCache.isEnabled()
+                ? wovenByteCodeCache.toKey(loader, internalClassName, namespace, srcByteCodeArray, weavings)
+                : null;
+        if (null != wovenKey) {
+            final byte[] cachedByteCodeArray = wovenByteCodeCache.get(wovenKey);
+            if (null != cachedByteCodeArray) {
+                logger.debug("transform {} hit woven bytecode cache in loader={}", internalClassName, loader);
+                for (int index = 0; index < matchedTransformers.size(); index++) {
+                    statisticAffect(matchedTransformers.get(index), weavings.get(index), loader, internalClassName);
+                }
+                return cachedByteCodeArray;
+            }
+        }
+
+        final EventEnhancer enhancer = new EventEnhancer(nativePrefix);
+
+        // 所有观察在一次ASM遍历中完成织入
+        try {
+            final byte[] toByteCodeArray = enhancer.toByteCodeArray(loader, srcByteCodeArray, namespace, weavings);
+            if (srcByteCodeArray == toByteCodeArray) {
+                logger.debug("transform ignore {}, nothing changed in loader={}", internalClassName, loader);
+                return null;
+            }
+            if (null != wovenKey) {
+                wovenByteCodeCache.put(wovenKey, toByteCodeArray);
+            }
+            for (int index = 0; index < matchedTransformers.size(); index++) {
+                statisticAffect(matchedTransformers.get(index), weavings.get(index), loader, internalClassName);
+            }
+            return toByteCodeArray;
+        } catch (Throwable cause) {
+            logger.warn("transform {} failed in one pass, will transform by watches one by one, in loader={}",
+                    internalClassName, loader, cause);
+        }
+
+        // 一次织入失败时逐个观察织入，跳过织入失败的观察，保证不会因为一个观察失败而影响其他观察
+        byte[] toByteCodeArray = srcByteCodeArray;
+        for (int index = 0; index < matchedTransformers.size(); index++) {
+            final SandboxClassFileTransformer sandboxClassFileTransformer = matchedTransformers.get(index);
+            final Enhancer.Weaving weaving = weavings.get(index);
+            try {
+                toByteCodeArray = enhancer.toByteCodeArray(loader, toByteCodeArray, namespace, Collections.singletonList(weaving));
+                statisticAffect(sandboxClassFileTransformer, weaving, loader, internalClassName);
+            } catch (Throwable cause) {
+                logger.warn("transform {} failed, by module={} in loader={}",
+                        internalClassName, sandboxClassFileTransformer.getUniqueId(), loader, cause);
+            }
+        }
+        return srcByteCodeArray == toByteCodeArray
+                ? null
+                : toByteCodeArray;
+    }
+
+    // statistic affect
+    private void statisticAffect(final SandboxClassFileTransformer sandboxClassFileTransformer,
+                                 final Enhancer.Weaving weaving,
+                                 final ClassLoader loader,
+                                 final String internalClassName) {
+        sandboxClassFileTransformer.getAffectStatistic().statisticAffect(loader, internalClassName, weaving.signCodes);
+        logger.info("transform {} finished, by module={} in loader={}",
+                internalClassName, sandboxClassFileTransformer.getUniqueId(), loader);
+    }
+
+}
@@ -3,31 +3,21 @@ package com.alibaba.jvm.sandbox.core.manager.impl;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.event.Event.Type;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
-import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
-import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
-import com.alibaba.jvm.sandbox.core.util.SandboxClassUtils;
-import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import com.alibaba.jvm.sandbox.core.util.ListenerIDs;
+import com.alibaba.jvm.sandbox.core.util.matcher.ClassNamePrefilter;
 import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
-import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
-import com.alibaba.jvm.sandbox.core.util.matcher.UnsupportedMatcher;
-import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.lang.instrument.ClassFileTransformer;
-import java.security.ProtectionDomain;
-import java.util.Set;
-
-import static com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory.createClassStructure;
 
 /**
  * 沙箱类形变器
+ * <p>
+ * 对应一次观察，记录观察的匹配器、监听器以及增强的影响统计。
+ * 同一个命名空间下所有观察的类形变都由{@link MultiplexClassFileTransformer}统一完成，
+ * 不再各自向JVM注册ClassFileTransformer
+ * </p>
  *
  * @author luanjia@taobao.com
  */
-public class SandboxClassFileTransformer implements ClassFileTransformer {
-
-    private final Logger logger = LoggerFactory.getLogger(getClass());
+public class SandboxClassFileTransformer {
 
     /**
      * SANDBOX限定前缀
@@ -38,134 +28,29 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
     private final String uniqueId;
     private final Matcher matcher;
     private final EventListener eventListener;
-    private final boolean isEnableUnsafe;
     private final Event.Type[] eventTypeArray;
+    private final int[] argumentIndexes;
 
-    private final String namespace;
     private final int listenerId;
+    private final ClassNamePrefilter classNamePrefilter;
     private final AffectStatistic affectStatistic = new AffectStatistic();
-    private final boolean isNativeSupported;
-    private final String nativePrefix;
 
     SandboxClassFileTransformer(final int watchId,
                                 final String uniqueId,
                                 final Matcher matcher,
                                 final EventListener eventListener,
-                                final boolean isEnableUnsafe,
                                 final Type[] eventTypeArray,
-                                final String namespace,
-                                final boolean isNativeSupported) {
+                                final int[] argumentIndexes) {
         this.watchId = watchId;
         this.uniqueId = uniqueId;
         this.matcher = matcher;
         this.eventListener = eventListener;
-        this.isEnableUnsafe = isEnableUnsafe;
         this.eventTypeArray = eventTypeArray;
-        this.namespace = namespace;
-        this.listenerId = ObjectIDs.instance.identity(eventListener);
-        this.isNativeSupported = isNativeSupported;
-        this.nativePrefix = String.format("%s$%s$%s", SANDBOX_SPECIAL_PREFIX, namespace, watchId);
-    }
-
-    // 获取当前类结构
-    private ClassStructure getClassStructure(final ClassLoader loader,
-                                             final Class<?> classBeingRedefined,
-                                             final byte[] srcByteCodeArray) {
-        return null == classBeingRedefined
-                ? createClassStructure(srcByteCodeArray, loader)
-                : createClassStructure(classBeingRedefined);
-    }
-
-    @Override
-    public byte[] transform(final ClassLoader loader,
-                            final String internalClassName,
-                            final Class<?> classBeingRedefined,
-                            final ProtectionDomain protectionDomain,
-                            final byte[] srcByteCodeArray) {
-
-        SandboxProtector.instance.enterProtecting();
-        try {
-
-            // 这里过滤掉Sandbox所需要的类|来自SandboxClassLoader所加载的类|来自ModuleJarClassLoader加载的类
-            // 防止ClassCircularityError的发生
-            if (SandboxClassUtils.isComeFromSandboxFamily(internalClassName, loader)) {
-                return null;
-            }
-
-            // 如果未开启unsafe开关，是不允许增强来自BootStrapClassLoader的类
-            if (!isEnableUnsafe
-                    && null == loader) {
-                logger.debug("transform ignore {}, class from bootstrap but unsafe.enable=false.", internalClassName);
-                return null;
-            }
-
-            // 匹配类是否符合要求，如果一个行为都没匹配上也不用继续了
-            final MatchingResult result = new UnsupportedMatcher(loader, isEnableUnsafe, isNativeSupported)
-                    .and(matcher)
-                    .matching(getClassStructure(loader, classBeingRedefined, srcByteCodeArray));
-            if (!result.isMatched()) {
-                logger.debug("transform ignore {}, no behaviors matched in loader={}", internalClassName, loader);
-                return null;
-            }
-
-            // 找到匹配的类和方法，开始增强
-            return _transform(
-                    result,
-                    loader,
-                    internalClassName,
-                    srcByteCodeArray
-            );
-
-
-        } catch (Throwable cause) {
-            logger.warn("sandbox transform {} in loader={}; failed, module={} at watch={}, will ignore this transform.",
-                    internalClassName,
-                    loader,
-                    uniqueId,
-                    watchId,
-                    cause
-            );
-            return null;
-        } finally {
-            SandboxProtector.instance.exitProtecting();
-        }
+        this.argumentIndexes = argumentIndexes;
+        this.listenerId = ListenerIDs.instance.identity(eventListener);
+        this.classNamePrefilter = ClassNamePrefilter.compile(matcher);
     }
 
-    private byte[] _transform(final MatchingResult result,
-                              final ClassLoader loader,
-                              final String internalClassName,
-                              final byte[] srcByteCodeArray) {
-
-        // 匹配到的方法签名
-        final Set<String> behaviorSignCodes = result.getBehaviorSignCodes();
-
-        // 开始进行类匹配
-        try {
-            final byte[] toByteCodeArray = new EventEnhancer(nativePrefix).toByteCodeArray(
-                    loader,
-                    srcByteCodeArray,
-                    behaviorSignCodes,
-                    namespace,
-                    listenerId,
-                    eventTypeArray
-            );
-            if (srcByteCodeArray == toByteCodeArray) {
-                logger.debug("transform ignore {}, nothing changed in loader={}", internalClassName, loader);
-                return null;
-            }
-
-            // statistic affect
-            affectStatistic.statisticAffect(loader, internalClassName, behaviorSignCodes);
-
-            logger.info("transform {} finished, by module={} in loader={}", internalClassName, uniqueId, loader);
-            return toByteCodeArray;
-        } catch (Throwable cause) {
-            logger.warn("transform {} failed, by module={} in loader={}", internalClassName, uniqueId, loader, cause);
-            return null;
-        }
-    }
-
-
     /**
      * 获取观察ID
      *
@@ -175,6 +60,15 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
         return watchId;
     }
 
+    /**
+     * 获取观察所属模块ID
+     *
+     * @return 模块ID
+     */
+    String getUniqueId() {
+        return uniqueId;
+    }
+
     /**
      * 获取事件监听器
      *
@@ -202,6 +96,18 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
         return matcher;
     }
 
+    /**
+     * 只凭类名判断类是否有可能被本次观察匹配
+     *
+     * @param javaClassName 类名，为null时无法判断
+     * @return TRUE:有可能被匹配;FALSE:一定不会被匹配
+     */
+    boolean isMayMatching(final String javaClassName) {
+        return null == classNamePrefilter
+                || null == javaClassName
+                || classNamePrefilter.isMayMatching(javaClassName);
+    }
+
     /**
      * 获取本次监听事件类型数组
      *
@@ -212,21 +118,21 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
     }
 
     /**
-     * 获取本次增强的影响统计
+     * 获取BEFORE事件需要采集的参数下标
      *
-     * @return 本次增强的影响统计
+     * @return 参数下标，null表示采集全部参数
      */
-    public AffectStatistic getAffectStatistic() {
-        return affectStatistic;
+    int[] getArgumentIndexes() {
+        return argumentIndexes;
     }
 
     /**
-     * 获取本次增强的native方法前缀，
-     * 根据JVM规范，每个ClassFileTransformer必须拥有自己的native方法前缀
-     * @return native方法前缀
+     * 获取本次增强的影响统计
+     *
+     * @return 本次增强的影响统计
      */
-    public String getNativePrefix() {
-        return nativePrefix;
+    public AffectStatistic getAffectStatistic() {
+        return affectStatistic;
     }
 
 }
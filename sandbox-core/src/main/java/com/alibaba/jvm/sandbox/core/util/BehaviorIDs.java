@@ -0,0 +1,224 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 给被增强的行为分配沙箱内唯一的行为ID <br>
+ * <p>
+ * 1. 行为ID在增强类的时候分配，并被织入到增强后的字节码中，BEFORE事件只需要传递行为ID，
+ * 类名、方法名、方法签名以及ClassLoader都从这里按需查出
+ * 2. 同一个ClassLoader中的同一个行为只会分配一次ID，多次增强、多个监听器共享同一个ID
+ * 3. 行为ID为(0,{@link Integer#MAX_VALUE}]之间紧凑的整数，可直接作为数组下标使用
+ * 4. ClassLoader被GC回收后，它的类连同织入的行为ID一起被卸载，这些行为ID会在下一次分配时被回收复用
+ * </p>
+ * <p>
+ * {@link #getBehavior(int)}在每个BEFORE事件中都会被调用，读取全程无锁；分配ID只发生在增强类的时候，由写锁串行化
+ * </p>
+ */
+public class BehaviorIDs {
+
+    /**
+     * 空行为ID
+     */
+    public static final int NULL_ID = 0;
+
+    // [behaviorID : behavior]映射表的初始容量
+    private static final int INITIAL_CAPACITY = 256;
+
+    // 写锁
+    private final Object writeLock = new Object();
+
+    // 全局<行为:ID>映射表
+    private final ConcurrentHashMap<Behavior, Integer> behaviorIDMapping
+            = new ConcurrentHashMap<>();
+
+    // 全局[ID:行为]映射表，以行为ID作为数组下标，写时复制
+    private volatile Behavior[] identityBehaviorMapping = new Behavior[INITIAL_CAPACITY];
+
+    // 下一个待分配的行为ID，只在写锁中访问
+    private int nextBehaviorID = NULL_ID + 1;
+
+    // [ClassLoader对象ID : 该ClassLoader中已分配的行为ID]，只在写锁中访问
+    private final Map<Integer, List<Integer>> behaviorIDsOfClassLoader = new HashMap<>();
+
+    // 已回收待复用的行为ID，只在写锁中访问
+    private final ArrayDeque<Integer> freeBehaviorIDs = new ArrayDeque<>();
+
+    private BehaviorIDs() {
+
+    }
+
+    /**
+     * 映射行为为行为ID
+     *
+     * @param classLoaderObjectID 行为所在ClassLoader的对象ID，参考{@link ObjectIDs}
+     * @param javaClassName       类名
+     * @param javaMethodName      方法名
+     * @param javaMethodDesc      方法签名
+     * @return 行为ID
+     */
+    public int identity(final int classLoaderObjectID,
+                        final String javaClassName,
+                        final String javaMethodName,
+                        final String javaMethodDesc) {
+        final Behavior behavior = new Behavior(classLoaderObjectID, javaClassName, javaMethodName, javaMethodDesc);
+        final Integer behaviorID = behaviorIDMapping.get(behavior);
+        if (null != behaviorID) {
+            return behaviorID;
+        }
+
+        synchronized (writeLock) {
+            final Integer existedBehaviorID = behaviorIDMapping.get(behavior);
+            if (null != existedBehaviorID) {
+                return existedBehaviorID;
+            }
+
+            expungeCollectedClassLoaders();
+            final int newBehaviorID = freeBehaviorIDs.isEmpty()
+                    ? nextBehaviorID++
+                    : freeBehaviorIDs.pop();
+
+            // 映射 [behaviorID : behavior]
+            // 必须先于[behavior : behaviorID]完成，保证拿到ID的线程一定能映射回行为
+            final Behavior[] mappingArray = identityBehaviorMapping;
+            if (newBehaviorID >= mappingArray.length) {
+                final Behavior[] newMappingArray = new Behavior[mappingArray.length * 2];
+                System.arraycopy(mappingArray, 0, newMappingArray, 0, mappingArray.length);
+                newMappingArray[newBehaviorID] = behavior;
+                identityBehaviorMapping = newMappingArray;
+            } else {
+                mappingArray[newBehaviorID] = behavior;
+                // 重新发布数组，保证数组元素的写入对读线程可见
+                identityBehaviorMapping = mappingArray;
+            }
+
+            // 映射 [behavior : behaviorID]
+            behaviorIDMapping.put(behavior, newBehaviorID);
+            behaviorIDsOfClassLoader
+                    .computeIfAbsent(classLoaderObjectID, id -> new ArrayList<>())
+                    .add(newBehaviorID);
+            return newBehaviorID;
+        }
+    }
+
+    /**
+     * 回收已被GC回收的ClassLoader中的行为ID
+     * <p>
+     * ClassLoader的对象ID不再能映射回对象时说明ClassLoader已被回收，对象ID不会被其他ClassLoader复用，
+     * 所以这里只需要比较对象ID即可。BootstrapClassLoader的行为永远不会被回收
+     * </p>
+     * <p>必须在写锁中调用</p>
+     */
+    private void expungeCollectedClassLoaders() {
+        final Behavior[] mappingArray = identityBehaviorMapping;
+        boolean isExpunged = false;
+        final Iterator<Map.Entry<Integer, List<Integer>>> it = behaviorIDsOfClassLoader.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<Integer, List<Integer>> entry = it.next();
+            final int classLoaderObjectID = entry.getKey();
+            if (ObjectIDs.NULL_ID == classLoaderObjectID
+                    || null != ObjectIDs.instance.getObject(classLoaderObjectID)) {
+                continue;
+            }
+            for (final int behaviorID : entry.getValue()) {
+                behaviorIDMapping.remove(mappingArray[behaviorID]);
+                mappingArray[behaviorID] = null;
+                freeBehaviorIDs.push(behaviorID);
+            }
+            it.remove();
+            isExpunged = true;
+        }
+        if (isExpunged) {
+            // 重新发布数组，保证数组元素的写入对读线程可见
+            identityBehaviorMapping = mappingArray;
+        }
+    }
+
+    /**
+     * 映射行为ID为行为
+     *
+     * @param behaviorID 行为ID
+     * @return 行为，若行为ID未分配则返回null
+     */
+    public Behavior getBehavior(final int behaviorID) {
+        final Behavior[] mappingArray = identityBehaviorMapping;
+        return behaviorID > NULL_ID && behaviorID < mappingArray.length
+                ? mappingArray[behaviorID]
+                : null;
+    }
+
+    /**
+     * 被增强的行为
+     */
+    public static class Behavior {
+
+        /**
+         * 行为所在ClassLoader的对象ID
+         */
+        public final int classLoaderObjectID;
+
+        /**
+         * 类名
+         */
+        public final String javaClassName;
+
+        /**
+         * 方法名
+         */
+        public final String javaMethodName;
+
+        /**
+         * 方法签名
+         */
+        public final String javaMethodDesc;
+
+        private final int hashCode;
+
+        private Behavior(final int classLoaderObjectID,
+                         final String javaClassName,
+                         final String javaMethodName,
+                         final String javaMethodDesc) {
+            this.classLoaderObjectID = classLoaderObjectID;
+            this.javaClassName = javaClassName;
+            this.javaMethodName = javaMethodName;
+            this.javaMethodDesc = javaMethodDesc;
+            this.hashCode = 31 * (31 * (31 * classLoaderObjectID + javaClassName.hashCode())
+                    + javaMethodName.hashCode())
+                    + javaMethodDesc.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Behavior)) {
+                return false;
+            }
+            final Behavior behavior = (Behavior) obj;
+            return classLoaderObjectID == behavior.classLoaderObjectID
+                    && javaClassName.equals(behavior.javaClassName)
+                    && javaMethodName.equals(behavior.javaMethodName)
+                    && javaMethodDesc.equals(behavior.javaMethodDesc);
+        }
+
+    }
+
+
+    /**
+     * 全局单例
+     */
+    public static final BehaviorIDs instance = new BehaviorIDs();
+
+}
@@ -0,0 +1,58 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+
+/**
+ * 事件类型工具类
+ * <p>
+ * 将事件类型集合压缩为int掩码，每个事件类型占用一位(位序即枚举序号)，
+ * 判断事件类型是否被订阅只需要一次位与运算
+ * </p>
+ */
+public class EventTypeUtils {
+
+    /**
+     * 空掩码，未订阅任何事件类型
+     */
+    public static final int EMPTY_MASK = 0;
+
+    /**
+     * 获取单个事件类型的掩码
+     *
+     * @param type 事件类型
+     * @return 事件类型掩码
+     */
+    public static int toMask(final Event.Type type) {
+        return 1 << type.ordinal();
+    }
+
+    /**
+     * 将事件类型集合转换为掩码
+     *
+     * @param types 事件类型集合
+     * @return 事件类型掩码
+     */
+    public static int toMask(final Event.Type... types) {
+        int mask = EMPTY_MASK;
+        if (null != types) {
+            for (final Event.Type type : types) {
+                if (null != type) {
+                    mask |= toMask(type);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 判断事件类型是否在掩码中
+     *
+     * @param mask 事件类型掩码
+     * @param type 事件类型
+     * @return true:在掩码中;false:不在掩码中
+     */
+    public static boolean isIn(final int mask, final Event.Type type) {
+        return (mask & toMask(type)) != 0;
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 给事件监听器分配事件监听器ID <br>
+ * <p>
+ * 1. 同一个事件监听器对象只会分配一次ID，以对象地址作为比较依据
+ * 2. ID由{@link Spy#nextListenerId()}全局分配，低位是可复用的紧凑槽位，
+ * Spy和事件处理都可以直接以槽位作为数组下标，数组长度只与同时存在的监听器数量有关
+ * 3. 事件监听器被GC回收后，ID会在下一次分配时归还给Spy
+ * </p>
+ */
+public class ListenerIDs {
+
+    // 写锁
+    private final Object writeLock = new Object();
+
+    // 全局<事件监听器:ID>映射表，以对象地址作为比较依据
+    private final ConcurrentHashMap<IdentityWeakReference, Integer> listenerIDMapping
+            = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<Object> rQueue = new ReferenceQueue<>();
+
+    private ListenerIDs() {
+
+    }
+
+    /**
+     * 映射事件监听器为事件监听器ID
+     *
+     * @param listener 事件监听器
+     * @return 事件监听器ID
+     */
+    public int identity(final Object listener) {
+        final IdentityWeakReference lookup = new IdentityWeakReference(0, listener, null);
+        final Integer listenerID = listenerIDMapping.get(lookup);
+        if (null != listenerID) {
+            return listenerID;
+        }
+
+        synchronized (writeLock) {
+            expungeListenerIDMapping();
+            final Integer existedListenerID = listenerIDMapping.get(lookup);
+            if (null != existedListenerID) {
+                return existedListenerID;
+            }
+            final int newListenerID = Spy.nextListenerId();
+            listenerIDMapping.put(new IdentityWeakReference(newListenerID, listener, rQueue), newListenerID);
+            return newListenerID;
+        }
+    }
+
+    /**
+     * 归还已回收的事件监听器的ID
+     * <p>必须在写锁中调用</p>
+     */
+    private void expungeListenerIDMapping() {
+        for (Object x; (x = rQueue.poll()) != null; ) {
+            final IdentityWeakReference reference = (IdentityWeakReference) x;
+            listenerIDMapping.remove(reference);
+            Spy.releaseListenerId(reference.listenerID);
+        }
+    }
+
+    /**
+     * 归还所有的事件监听器ID
+     * <p>沙箱销毁时调用，此后事件监听器会重新分配ID</p>
+     */
+    public void releaseAll() {
+        synchronized (writeLock) {
+            expungeListenerIDMapping();
+            for (final Integer listenerID : listenerIDMapping.values()) {
+                Spy.releaseListenerId(listenerID);
+            }
+            listenerIDMapping.clear();
+        }
+    }
+
+    // 带事件监听器ID标记的弱对象引用，以对象地址判断是否相等
+    private static class IdentityWeakReference extends WeakReference<Object> {
+
+        // 对应的事件监听器ID
+        private final int listenerID;
+
+        // 对象被回收后仍需要保持hashCode不变，才能从映射表中删除
+        private final int hashCode;
+
+        private IdentityWeakReference(final int listenerID,
+                                      final Object referent,
+                                      final ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.listenerID = listenerID;
+            this.hashCode = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof IdentityWeakReference)) {
+                return false;
+            }
+            final Object referent = get();
+            return null != referent
+                    && referent == ((IdentityWeakReference) obj).get();
+        }
+
+    }
+
+
+    /**
+     * 全局单例
+     */
+    public static final ListenerIDs instance = new ListenerIDs();
+
+}
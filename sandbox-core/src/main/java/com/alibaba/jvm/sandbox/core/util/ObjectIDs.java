@@ -2,18 +2,23 @@ package com.alibaba.jvm.sandbox.core.util;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
-import java.util.WeakHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * 给指定的Java对象分配JVM唯一ID <br>
  * <p>
  * 1. 该ID为int型
  * 2. Object如果被GC回收，对应的ID会被失效，内存也会被释放
- * 3. int为[0,{@link Integer#MAX_VALUE}]之间的整数
- * 4. 这个类当前无需考虑对象溢出的情况，因为我不需要，我放入的对象数量很少，就这么简单
+ * 3. int为(0,{@link Integer#MAX_VALUE}]之间的整数，低位是可复用的槽位，高位是槽位的复用代数
+ * 4. 对象被回收后槽位会被复用，但复用代数不同，已失效的ID不会映射到新的对象上，仍以旧ID为KEY的缓存也不会被误命中
+ * </p>
+ * <p>
+ * {@link #getObject(int)}在每个BEFORE事件中都会被调用，所以读取全程无锁：
+ * [objectID : object]以对象ID的槽位作为数组下标存放弱引用，数组长度只与同时存活的对象数量有关；
+ * 分配ID和清理失效映射只发生在增强类的时候，由写锁串行化，不会阻塞读取
  * </p>
  *
  * @author luanjia@taobao.com
@@ -25,30 +30,41 @@ public class ObjectIDs {
      */
     public static final int NULL_ID = 0;
 
-    /**
-     * 对象ID序列生成器，生成范围[1,{@link Integer#MAX_VALUE}]之间的整数
-     */
-    private final Sequencer objectIDSequencer = new Sequencer();
+    // [objectID : object]映射表的初始容量
+    private static final int INITIAL_CAPACITY = 2048;
+
+    // 对象ID的低位为槽位，高位为槽位的复用代数
+    private static final int SLOT_BITS = 20;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATION_MASK = Integer.MAX_VALUE >>> SLOT_BITS;
 
     /**
-     * 全局读写锁:用于维护世界的和平
+     * 写锁
      * <p>
-     * 用于维护{@link #identityObjectMapping}和{@link #objectIDMapping}之间数据的一致性
+     * 用于串行化ID的分配和失效映射的清理，维护{@link #objectIDMapping}和{@link #identityObjectMapping}之间数据的一致性
      * </p>
      */
-    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
-
-    // 全局<对象:ID>映射表
-    private final WeakHashMap<Object, Integer> objectIDMapping
-            = new WeakHashMap<>();
+    private final Object writeLock = new Object();
 
+    // 全局<对象:ID>映射表，以对象地址作为比较依据
+    private final ConcurrentHashMap<IdentityWeakReference, Integer> objectIDMapping
+            = new ConcurrentHashMap<>();
 
     // --- ObjectID : Object 的映射关系维护 ----------------------------------------+
-    private final ReferenceQueue<Object> rQueue = new ReferenceQueue<>(); //|
-    private final HashMap<Integer, IdentityWeakReference> identityObjectMapping //|
-            = new HashMap<>();                    //|
+    private final ReferenceQueue<Object> rQueue = new ReferenceQueue<>();     //|
+    private volatile AtomicReferenceArray<IdentityWeakReference> identityObjectMapping //|
+            = new AtomicReferenceArray<>(INITIAL_CAPACITY);                     //|
     // ---------------------------------------------------------------------------+
 
+    // [槽位 : 复用代数]，槽位释放时递增，只在写锁中访问
+    private int[] slotGenerations = new int[INITIAL_CAPACITY];
+
+    // 已经分配过的槽位数量，只在写锁中访问
+    private int slotCount = 0;
+
+    // 空闲的槽位，只在写锁中访问
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+
 
     private ObjectIDs() {
 
@@ -71,67 +87,110 @@ public class ObjectIDs {
             return NULL_ID;
         }
 
-        rwLock.readLock().lock();
-        try {
-            final Integer objectID = objectIDMapping.get(object);
-            if (null != objectID) {
-                return objectID;
-            }
-        } finally {
-            rwLock.readLock().unlock();
-            expungeIdentityObjectMapping();
+        final IdentityWeakReference lookup = new IdentityWeakReference(NULL_ID, object, null);
+        final Integer objectID = objectIDMapping.get(lookup);
+        if (null != objectID) {
+            return objectID;
         }
 
-        rwLock.writeLock().lock();
-        try {
-            final Integer nextObjectID;
-            if (objectIDMapping.containsKey(object)) {
-                nextObjectID = objectIDMapping.get(object);
-            } else {
-                mapping(
-                        nextObjectID = objectIDSequencer.next(),
-                        object
-                );
+        synchronized (writeLock) {
+            expungeIdentityObjectMapping();
+            final Integer existedObjectID = objectIDMapping.get(lookup);
+            if (null != existedObjectID) {
+                return existedObjectID;
             }
+            final int nextObjectID = nextObjectID();
+            mapping(nextObjectID, object);
             return nextObjectID;
-        } finally {
-            rwLock.writeLock().unlock();
         }
     }
 
+    /**
+     * 映射Java对象为已经分配的对象ID
+     * <p>
+     * 与{@link #identity(Object)}不同，对象之前从未映射时不会为其分配ID，适用于只需要查找、不需要登记对象的场景
+     * </p>
+     *
+     * @param object 待映射的Java对象
+     * @return 对象ID，{@code object}为null或从未映射时返回{@link #NULL_ID}
+     */
+    public int getIdentity(final Object object) {
+        if (null == object) {
+            return NULL_ID;
+        }
+        final Integer objectID = objectIDMapping.get(new IdentityWeakReference(NULL_ID, object, null));
+        return null == objectID
+                ? NULL_ID
+                : objectID;
+    }
+
+    /**
+     * 分配对象ID，优先复用已释放的槽位
+     * <p>必须在写锁中调用</p>
+     *
+     * @return 对象ID
+     */
+    private int nextObjectID() {
+        final int slot;
+        if (freeSlots.isEmpty()) {
+            if (slotCount > SLOT_MASK) {
+                throw new IllegalStateException("too many objects, limit=" + (SLOT_MASK + 1));
+            }
+            slot = slotCount++;
+            if (slot >= slotGenerations.length) {
+                slotGenerations = Arrays.copyOf(slotGenerations, slotGenerations.length * 2);
+            }
+            slotGenerations[slot] = 1;
+        } else {
+            slot = freeSlots.pop();
+        }
+        return slotGenerations[slot] << SLOT_BITS | slot;
+    }
+
     /**
      * 维持{@code [object:objectID]}和{@code [objectID:object]}两个集合的映射关系
+     * <p>必须在写锁中调用</p>
      *
      * @param objectID 对象ID
      * @param object   对象
      */
-    private void mapping(final Integer objectID,
+    private void mapping(final int objectID,
                          final Object object) {
-        rwLock.writeLock().lock();
-        try {
-            // 映射 [object : objectID]
-            objectIDMapping.put(object, objectID);
-
-            // 映射 [objectID : object]
-            identityObjectMapping.put(objectID, new IdentityWeakReference(objectID, object));
-        } finally {
-            rwLock.writeLock().unlock();
+        final IdentityWeakReference reference = new IdentityWeakReference(objectID, object, rQueue);
+
+        // 映射 [objectID : object]
+        // 必须先于[object : objectID]完成，保证拿到ID的线程一定能映射回对象
+        final int slot = objectID & SLOT_MASK;
+        final AtomicReferenceArray<IdentityWeakReference> mappingArray = identityObjectMapping;
+        if (slot >= mappingArray.length()) {
+            final AtomicReferenceArray<IdentityWeakReference> newMappingArray
+                    = new AtomicReferenceArray<>(Math.max(mappingArray.length() * 2, slot + 1));
+            for (int index = 0; index < mappingArray.length(); index++) {
+                newMappingArray.lazySet(index, mappingArray.get(index));
+            }
+            newMappingArray.set(slot, reference);
+            identityObjectMapping = newMappingArray;
+        } else {
+            mappingArray.set(slot, reference);
         }
+
+        // 映射 [object : objectID]
+        objectIDMapping.put(reference, objectID);
     }
 
     /**
-     * 清理失效的 [objectID : object] 映射
+     * 清理失效的映射，递增复用代数后归还槽位
+     * <p>必须在写锁中调用</p>
      */
     private void expungeIdentityObjectMapping() {
         for (Object x; (x = rQueue.poll()) != null; ) {
-            synchronized (rQueue) {
-                rwLock.writeLock().lock();
-                try {
-                    identityObjectMapping.remove(((IdentityWeakReference) x).objectID);
-                } finally {
-                    rwLock.writeLock().unlock();
-                }
-            }
+            final IdentityWeakReference reference = (IdentityWeakReference) x;
+            final int slot = reference.objectID & SLOT_MASK;
+            objectIDMapping.remove(reference);
+            identityObjectMapping.compareAndSet(slot, reference, null);
+            final int generation = (slotGenerations[slot] + 1) & GENERATION_MASK;
+            slotGenerations[slot] = 0 == generation ? 1 : generation;
+            freeSlots.push(slot);
         }
     }
 
@@ -149,33 +208,52 @@ public class ObjectIDs {
             return null;
         }
 
-        rwLock.readLock().lock();
-        try {
-            final Object object;
-            final IdentityWeakReference reference = identityObjectMapping.get(objectID);
-            if (null != reference
-                    && null != (object = reference.get())) {
-                return (T) object;
-            } else {
-                return null;
-            }
-        } finally {
-            rwLock.readLock().unlock();
-            expungeIdentityObjectMapping();
+        final AtomicReferenceArray<IdentityWeakReference> mappingArray = identityObjectMapping;
+        final int slot = objectID & SLOT_MASK;
+        if (slot >= mappingArray.length()) {
+            return null;
         }
 
+        // 槽位上可能已经是复用了该槽位的其他对象
+        final IdentityWeakReference reference = mappingArray.get(slot);
+        return null == reference || reference.objectID != objectID
+                ? null
+                : (T) reference.get();
     }
 
-    // 带ObjectID标记的弱对象引用
-    private class IdentityWeakReference extends WeakReference<Object> {
+    // 带ObjectID标记的弱对象引用，以对象地址判断是否相等
+    private static class IdentityWeakReference extends WeakReference<Object> {
 
         // 对应的对象ID
-        private final Integer objectID;
+        private final int objectID;
+
+        // 对象被回收后仍需要保持hashCode不变，才能从映射表中删除
+        private final int hashCode;
 
-        private IdentityWeakReference(final Integer objectID,
-                                      final Object referent) {
-            super(referent, rQueue);
+        private IdentityWeakReference(final int objectID,
+                                      final Object referent,
+                                      final ReferenceQueue<Object> queue) {
+            super(referent, queue);
             this.objectID = objectID;
+            this.hashCode = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof IdentityWeakReference)) {
+                return false;
+            }
+            final Object referent = get();
+            return null != referent
+                    && referent == ((IdentityWeakReference) obj).get();
         }
 
     }
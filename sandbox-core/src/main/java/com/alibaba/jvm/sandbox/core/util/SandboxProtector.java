@@ -1,18 +1,21 @@
 package com.alibaba.jvm.sandbox.core.util;
 
+import com.alibaba.jvm.sandbox.core.enhance.weaver.ThreadContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Sandbox守护者
  * <p>
  * 用来保护sandbox的操作所产生的事件不被响应
  * </p>
+ * <p>
+ * 守护区域的引用计数存放在{@link ThreadContext}中，与事件处理共用同一个线程上下文
+ * </p>
  *
  * @author oldmanpushcart@gamil.com
  */
@@ -20,15 +23,13 @@ public class SandboxProtector {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final ThreadLocal<AtomicInteger> isInProtectingThreadLocal = ThreadLocal.withInitial(() -> new AtomicInteger(0));
-
     /**
      * 进入守护区域
      *
      * @return 守护区域当前引用计数
      */
     public int enterProtecting() {
-        final int referenceCount = isInProtectingThreadLocal.get().getAndIncrement();
+        final int referenceCount = ThreadContext.current().enterProtecting();
         if (logger.isDebugEnabled()) {
             logger.debug("thread:{} enter protect:{}", Thread.currentThread(), referenceCount);
         }
@@ -41,14 +42,9 @@ public class SandboxProtector {
      * @return 守护区域当前引用计数
      */
     public int exitProtecting() {
-        final int referenceCount = isInProtectingThreadLocal.get().decrementAndGet();
+        final int referenceCount = ThreadContext.current().exitProtecting();
         // assert referenceCount >= 0;
-        if (referenceCount == 0) {
-            isInProtectingThreadLocal.remove();
-            if (logger.isDebugEnabled()) {
-                logger.debug("thread:{} exit protect:{} with clean", Thread.currentThread(), referenceCount);
-            }
-        } else if (referenceCount > 0) {
+        if (referenceCount >= 0) {
             if (logger.isDebugEnabled()) {
                 logger.debug("thread:{} exit protect:{}", Thread.currentThread(), referenceCount);
             }
@@ -64,12 +60,7 @@ public class SandboxProtector {
      * @return TRUE:在守护区域中；FALSE：非守护区域中
      */
     public boolean isInProtecting() {
-        // fix for #384
-        final boolean res = isInProtectingThreadLocal.get().get() > 0;
-        if(!res) {
-            isInProtectingThreadLocal.remove();
-        }
-        return res;
+        return ThreadContext.current().isInProtecting();
     }
 
     /**
@@ -0,0 +1,270 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toJavaClassName;
+
+/**
+ * 类型继承关系解析器
+ * <p>
+ * 计算栈帧时ASM需要频繁地获取两个类型的共同父类，这里只需要类型的父类和接口：
+ * 1. 优先从已经加载的Class中获取，不需要读取和解析字节码，也不会触发类加载
+ * 2. 获取不到时才从ClassLoader中读取字节码，只解析类的头部信息
+ * 3. 解析结果以ClassLoader的对象ID({@link ObjectIDs})和类名缓存起来在所有类的增强之间共享，不会阻碍ClassLoader的卸载
+ * </p>
+ */
+public class TypeHierarchyResolver {
+
+    private static final String OBJECT_INTERNAL_CLASS_NAME = "java/lang/Object";
+
+    // 最多缓存的类型数量
+    private static final int MAXIMUM_SIZE = 8192;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    // ClassLoader#findLoadedClass(String)，不可访问时为null，只能从字节码中解析
+    private final Method findLoadedClassMethod = getFindLoadedClassMethod();
+
+    private final Cache<Key, TypeInfo> typeInfoCache
+            = CacheBuilder.newBuilder().maximumSize(MAXIMUM_SIZE).build();
+
+    private TypeHierarchyResolver() {
+
+    }
+
+    private static Method getFindLoadedClassMethod() {
+        try {
+            final Method method = ClassLoader.class.getDeclaredMethod("findLoadedClass", String.class);
+            method.setAccessible(true);
+            return method;
+        } catch (Throwable cause) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取两个类型的共同父类
+     *
+     * @param type1  类型1(内部类名)
+     * @param type2  类型2(内部类名)
+     * @param loader 所在ClassLoader
+     * @return 共同的父类(内部类名)
+     */
+    public String getCommonSuperClass(final String type1,
+                                      final String type2,
+                                      final ClassLoader loader) {
+        if (type1.equals(type2)) {
+            return type1;
+        }
+        final TypeInfo typeInfo1 = getTypeInfo(type1, loader);
+        if (null == typeInfo1) {
+            return OBJECT_INTERNAL_CLASS_NAME;
+        }
+        final TypeInfo typeInfo2 = getTypeInfo(type2, loader);
+        if (null == typeInfo2) {
+            return OBJECT_INTERNAL_CLASS_NAME;
+        }
+        if (isAssignableFrom(type1, typeInfo2, loader)) {
+            return type1;
+        }
+        if (isAssignableFrom(type2, typeInfo1, loader)) {
+            return type2;
+        }
+        if (typeInfo1.isInterface
+                || typeInfo2.isInterface) {
+            return OBJECT_INTERNAL_CLASS_NAME;
+        }
+
+        // 沿着类型1的父类向上查找，第一个类型2可以赋值给它的父类就是共同的父类
+        TypeInfo typeInfo = typeInfo1;
+        while (null != typeInfo.superName
+                && !OBJECT_INTERNAL_CLASS_NAME.equals(typeInfo.superName)) {
+            if (isAssignableFrom(typeInfo.superName, typeInfo2, loader)) {
+                return typeInfo.superName;
+            }
+            typeInfo = getTypeInfo(typeInfo.superName, loader);
+            if (null == typeInfo) {
+                break;
+            }
+        }
+        return OBJECT_INTERNAL_CLASS_NAME;
+    }
+
+    // 判断类型是否为另一个类型的祖先(父类或接口)，获取不到的祖先类型会被忽略
+    private boolean isAssignableFrom(final String ancestorName,
+                                     final TypeInfo typeInfo,
+                                     final ClassLoader loader) {
+        final Set<String> visitedNames = new HashSet<>();
+        final Deque<TypeInfo> waitingTypeInfos = new ArrayDeque<>();
+        waitingTypeInfos.add(typeInfo);
+        while (!waitingTypeInfos.isEmpty()) {
+            final TypeInfo waitingTypeInfo = waitingTypeInfos.poll();
+            for (final String name : waitingTypeInfo.superNames) {
+                if (ancestorName.equals(name)) {
+                    return true;
+                }
+                if (!visitedNames.add(name)) {
+                    continue;
+                }
+                final TypeInfo superTypeInfo = getTypeInfo(name, loader);
+                if (null != superTypeInfo) {
+                    waitingTypeInfos.add(superTypeInfo);
+                }
+            }
+        }
+        return false;
+    }
+
+    private TypeInfo getTypeInfo(final String internalClassName,
+                                 final ClassLoader loader) {
+        final Key key = new Key(loader, internalClassName);
+        final TypeInfo existTypeInfo = typeInfoCache.getIfPresent(key);
+        if (null != existTypeInfo) {
+            return existTypeInfo;
+        }
+
+        TypeInfo typeInfo = null;
+        try {
+            final Class<?> loadedClass = findLoadedClass(loader, toJavaClassName(internalClassName));
+            typeInfo = null != loadedClass
+                    ? new TypeInfo(loadedClass)
+                    : readTypeInfo(loader, internalClassName);
+        } catch (Throwable cause) {
+            logger.debug("resolve type hierarchy failed, class={};loader={};", internalClassName, loader, cause);
+        }
+        if (null != typeInfo) {
+            typeInfoCache.put(key, typeInfo);
+        }
+        return typeInfo;
+    }
+
+    // 在ClassLoader以及它的父ClassLoader中查找已经加载的类，不会触发类加载
+    private Class<?> findLoadedClass(final ClassLoader loader,
+                                     final String javaClassName) throws Exception {
+        if (null == findLoadedClassMethod) {
+            return null;
+        }
+        for (ClassLoader current = loader; null != current; current = current.getParent()) {
+            final Class<?> loadedClass = (Class<?>) findLoadedClassMethod.invoke(current, javaClassName);
+            if (null != loadedClass) {
+                return loadedClass;
+            }
+        }
+        return null;
+    }
+
+    // 从字节码中解析，BootstrapClassLoader不能显式引用，使用系统类加载器间接引用
+    private TypeInfo readTypeInfo(final ClassLoader loader,
+                                  final String internalClassName) throws Exception {
+        final ClassLoader targetClassLoader = null == loader
+                ? ClassLoader.getSystemClassLoader()
+                : loader;
+        if (null == targetClassLoader) {
+            return null;
+        }
+        final InputStream is = targetClassLoader.getResourceAsStream(internalClassName + ".class");
+        if (null == is) {
+            return null;
+        }
+        try {
+            return new TypeInfo(new ClassReader(is));
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    // 类型的继承信息
+    private static class TypeInfo {
+
+        private final String superName;
+        private final boolean isInterface;
+
+        // 父类以及所有直接实现的接口
+        private final String[] superNames;
+
+        private TypeInfo(final Class<?> clazz) {
+            final Class<?> superClass = clazz.getSuperclass();
+            final Class<?>[] interfaces = clazz.getInterfaces();
+            final String[] interfaceNames = new String[interfaces.length];
+            for (int index = 0; index < interfaces.length; index++) {
+                interfaceNames[index] = toInternalClassName(interfaces[index].getName());
+            }
+            this.superName = null == superClass
+                    ? null
+                    : toInternalClassName(superClass.getName());
+            this.isInterface = clazz.isInterface();
+            this.superNames = toSuperNames(superName, interfaceNames);
+        }
+
+        private TypeInfo(final ClassReader classReader) {
+            this.superName = classReader.getSuperName();
+            this.isInterface = (classReader.getAccess() & Opcodes.ACC_INTERFACE) != 0;
+            this.superNames = toSuperNames(superName, classReader.getInterfaces());
+        }
+
+        private static String[] toSuperNames(final String superName,
+                                             final String[] interfaceNames) {
+            if (null == superName) {
+                return interfaceNames;
+            }
+            final String[] superNames = new String[interfaceNames.length + 1];
+            superNames[0] = superName;
+            System.arraycopy(interfaceNames, 0, superNames, 1, interfaceNames.length);
+            return superNames;
+        }
+
+    }
+
+    // 缓存KEY
+    private static class Key {
+
+        private final int classLoaderObjectID;
+        private final String internalClassName;
+
+        private Key(final ClassLoader loader,
+                    final String internalClassName) {
+            this.classLoaderObjectID = ObjectIDs.instance.identity(loader);
+            this.internalClassName = internalClassName;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * classLoaderObjectID + internalClassName.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) obj;
+            return classLoaderObjectID == key.classLoaderObjectID
+                    && internalClassName.equals(key.internalClassName);
+        }
+
+    }
+
+
+    /**
+     * 全局单例
+     */
+    public static final TypeHierarchyResolver instance = new TypeHierarchyResolver();
+
+}
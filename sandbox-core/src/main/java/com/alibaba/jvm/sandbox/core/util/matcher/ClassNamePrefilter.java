@@ -0,0 +1,168 @@
+package com.alibaba.jvm.sandbox.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.api.util.PatternMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 类名预过滤器
+ * <p>
+ * 将匹配器中的类名前缀编译为有序的前缀集合，只凭类名就能排除一定不会被匹配的类，
+ * 不必解析字节码构造类结构。类加载时绝大多数的类都不会被观察，这里能省掉它们的解析开销
+ * </p>
+ * <p>
+ * 无法确定类名前缀的匹配器(例如"*Controller")退而使用其预编译的类名匹配器预过滤
+ * </p>
+ * <p>
+ * 只有类名能决定匹配结果时才能预过滤，匹配子类或实现类、或者既无类名前缀也无类名匹配器的匹配器都无法预过滤
+ * </p>
+ */
+public class ClassNamePrefilter {
+
+    // 有序的类名前缀，已经去掉了被更短前缀覆盖的前缀
+    private final String[] javaClassNamePrefixes;
+
+    // 无法确定类名前缀的匹配器的类名匹配器
+    private final PatternMatcher[] javaClassNameMatchers;
+
+    private ClassNamePrefilter(final String[] javaClassNamePrefixes,
+                               final PatternMatcher[] javaClassNameMatchers) {
+        this.javaClassNamePrefixes = javaClassNamePrefixes;
+        this.javaClassNameMatchers = javaClassNameMatchers;
+    }
+
+    /**
+     * 判断类是否有可能被匹配
+     *
+     * @param javaClassName 类名
+     * @return TRUE:有可能被匹配，需要继续匹配类结构;FALSE:一定不会被匹配
+     */
+    public boolean isMayMatching(final String javaClassName) {
+        return isPrefixMatching(javaClassName)
+                || isPatternMatching(javaClassName);
+    }
+
+    private boolean isPrefixMatching(final String javaClassName) {
+        // 前缀之间互不覆盖，所以只需要检查不大于类名的最大前缀
+        int low = 0, high = javaClassNamePrefixes.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int compare = javaClassNamePrefixes[mid].compareTo(javaClassName);
+            if (compare < 0) {
+                low = mid + 1;
+            } else if (compare > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return high >= 0
+                && javaClassName.startsWith(javaClassNamePrefixes[high]);
+    }
+
+    private boolean isPatternMatching(final String javaClassName) {
+        for (final PatternMatcher javaClassNameMatcher : javaClassNameMatchers) {
+            if (javaClassNameMatcher.matching(javaClassName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 编译匹配器为类名预过滤器
+     *
+     * @param matcher 匹配器
+     * @return 类名预过滤器，匹配器无法预过滤时返回null
+     */
+    public static ClassNamePrefilter compile(final Matcher matcher) {
+        final TreeSet<String> javaClassNamePrefixes = new TreeSet<>();
+        final List<PatternMatcher> javaClassNameMatchers = new ArrayList<>();
+        if (!collect(matcher, javaClassNamePrefixes, javaClassNameMatchers)) {
+            return null;
+        }
+
+        // 有序集合中被覆盖的前缀一定紧跟在覆盖它的前缀之后
+        final List<String> distinctJavaClassNamePrefixes = new ArrayList<>();
+        String last = null;
+        for (final String javaClassNamePrefix : javaClassNamePrefixes) {
+            if (null == last || !javaClassNamePrefix.startsWith(last)) {
+                distinctJavaClassNamePrefixes.add(last = javaClassNamePrefix);
+            }
+        }
+        return new ClassNamePrefilter(
+                distinctJavaClassNamePrefixes.toArray(new String[0]),
+                javaClassNameMatchers.toArray(new PatternMatcher[0])
+        );
+    }
+
+    // 收集匹配器中的类名前缀和类名匹配器，无法预过滤时返回false
+    private static boolean collect(final Matcher matcher,
+                                   final TreeSet<String> javaClassNamePrefixes,
+                                   final List<PatternMatcher> javaClassNameMatchers) {
+
+        if (matcher instanceof ExtFilterMatcher) {
+            final ExtFilterMatcher extFilterMatcher = (ExtFilterMatcher) matcher;
+            if (extFilterMatcher.isIncludeSubClasses()) {
+                return false;
+            }
+
+            // 优先使用类名前缀，有序前缀集合的查找不随匹配器的数量线性增长
+            final String javaClassNamePrefix = extFilterMatcher.getJavaClassNamePrefix();
+            if (null != javaClassNamePrefix) {
+                javaClassNamePrefixes.add(javaClassNamePrefix);
+                return true;
+            }
+            final PatternMatcher javaClassNameMatcher = extFilterMatcher.getJavaClassNameMatcher();
+            if (null != javaClassNameMatcher) {
+                javaClassNameMatchers.add(javaClassNameMatcher);
+                return true;
+            }
+            return false;
+        }
+
+        // 任意一个子匹配器无法预过滤，整组都无法预过滤
+        if (matcher instanceof GroupMatcher.Or) {
+            final Matcher[] matcherArray = ((GroupMatcher.Or) matcher).getMatcherArray();
+            if (null == matcherArray) {
+                return true;
+            }
+            for (final Matcher subMatcher : matcherArray) {
+                if (!collect(subMatcher, javaClassNamePrefixes, javaClassNameMatchers)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 必须所有子匹配器都匹配，所以只需要任意一个子匹配器能预过滤
+        if (matcher instanceof GroupMatcher.And) {
+            final Matcher[] matcherArray = ((GroupMatcher.And) matcher).getMatcherArray();
+            if (null == matcherArray) {
+                return true;
+            }
+            for (final Matcher subMatcher : matcherArray) {
+                final TreeSet<String> subJavaClassNamePrefixes = new TreeSet<>();
+                final List<PatternMatcher> subJavaClassNameMatchers = new ArrayList<>();
+                if (collect(subMatcher, subJavaClassNamePrefixes, subJavaClassNameMatchers)) {
+                    javaClassNamePrefixes.addAll(subJavaClassNamePrefixes);
+                    javaClassNameMatchers.addAll(subJavaClassNameMatchers);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(javaClassNamePrefixes)
+                + Arrays.toString(javaClassNameMatchers);
+    }
+
+}
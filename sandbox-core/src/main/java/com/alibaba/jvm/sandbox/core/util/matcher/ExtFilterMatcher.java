@@ -5,7 +5,9 @@ import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.LazyFilter;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
+import com.alibaba.jvm.sandbox.api.util.PatternMatcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.*;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -13,8 +15,6 @@ import org.apache.commons.lang3.ArrayUtils;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
 
 import static com.alibaba.jvm.sandbox.api.filter.AccessFlags.*;
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
@@ -32,6 +32,51 @@ public class ExtFilterMatcher implements Matcher {
         this.extFilter = extFilter;
     }
 
+    /**
+     * 获取类名前缀
+     * <p>只有类名以此为前缀的类(若包含子类，还有它们的子类)才有可能被匹配上</p>
+     *
+     * @return 类名前缀，为null时表示无法确定
+     */
+    public String getJavaClassNamePrefix() {
+        return extFilter instanceof ExtFilterImplByV140
+                ? ((ExtFilterImplByV140) extFilter).getJavaClassNamePrefix()
+                : null;
+    }
+
+    /**
+     * 获取预编译的类名匹配器
+     * <p>只有类名能通过此匹配器的类(若包含子类，还有它们的子类)才有可能被匹配上</p>
+     *
+     * @return 类名匹配器，为null时表示无法确定
+     */
+    public PatternMatcher getJavaClassNameMatcher() {
+        return extFilter instanceof ExtFilterImplByV140
+                ? ((ExtFilterImplByV140) extFilter).getJavaClassNameMatcher()
+                : null;
+    }
+
+    /**
+     * 获取过滤器的规范KEY
+     * <p>KEY相同的匹配器对同一个类一定给出相同的匹配结果</p>
+     *
+     * @return 规范KEY，为null时表示无法确定
+     */
+    public String getCanonicalKey() {
+        return extFilter instanceof ExtFilterImplByV140
+                ? ((ExtFilterImplByV140) extFilter).getCanonicalKey()
+                : null;
+    }
+
+    /**
+     * 是否匹配子类或实现类
+     *
+     * @return TRUE:匹配子类或实现类;FALSE:不匹配
+     */
+    public boolean isIncludeSubClasses() {
+        return extFilter.isIncludeSubClasses();
+    }
+
     // 获取需要匹配的类结构
     // 如果要匹配子类就需要将这个类的所有家族成员找出
     private Collection<ClassStructure> getWaitingMatchClassStructures(final ClassStructure classStructure) {
@@ -43,48 +88,46 @@ public class ExtFilterMatcher implements Matcher {
         return waitingMatchClassStructures;
     }
 
-    private String[] toJavaClassNameArray(final Collection<ClassStructure> classStructures) {
-        if (null == classStructures) {
-            return null;
+    // 匹配类结构
+    // 按需取值的过滤器只在读取时才解析父类、家族接口和家族元注释
+    // 其他过滤器由模块提供，类结构上缓存的类名数组为所有过滤器共享，这里只交给它们副本，以免被修改后影响其他匹配
+    private boolean doClassFilter(final ClassStructure classStructure) {
+        if (extFilter instanceof LazyFilter) {
+            return ((LazyFilter) extFilter).doClassFilter(new ClassDescriptionImpl(classStructure));
         }
-        final List<String> javaClassNames = new ArrayList<>();
-        for (final ClassStructure classStructure : classStructures) {
-            javaClassNames.add(classStructure.getJavaClassName());
+        return extFilter.doClassFilter(
+                toFilterAccess(classStructure.getAccess()),
+                classStructure.getJavaClassName(),
+                getSuperClassTypeJavaClassName(classStructure),
+                ArrayUtils.clone(classStructure.getFamilyInterfaceJavaClassNameArray()),
+                ArrayUtils.clone(classStructure.getFamilyAnnotationTypeJavaClassNameArray())
+        );
+    }
+
+    // 匹配行为结构
+    private boolean doMethodFilter(final BehaviorStructure behaviorStructure) {
+        if (extFilter instanceof LazyFilter) {
+            return ((LazyFilter) extFilter).doMethodFilter(new BehaviorDescriptionImpl(behaviorStructure));
         }
-        return javaClassNames.toArray(new String[0]);
+        return extFilter.doMethodFilter(
+                toFilterAccess(behaviorStructure.getAccess()),
+                behaviorStructure.getName(),
+                ArrayUtils.clone(behaviorStructure.getParameterTypeJavaClassNameArray()),
+                ArrayUtils.clone(behaviorStructure.getExceptionTypeJavaClassNameArray()),
+                ArrayUtils.clone(behaviorStructure.getAnnotationTypeJavaClassNameArray())
+        );
+    }
+
+    private static String getSuperClassTypeJavaClassName(final ClassStructure classStructure) {
+        final ClassStructure superClassStructure = classStructure.getSuperClassStructure();
+        return null == superClassStructure
+                ? null
+                : superClassStructure.getJavaClassName();
     }
 
     private boolean matchingClassStructure(ClassStructure classStructure) {
         for (final ClassStructure wmCs : getWaitingMatchClassStructures(classStructure)) {
-
-            // #292 性能优化
-            final boolean isHasInterfaceTypes, isHasAnnotationTypes;
-            if (extFilter instanceof ExtFilterImplByV140) {
-                final ExtFilterImplByV140 v140 = (ExtFilterImplByV140) extFilter;
-                isHasInterfaceTypes = v140.isHasInterfaceTypes();
-                isHasAnnotationTypes = v140.isHasAnnotationTypes();
-            } else {
-                isHasInterfaceTypes = isHasAnnotationTypes = true;
-            }
-
-            // 匹配类结构
-            if (extFilter.doClassFilter(
-                    toFilterAccess(wmCs.getAccess()),
-                    wmCs.getJavaClassName(),
-                    null == wmCs.getSuperClassStructure()
-                            ? null
-                            : wmCs.getSuperClassStructure().getJavaClassName(),
-                    toJavaClassNameArray(
-                            isHasInterfaceTypes
-                                    ? wmCs.getFamilyInterfaceClassStructures()
-                                    : Collections.emptySet()
-                    ),
-                    toJavaClassNameArray(
-                            isHasAnnotationTypes
-                                    ? wmCs.getFamilyAnnotationTypeClassStructures()
-                                    : Collections.emptySet()
-                    )
-            )) {
+            if (doClassFilter(wmCs)) {
                 return true;
             }
         }
@@ -132,46 +175,92 @@ public class ExtFilterMatcher implements Matcher {
             return result;
         }
 
-        final boolean isBehaviorHasWithParameterTypes, isBehaviorHasExceptionTypes, isBehaviorHasAnnotationTypes;
-        if(extFilter instanceof ExtFilterImplByV140) {
-            final ExtFilterImplByV140 v140 = (ExtFilterImplByV140)extFilter;
-            isBehaviorHasWithParameterTypes = v140.isBehaviorHasWithParameterTypes();
-            isBehaviorHasExceptionTypes = v140.isBehaviorHasExceptionTypes();
-            isBehaviorHasAnnotationTypes = v140.isBehaviorHasAnnotationTypes();
-        } else {
-            isBehaviorHasWithParameterTypes = true;
-            isBehaviorHasExceptionTypes = true;
-            isBehaviorHasAnnotationTypes = true;
-        }
-
         // 匹配BehaviorStructure
+        // #292 ExtFilterImplByV140是按需取值的过滤器，不需要过滤的类型不会被解析
         for (final BehaviorStructure behaviorStructure : classStructure.getBehaviorStructures()) {
-
-            final String[] parameterTypeArrays = isBehaviorHasWithParameterTypes
-                    ? toJavaClassNameArray(behaviorStructure.getParameterTypeClassStructures())
-                    : new String[0];
-
-            final String[] exceptionTypeArrays = isBehaviorHasExceptionTypes
-                    ? toJavaClassNameArray(behaviorStructure.getExceptionTypeClassStructures())
-                    : new String[0];
-
-            final String[] annotationTypeArrays = isBehaviorHasAnnotationTypes
-                    ? toJavaClassNameArray(behaviorStructure.getAnnotationTypeClassStructures())
-                    : new String[0];
-
-            if (extFilter.doMethodFilter(
-                    toFilterAccess(behaviorStructure.getAccess()),
-                    behaviorStructure.getName(),
-                    parameterTypeArrays,
-                    exceptionTypeArrays,
-                    annotationTypeArrays
-            )) {
+            if (doMethodFilter(behaviorStructure)) {
                 result.getBehaviorStructures().add(behaviorStructure);
             }
         }
         return result;
     }
 
+    /**
+     * 以类结构实现的类描述
+     */
+    private static class ClassDescriptionImpl implements LazyFilter.ClassDescription {
+
+        private final ClassStructure classStructure;
+
+        ClassDescriptionImpl(final ClassStructure classStructure) {
+            this.classStructure = classStructure;
+        }
+
+        @Override
+        public int getAccess() {
+            return toFilterAccess(classStructure.getAccess());
+        }
+
+        @Override
+        public String getJavaClassName() {
+            return classStructure.getJavaClassName();
+        }
+
+        @Override
+        public String getSuperClassTypeJavaClassName() {
+            return ExtFilterMatcher.getSuperClassTypeJavaClassName(classStructure);
+        }
+
+        @Override
+        public String[] getInterfaceTypeJavaClassNameArray() {
+            return classStructure.getFamilyInterfaceJavaClassNameArray();
+        }
+
+        @Override
+        public String[] getAnnotationTypeJavaClassNameArray() {
+            return classStructure.getFamilyAnnotationTypeJavaClassNameArray();
+        }
+
+    }
+
+    /**
+     * 以行为结构实现的行为描述
+     */
+    private static class BehaviorDescriptionImpl implements LazyFilter.BehaviorDescription {
+
+        private final BehaviorStructure behaviorStructure;
+
+        BehaviorDescriptionImpl(final BehaviorStructure behaviorStructure) {
+            this.behaviorStructure = behaviorStructure;
+        }
+
+        @Override
+        public int getAccess() {
+            return toFilterAccess(behaviorStructure.getAccess());
+        }
+
+        @Override
+        public String getJavaMethodName() {
+            return behaviorStructure.getName();
+        }
+
+        @Override
+        public String[] getParameterTypeJavaClassNameArray() {
+            return behaviorStructure.getParameterTypeJavaClassNameArray();
+        }
+
+        @Override
+        public String[] getThrowsTypeJavaClassNameArray() {
+            return behaviorStructure.getExceptionTypeJavaClassNameArray();
+        }
+
+        @Override
+        public String[] getAnnotationTypeJavaClassNameArray() {
+            return behaviorStructure.getAnnotationTypeJavaClassNameArray();
+        }
+
+    }
+
 
     /**
      * 转换为{@link AccessFlags}的Access体系
@@ -13,6 +13,15 @@ public abstract class GroupMatcher implements Matcher {
         this.matcherArray = matcherArray;
     }
 
+    /**
+     * 获取组内的匹配器
+     *
+     * @return 匹配器数组
+     */
+    public Matcher[] getMatcherArray() {
+        return matcherArray;
+    }
+
 
     public static final class Or extends GroupMatcher {
 
@@ -18,15 +18,19 @@ import static org.apache.commons.lang3.StringUtils.join;
  * 构造方法是一个非常特殊的方法，在JDK实现中通常以{@code <init>}进行命名。
  * 构造方法没有返回类型声明，但这里为了通用性考虑，构造方法的返回类型结构被约定为声明类的类结构
  * </p>
+ * <p>
+ * 返回类型、参数类型、异常类型和元注释类型的类结构都可以在第一次获取时才去解析，
+ * 只按名称或access就能判断的匹配不会触发这些类型的解析
+ * </p>
  *
  * @author luanjia@taobao.com
  */
 public class BehaviorStructure extends MemberStructure {
 
-    private final ClassStructure returnTypeClassStructure;
-    private final List<ClassStructure> parameterTypeClassStructures;
-    private final List<ClassStructure> exceptionTypeClassStructures;
-    private final List<ClassStructure> annotationTypeClassStructures;
+    private final LazyGet<ClassStructure> returnTypeClassStructureLazyGet;
+    private final LazyGet<List<ClassStructure>> parameterTypeClassStructuresLazyGet;
+    private final LazyGet<List<ClassStructure>> exceptionTypeClassStructuresLazyGet;
+    private final LazyGet<List<ClassStructure>> annotationTypeClassStructuresLazyGet;
 
     BehaviorStructure(final Access access,
                       final String name,
@@ -35,11 +39,44 @@ public class BehaviorStructure extends MemberStructure {
                       final List<ClassStructure> parameterTypeClassStructures,
                       final List<ClassStructure> exceptionTypeClassStructures,
                       final List<ClassStructure> annotationTypeClassStructures) {
+        this(
+                access,
+                name,
+                declaringClassStructure,
+                new LazyGet<ClassStructure>() {
+                    @Override
+                    protected ClassStructure initialValue() {
+                        return returnTypeClassStructure;
+                    }
+                },
+                toLazyGet(parameterTypeClassStructures),
+                toLazyGet(exceptionTypeClassStructures),
+                toLazyGet(annotationTypeClassStructures)
+        );
+    }
+
+    BehaviorStructure(final Access access,
+                      final String name,
+                      final ClassStructure declaringClassStructure,
+                      final LazyGet<ClassStructure> returnTypeClassStructureLazyGet,
+                      final LazyGet<List<ClassStructure>> parameterTypeClassStructuresLazyGet,
+                      final LazyGet<List<ClassStructure>> exceptionTypeClassStructuresLazyGet,
+                      final LazyGet<List<ClassStructure>> annotationTypeClassStructuresLazyGet) {
         super(access, name, declaringClassStructure);
-        this.returnTypeClassStructure = returnTypeClassStructure;
-        this.parameterTypeClassStructures = Collections.unmodifiableList(parameterTypeClassStructures);
-        this.exceptionTypeClassStructures = Collections.unmodifiableList(exceptionTypeClassStructures);
-        this.annotationTypeClassStructures = Collections.unmodifiableList(annotationTypeClassStructures);
+        this.returnTypeClassStructureLazyGet = returnTypeClassStructureLazyGet;
+        this.parameterTypeClassStructuresLazyGet = parameterTypeClassStructuresLazyGet;
+        this.exceptionTypeClassStructuresLazyGet = exceptionTypeClassStructuresLazyGet;
+        this.annotationTypeClassStructuresLazyGet = annotationTypeClassStructuresLazyGet;
+    }
+
+    private static LazyGet<List<ClassStructure>> toLazyGet(final List<ClassStructure> classStructures) {
+        final List<ClassStructure> unmodifiableClassStructures = Collections.unmodifiableList(classStructures);
+        return new LazyGet<List<ClassStructure>>() {
+            @Override
+            protected List<ClassStructure> initialValue() {
+                return unmodifiableClassStructures;
+            }
+        };
     }
 
     /**
@@ -48,7 +85,7 @@ public class BehaviorStructure extends MemberStructure {
      * @return 返回类型类结构
      */
     public ClassStructure getReturnTypeClassStructure() {
-        return returnTypeClassStructure;
+        return returnTypeClassStructureLazyGet.get();
     }
 
     /**
@@ -57,7 +94,7 @@ public class BehaviorStructure extends MemberStructure {
      * @return 参数类型结构集合
      */
     public List<ClassStructure> getParameterTypeClassStructures() {
-        return parameterTypeClassStructures;
+        return parameterTypeClassStructuresLazyGet.get();
     }
 
     /**
@@ -66,7 +103,7 @@ public class BehaviorStructure extends MemberStructure {
      * @return 声明异常类型结构集合
      */
     public List<ClassStructure> getExceptionTypeClassStructures() {
-        return exceptionTypeClassStructures;
+        return exceptionTypeClassStructuresLazyGet.get();
     }
 
     /**
@@ -75,7 +112,58 @@ public class BehaviorStructure extends MemberStructure {
      * @return 元注释类型结构集合
      */
     public List<ClassStructure> getAnnotationTypeClassStructures() {
-        return annotationTypeClassStructures;
+        return annotationTypeClassStructuresLazyGet.get();
+    }
+
+    private final LazyGet<String[]> parameterTypeJavaClassNameArrayLazyGet = new LazyGet<String[]>() {
+        @Override
+        protected String[] initialValue() {
+            return takeJavaClassNames(getParameterTypeClassStructures()).toArray(new String[0]);
+        }
+    };
+
+    /**
+     * 获取参数类型类名数组
+     * <p>只在第一次获取时构造，之后返回同一个数组，调用方不允许修改</p>
+     *
+     * @return 参数类型类名数组
+     */
+    public String[] getParameterTypeJavaClassNameArray() {
+        return parameterTypeJavaClassNameArrayLazyGet.get();
+    }
+
+    private final LazyGet<String[]> exceptionTypeJavaClassNameArrayLazyGet = new LazyGet<String[]>() {
+        @Override
+        protected String[] initialValue() {
+            return takeJavaClassNames(getExceptionTypeClassStructures()).toArray(new String[0]);
+        }
+    };
+
+    /**
+     * 获取声明异常类型类名数组
+     * <p>只在第一次获取时构造，之后返回同一个数组，调用方不允许修改</p>
+     *
+     * @return 声明异常类型类名数组
+     */
+    public String[] getExceptionTypeJavaClassNameArray() {
+        return exceptionTypeJavaClassNameArrayLazyGet.get();
+    }
+
+    private final LazyGet<String[]> annotationTypeJavaClassNameArrayLazyGet = new LazyGet<String[]>() {
+        @Override
+        protected String[] initialValue() {
+            return takeJavaClassNames(getAnnotationTypeClassStructures()).toArray(new String[0]);
+        }
+    };
+
+    /**
+     * 获取元注释类型类名数组
+     * <p>只在第一次获取时构造，之后返回同一个数组，调用方不允许修改</p>
+     *
+     * @return 元注释类型类名数组
+     */
+    public String[] getAnnotationTypeJavaClassNameArray() {
+        return annotationTypeJavaClassNameArrayLazyGet.get();
     }
 
     private Collection<String> takeJavaClassNames(final Collection<ClassStructure> classStructures) {
@@ -94,7 +182,7 @@ public class BehaviorStructure extends MemberStructure {
                     "#" +
                     getName() +
                     "(" +
-                    join(takeJavaClassNames(getParameterTypeClassStructures()), ",") +
+                    join(getParameterTypeJavaClassNameArray(), ",") +
                     ")";
         }
     };
@@ -62,6 +62,16 @@ public interface ClassStructure {
      */
     Set<ClassStructure> getFamilyInterfaceClassStructures();
 
+    /**
+     * 获取家族接口类名数组
+     * <p>
+     * 与{@link #getFamilyInterfaceClassStructures()}对应，只在第一次获取时构造，之后返回同一个数组，调用方不允许修改
+     * </p>
+     *
+     * @return 家族接口类名数组
+     */
+    String[] getFamilyInterfaceJavaClassNameArray();
+
     /**
      * 获取类型结构集合
      * <p>
@@ -99,6 +109,16 @@ public interface ClassStructure {
      */
     Set<ClassStructure> getFamilyAnnotationTypeClassStructures();
 
+    /**
+     * 获取家族元注释类型类名数组
+     * <p>
+     * 与{@link #getFamilyAnnotationTypeClassStructures()}对应，只在第一次获取时构造，之后返回同一个数组，调用方不允许修改
+     * </p>
+     *
+     * @return 家族元注释类型类名数组
+     */
+    String[] getFamilyAnnotationTypeJavaClassNameArray();
+
     /**
      * 获取行为(构造函数和方法)的结构集合
      *
@@ -0,0 +1,145 @@
+package com.alibaba.jvm.sandbox.core.util.matcher.structure;
+
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * 类结构缓存
+ * <p>
+ * 解析类的家族关系时，会从ClassLoader中读取父类、接口、注解等类的字节码构造类结构，
+ * 同一个ClassLoader中的同一个类只需要解析一次
+ * </p>
+ * <p>
+ * 1. 以ClassLoader的对象ID({@link ObjectIDs})和类名作为缓存的KEY，类结构对ClassLoader也只是弱引用，
+ * 缓存不会阻碍ClassLoader的卸载，已卸载的ClassLoader对应的条目会随着容量限制被淘汰
+ * 2. 容量可以按条目数量或字节码总字节数限制，两者同时配置时以字节数为准
+ * 3. 可以按ClassLoader主动失效，例如模块卸载时
+ * </p>
+ */
+public class ClassStructureCache {
+
+    /**
+     * 默认最多缓存的类结构数量
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private static volatile ClassStructureCache instance = new ClassStructureCache(DEFAULT_MAXIMUM_SIZE, 0);
+
+    private final Cache<Key, ClassStructureImplByAsm> cache;
+
+    private ClassStructureCache(final long maximumSize,
+                                final long maximumWeight) {
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        if (maximumWeight > 0) {
+            builder.maximumWeight(maximumWeight).weigher((Key key, ClassStructureImplByAsm value) -> value.getByteCodeLength());
+        } else {
+            builder.maximumSize(maximumSize > 0 ? maximumSize : DEFAULT_MAXIMUM_SIZE);
+        }
+        this.cache = builder.build();
+    }
+
+    /**
+     * 按配置重新初始化类结构缓存，已缓存的类结构会被丢弃
+     *
+     * @param maximumSize   最多缓存的类结构数量，小于等于0时使用默认值
+     * @param maximumWeight 最多缓存的字节码总字节数，小于等于0时不按字节数限制
+     */
+    public static void init(final long maximumSize,
+                            final long maximumWeight) {
+        instance = new ClassStructureCache(maximumSize, maximumWeight);
+    }
+
+    /**
+     * 获取类结构缓存
+     *
+     * @return 类结构缓存
+     */
+    public static ClassStructureCache getInstance() {
+        return instance;
+    }
+
+    ClassStructureImplByAsm get(final ClassLoader loader,
+                                final String javaClassName) {
+        return cache.getIfPresent(new Key(loader, javaClassName));
+    }
+
+    void put(final ClassLoader loader,
+             final String javaClassName,
+             final ClassStructureImplByAsm classStructure) {
+        cache.put(new Key(loader, javaClassName), classStructure);
+    }
+
+    /**
+     * 失效指定ClassLoader的所有类结构
+     *
+     * @param loader ClassLoader
+     */
+    public void invalidate(final ClassLoader loader) {
+        // 只查找已分配的ID，从未登记过的ClassLoader不会有缓存的类结构，也不必为它分配ID
+        final int classLoaderObjectID = ObjectIDs.instance.getIdentity(loader);
+        if (null != loader && ObjectIDs.NULL_ID == classLoaderObjectID) {
+            return;
+        }
+        cache.asMap().keySet().removeIf(key -> key.classLoaderObjectID == classLoaderObjectID);
+    }
+
+    /**
+     * 失效所有类结构
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 获取缓存的类结构数量
+     *
+     * @return 类结构数量
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * 获取缓存统计
+     *
+     * @return 缓存统计
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // 缓存KEY
+    private static class Key {
+
+        private final int classLoaderObjectID;
+        private final String javaClassName;
+
+        private Key(final ClassLoader loader,
+                    final String javaClassName) {
+            this.classLoaderObjectID = ObjectIDs.instance.identity(loader);
+            this.javaClassName = javaClassName;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * classLoaderObjectID + javaClassName.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) obj;
+            return classLoaderObjectID == key.classLoaderObjectID
+                    && javaClassName.equals(key.javaClassName);
+        }
+
+    }
+
+}
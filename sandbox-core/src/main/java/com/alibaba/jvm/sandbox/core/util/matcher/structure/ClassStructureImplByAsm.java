@@ -2,10 +2,7 @@ package com.alibaba.jvm.sandbox.core.util.matcher.structure;
 
 import com.alibaba.jvm.sandbox.api.util.LazyGet;
 import com.alibaba.jvm.sandbox.core.util.BitUtils;
-import com.alibaba.jvm.sandbox.core.util.collection.Pair;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.PrimitiveClassStructure.Primitive;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.objectweb.asm.*;
@@ -14,6 +11,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -102,6 +100,8 @@ class AccessImplByAsm implements Access {
 
 class EmptyClassStructure implements ClassStructure {
 
+    private static final String[] EMPTY_STRING_ARRAY = new String[0];
+
     @Override
     public String getJavaClassName() {
         return null;
@@ -132,6 +132,11 @@ class EmptyClassStructure implements ClassStructure {
         return Collections.emptySet();
     }
 
+    @Override
+    public String[] getFamilyInterfaceJavaClassNameArray() {
+        return EMPTY_STRING_ARRAY;
+    }
+
     @Override
     public Set<ClassStructure> getFamilyTypeClassStructures() {
         return Collections.emptySet();
@@ -147,6 +152,11 @@ class EmptyClassStructure implements ClassStructure {
         return Collections.emptySet();
     }
 
+    @Override
+    public String[] getFamilyAnnotationTypeJavaClassNameArray() {
+        return EMPTY_STRING_ARRAY;
+    }
+
     @Override
     public List<BehaviorStructure> getBehaviorStructures() {
         return Collections.emptyList();
@@ -233,7 +243,11 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final ClassReader classReader;
-    private final ClassLoader loader;
+    private final int byteCodeLength;
+
+    // 类结构会被缓存，所以对ClassLoader只能持有弱引用，避免阻碍ClassLoader的卸载
+    private final WeakReference<ClassLoader> loaderRef;
+    private final boolean isBootstrapClassLoader;
     private final Access access;
 
     ClassStructureImplByAsm(final InputStream classInputStream,
@@ -244,7 +258,9 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
     ClassStructureImplByAsm(final byte[] classByteArray,
                             final ClassLoader loader) {
         this.classReader = new ClassReader(classByteArray);
-        this.loader = loader;
+        this.byteCodeLength = classByteArray.length;
+        this.loaderRef = new WeakReference<>(loader);
+        this.isBootstrapClassLoader = null == loader;
         this.access = fixAccess();
     }
 
@@ -268,7 +284,12 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
     }
 
     private boolean isBootstrapClassLoader() {
-        return null == loader;
+        return isBootstrapClassLoader;
+    }
+
+    // 字节码长度，作为类结构缓存的权重
+    int getByteCodeLength() {
+        return byteCodeLength;
     }
 
     // 获取资源数据流
@@ -289,7 +310,10 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
                 // pass
             }
         } else {
-            ins = loader.getResourceAsStream(resourceName);
+            final ClassLoader loader = loaderRef.get();
+            if (null != loader) {
+                ins = loader.getResourceAsStream(resourceName);
+            }
         }
         return ins;
     }
@@ -299,9 +323,6 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
         return internalClassName + ".class";
     }
 
-    private final static Cache<Pair, ClassStructure> classStructureCache
-            = CacheBuilder.newBuilder().maximumSize(1024).build();
-
     // 构造一个类结构实例
     private ClassStructure newInstance(final String javaClassName) {
 
@@ -321,8 +342,14 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
             return new PrimitiveClassStructure(primitive);
         }
 
-        final Pair pair = new Pair(loader, javaClassName);
-        final ClassStructure existClassStructure = classStructureCache.getIfPresent(pair);
+        // ClassLoader已经被回收，不会再有类需要解析
+        final ClassLoader loader = getClassLoader();
+        if (!isBootstrapClassLoader && null == loader) {
+            return null;
+        }
+
+        final ClassStructureCache classStructureCache = ClassStructureCache.getInstance();
+        final ClassStructure existClassStructure = classStructureCache.get(loader, javaClassName);
         if (null != existClassStructure) {
             return existClassStructure;
         } else {
@@ -330,14 +357,13 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
             final InputStream is = getResourceAsStream(toJavaClassName(javaClassName));
             if (null != is) {
                 try {
-                    final ClassStructure classStructure = new ClassStructureImplByAsm(is, loader);
-                    classStructureCache.put(pair, classStructure);
+                    final ClassStructureImplByAsm classStructure = new ClassStructureImplByAsm(is, loader);
+                    classStructureCache.put(loader, javaClassName, classStructure);
                     return classStructure;
                 } catch (Throwable cause) {
                     // ignore
                     logger.warn("new instance class structure by using ASM failed, will return null. class={};loader={};",
                             javaClassName, loader, cause);
-                    classStructureCache.put(pair, null);
                 } finally {
                     IOUtils.closeQuietly(is);
                 }
@@ -375,7 +401,7 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
 
     @Override
     public ClassLoader getClassLoader() {
-        return loader;
+        return loaderRef.get();
     }
 
     private final LazyGet<ClassStructure> superClassStructureLazyGet
@@ -457,10 +483,11 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
                         return super.visitMethod(access, name, desc, signature, exceptions);
                     }
 
+                    // 返回、参数、异常、元注释类型的类结构都需要读取对应类的字节码，所以推迟到第一次获取时才解析
                     return new MethodVisitor(ASM7, super.visitMethod(access, name, desc, signature, exceptions)) {
 
                         private final Type methodType = Type.getMethodType(desc);
-                        private final List<ClassStructure> annotationTypeClassStructures = new ArrayList<>();
+                        private final List<String> annotationTypeJavaClassNames = new ArrayList<>();
 
                         private String[] typeArrayToJavaClassNameArray(final Type[] typeArray) {
                             final List<String> javaClassNames = new ArrayList<>();
@@ -490,10 +517,7 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
                         @Override
                         public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
                             if (visible) {
-                                final ClassStructure annotationTypeClassStructure = newInstance(Type.getType(desc).getClassName());
-                                if (null != annotationTypeClassStructure) {
-                                    annotationTypeClassStructures.add(annotationTypeClassStructure);
-                                }
+                                annotationTypeJavaClassNames.add(Type.getType(desc).getClassName());
                             }
                             return super.visitAnnotation(desc, visible);
                         }
@@ -505,10 +529,32 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
                                     new AccessImplByAsm(access),
                                     name,
                                     ClassStructureImplByAsm.this,
-                                    getReturnTypeClassStructure(),
-                                    getParameterTypeClassStructures(),
-                                    newInstances(exceptions),
-                                    annotationTypeClassStructures
+                                    new LazyGet<ClassStructure>() {
+                                        @Override
+                                        protected ClassStructure initialValue() {
+                                            return getReturnTypeClassStructure();
+                                        }
+                                    },
+                                    new LazyGet<List<ClassStructure>>() {
+                                        @Override
+                                        protected List<ClassStructure> initialValue() {
+                                            return Collections.unmodifiableList(getParameterTypeClassStructures());
+                                        }
+                                    },
+                                    new LazyGet<List<ClassStructure>>() {
+                                        @Override
+                                        protected List<ClassStructure> initialValue() {
+                                            return Collections.unmodifiableList(newInstances(exceptions));
+                                        }
+                                    },
+                                    new LazyGet<List<ClassStructure>>() {
+                                        @Override
+                                        protected List<ClassStructure> initialValue() {
+                                            return Collections.unmodifiableList(
+                                                    newInstances(annotationTypeJavaClassNames.toArray(new String[0]))
+                                            );
+                                        }
+                                    }
                             );
                             behaviorStructures.add(behaviorStructure);
                         }
@@ -1,8 +1,11 @@
 package com.alibaba.jvm.sandbox.core.util.matcher.structure;
 
 import com.alibaba.jvm.sandbox.api.util.LazyGet;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -105,21 +108,40 @@ class AccessImplByJDKBehavior extends ModifierAccess {
 
 /**
  * 用JDK的反射实现的类结构
+ * <p>
+ * 父类、接口、注解、参数等类型的类结构在所有类结构之间共享，
+ * 匹配大量已加载类时公共祖先的类结构以及家族关系只需要构造一次
+ * </p>
  */
 public class ClassStructureImplByJDK extends FamilyClassStructure {
 
-    private final Class<?> clazz;
+    // 共享的类结构，类结构对类只持有弱引用，所以类被卸载之后对应的条目也会被回收
+    private static final Cache<Class<?>, ClassStructure> sharedClassStructureCache
+            = CacheBuilder.newBuilder().weakKeys().maximumSize(ClassStructureCache.DEFAULT_MAXIMUM_SIZE).build();
+
+    private final WeakReference<Class<?>> clazzRef;
     private String javaClassName;
 
     public ClassStructureImplByJDK(final Class<?> clazz) {
-        this.clazz = clazz;
+        this.clazzRef = new WeakReference<>(clazz);
+    }
+
+    // 类结构只会在类存活期间被使用
+    private Class<?> getTargetClass() {
+        return clazzRef.get();
     }
 
     private ClassStructure newInstance(final Class<?> clazz) {
         if (null == clazz) {
             return null;
         }
-        return new ClassStructureImplByJDK(clazz);
+        final ClassStructure existClassStructure = sharedClassStructureCache.getIfPresent(clazz);
+        if (null != existClassStructure) {
+            return existClassStructure;
+        }
+        final ClassStructure classStructure = new ClassStructureImplByJDK(clazz);
+        sharedClassStructureCache.put(clazz, classStructure);
+        return classStructure;
     }
 
     private List<ClassStructure> newInstances(final Class[] classArray) {
@@ -139,7 +161,7 @@ public class ClassStructureImplByJDK extends FamilyClassStructure {
     public String getJavaClassName() {
         return null != javaClassName
                 ? javaClassName
-                : (javaClassName = getJavaClassName(clazz));
+                : (javaClassName = getJavaClassName(getTargetClass()));
     }
 
     private String getJavaClassName(Class<?> clazz) {
@@ -152,20 +174,37 @@ public class ClassStructureImplByJDK extends FamilyClassStructure {
 
     @Override
     public ClassLoader getClassLoader() {
-        return clazz.getClassLoader();
+        return getTargetClass().getClassLoader();
     }
 
+    private final LazyGet<ClassStructure> superClassStructureLazyGet
+            = new LazyGet<ClassStructure>() {
+        @Override
+        protected ClassStructure initialValue() {
+            final Class<?> superClass = getTargetClass().getSuperclass();
+            // 过滤掉Object.class
+            return Object.class.equals(superClass)
+                    ? null
+                    : newInstance(superClass);
+        }
+    };
+
     @Override
     public ClassStructure getSuperClassStructure() {
-        // 过滤掉Object.class
-        return Object.class.equals(clazz.getSuperclass())
-                ? null
-                : newInstance(clazz.getSuperclass());
+        return superClassStructureLazyGet.get();
     }
 
+    private final LazyGet<List<ClassStructure>> interfaceClassStructuresLazyGet
+            = new LazyGet<List<ClassStructure>>() {
+        @Override
+        protected List<ClassStructure> initialValue() {
+            return Collections.unmodifiableList(newInstances(getTargetClass().getInterfaces()));
+        }
+    };
+
     @Override
     public List<ClassStructure> getInterfaceClassStructures() {
-        return newInstances(clazz.getInterfaces());
+        return interfaceClassStructuresLazyGet.get();
     }
 
     private Class[] getAnnotationTypeArray(final Annotation[] annotationArray) {
@@ -187,7 +226,7 @@ public class ClassStructureImplByJDK extends FamilyClassStructure {
             = new LazyGet<List<ClassStructure>>() {
         @Override
         protected List<ClassStructure> initialValue() {
-            return Collections.unmodifiableList(newInstances(getAnnotationTypeArray(clazz.getDeclaredAnnotations())));
+            return Collections.unmodifiableList(newInstances(getAnnotationTypeArray(getTargetClass().getDeclaredAnnotations())));
         }
     };
 
@@ -225,6 +264,7 @@ public class ClassStructureImplByJDK extends FamilyClassStructure {
         @Override
         protected List<BehaviorStructure> initialValue() {
             final List<BehaviorStructure> behaviorStructures = new ArrayList<>();
+            final Class<?> clazz = getTargetClass();
             for (final Constructor<?> constructor : clazz.getDeclaredConstructors()) {
                 behaviorStructures.add(newBehaviorStructure(constructor));
             }
@@ -242,7 +282,7 @@ public class ClassStructureImplByJDK extends FamilyClassStructure {
 
     @Override
     public Access getAccess() {
-        return new AccessImplByJDKClass(clazz);
+        return new AccessImplByJDKClass(getTargetClass());
     }
 
     @Override
@@ -3,10 +3,20 @@ package com.alibaba.jvm.sandbox.core.util.matcher.structure;
 import com.alibaba.jvm.sandbox.api.util.LazyGet;
 
 import java.lang.annotation.Inherited;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
+/**
+ * 家族类结构
+ * <p>
+ * 家族关系只在第一次获取时计算，并且直接复用父类、接口已经计算好的家族关系，
+ * 父类、接口的类结构在类结构之间共享时，公共祖先的家族关系在整个匹配过程中只需要计算一次
+ * </p>
+ */
 public abstract class FamilyClassStructure implements ClassStructure {
 
     private final LazyGet<Set<ClassStructure>> familyInterfaceClassStructuresLazyGet
@@ -23,7 +33,9 @@ public abstract class FamilyClassStructure implements ClassStructure {
 
             // BUGFIX: 修复获取家族接口类结构时忘记考虑自身父类的情况
             // AUTHOR: oldmanpushcart@gmail.com
-            for (final ClassStructure superClassStructure : getFamilySuperClassStructures()) {
+            // 父类的家族接口已经包含了所有祖先类的接口，所以只需要合并直接父类的家族接口
+            final ClassStructure superClassStructure = getSuperClassStructure();
+            if (null != superClassStructure) {
                 familyInterfaceClassStructures.addAll(superClassStructure.getFamilyInterfaceClassStructures());
             }
 
@@ -36,6 +48,19 @@ public abstract class FamilyClassStructure implements ClassStructure {
         return familyInterfaceClassStructuresLazyGet.get();
     }
 
+    private final LazyGet<String[]> familyInterfaceJavaClassNameArrayLazyGet
+            = new LazyGet<String[]>() {
+        @Override
+        protected String[] initialValue() {
+            return toJavaClassNameArray(getFamilyInterfaceClassStructures());
+        }
+    };
+
+    @Override
+    public String[] getFamilyInterfaceJavaClassNameArray() {
+        return familyInterfaceJavaClassNameArrayLazyGet.get();
+    }
+
 
     private final LazyGet<Set<ClassStructure>> familyTypeClassStructuresLazyGet
             = new LazyGet<Set<ClassStructure>>() {
@@ -43,17 +68,11 @@ public abstract class FamilyClassStructure implements ClassStructure {
         protected Set<ClassStructure> initialValue() {
             final Set<ClassStructure> familyClassStructures = new LinkedHashSet<>();
 
-            // 注入家族类&家族类所声明的家族接口
-            for (final ClassStructure familySuperClassStructure : getFamilySuperClassStructures()) {
-                familyClassStructures.add(familySuperClassStructure);
-                familyClassStructures.addAll(familySuperClassStructure.getFamilyInterfaceClassStructures());
-            }
+            // 注入家族类
+            familyClassStructures.addAll(getFamilySuperClassStructures());
 
-            // 注入家族接口
-            for (final ClassStructure familyInterfaceClassStructure : getFamilyInterfaceClassStructures()) {
-                familyClassStructures.add(familyInterfaceClassStructure);
-                familyClassStructures.addAll(familyInterfaceClassStructure.getFamilyInterfaceClassStructures());
-            }
+            // 注入家族接口，家族类所声明的家族接口以及接口的祖先都已经包含在其中
+            familyClassStructures.addAll(getFamilyInterfaceClassStructures());
             return familyClassStructures;
         }
     };
@@ -77,7 +96,7 @@ public abstract class FamilyClassStructure implements ClassStructure {
     }
 
     // 过滤掉没有@Inherited标注的Annotation，因为他们不能继承
-    private Set<ClassStructure> newSetWithFilterInheritedAnnotationTypeClassStructure(final Set<ClassStructure> classStructures) {
+    private Set<ClassStructure> newSetWithFilterInheritedAnnotationTypeClassStructure(final Collection<ClassStructure> classStructures) {
         final Set<ClassStructure> inheritedAnnotationSet = new LinkedHashSet<>();
         for (final ClassStructure classStructure : classStructures) {
             if (isInheritedAnnotationType(classStructure)) {
@@ -92,10 +111,11 @@ public abstract class FamilyClassStructure implements ClassStructure {
         @Override
         protected Set<ClassStructure> initialValue() {
             final Set<ClassStructure> familyAnnotationTypeClassStructures = new HashSet<>(getAnnotationTypeClassStructures());
+            // 家族成员已经包含了家族成员的所有祖先，所以只需要收集每个家族成员自身声明的可继承注解
             for (final ClassStructure familyClassStructure : getFamilyTypeClassStructures()) {
                 familyAnnotationTypeClassStructures.addAll(
                         newSetWithFilterInheritedAnnotationTypeClassStructure(
-                                familyClassStructure.getFamilyAnnotationTypeClassStructures()
+                                familyClassStructure.getAnnotationTypeClassStructures()
                         )
                 );//addAll
             }//for
@@ -108,6 +128,27 @@ public abstract class FamilyClassStructure implements ClassStructure {
         return familyAnnotationTypeClassStructuresLazyGet.get();
     }
 
+    private final LazyGet<String[]> familyAnnotationTypeJavaClassNameArrayLazyGet
+            = new LazyGet<String[]>() {
+        @Override
+        protected String[] initialValue() {
+            return toJavaClassNameArray(getFamilyAnnotationTypeClassStructures());
+        }
+    };
+
+    @Override
+    public String[] getFamilyAnnotationTypeJavaClassNameArray() {
+        return familyAnnotationTypeJavaClassNameArrayLazyGet.get();
+    }
+
+    private static String[] toJavaClassNameArray(final Collection<ClassStructure> classStructures) {
+        final List<String> javaClassNames = new ArrayList<>();
+        for (final ClassStructure classStructure : classStructures) {
+            javaClassNames.add(classStructure.getJavaClassName());
+        }
+        return javaClassNames.toArray(new String[0]);
+    }
+
     private final LazyGet<LinkedHashSet<ClassStructure>> familySuperClassStructuresLazyGet
             = new LazyGet<LinkedHashSet<ClassStructure>>() {
         @Override
@@ -7,6 +7,8 @@ import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
 import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper.ThirdTransformer;
 import org.junit.Test;
 
+import java.lang.ref.WeakReference;
+
 import static com.alibaba.jvm.sandbox.api.ProcessController.returnImmediately;
 import static com.alibaba.jvm.sandbox.api.ProcessController.throwsImmediately;
 import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
@@ -15,6 +17,8 @@ import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.Test
 import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.TestCase.SUM$EXCEPTION;
 import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 /**
@@ -997,4 +1001,40 @@ public class CalculatorImplByAdviceListenerTestCase implements ICalculatorTestCa
             "AFTER|com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.report(java.lang.String)|TRUE"
         );
     }
+    /*
+     * 在独立的ClassLoader中增强并调用一次，只返回ClassLoader的弱引用
+     */
+    private static WeakReference<ClassLoader> sumInDroppedClassLoader(final TracingAdviceListener listener) throws Throwable {
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        new JvmHelper.Transformer(
+                                CALCULATOR_SUM_FILTER,
+                                listener
+                        )
+                ).loadClass(CALCULATOR_CLASS_NAME);
+        assertEquals(30, sum(newInstance(calculatorClass), 10, 20));
+        listener.assertTracing(
+                "BEFORE|com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.sum(int[])|TRUE",
+                "RETURN|com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.sum(int[])|TRUE",
+                "AFTER|com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.sum(int[])|TRUE"
+        );
+        return new WeakReference<>(calculatorClass.getClassLoader());
+    }
+
+    @Test
+    public void cal$sum$classLoaderCollected() throws Throwable {
+        final TracingAdviceListener listener = new TracingAdviceListener();
+        final WeakReference<ClassLoader> loaderRef = sumInDroppedClassLoader(listener);
+
+        // 监听器仍然存活，但不能因为缓存了行为而阻止业务ClassLoader被回收
+        for (int i = 0; i < 50 && null != loaderRef.get(); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(loaderRef.get());
+        assertNotNull(listener);
+    }
+
 }
@@ -2,6 +2,8 @@ package com.alibaba.jvm.sandbox.qatest.core.enhance;
 
 import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ListenerIDs;
 import com.alibaba.jvm.sandbox.qatest.core.enhance.listener.LineNumTracingEventListener;
 import com.alibaba.jvm.sandbox.qatest.core.enhance.listener.TracingEventListener;
 import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
@@ -9,6 +11,11 @@ import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.alibaba.jvm.sandbox.api.ProcessController.returnImmediately;
 import static com.alibaba.jvm.sandbox.api.ProcessController.throwsImmediately;
 import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
@@ -16,7 +23,11 @@ import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.ERRO
 import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.TestCase.ADD$EXCEPTION;
 import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.TestCase.SUM$EXCEPTION;
 import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.*;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class CalculatorImplByEventListenerTestCase implements ICalculatorTestCase {
@@ -994,4 +1005,157 @@ public class CalculatorImplByEventListenerTestCase implements ICalculatorTestCas
             RETURN
         );
     }
+
+    @Test
+    public void cal$sum$frozen() throws Throwable {
+        final TracingEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        CALCULATOR_SUM_FILTER,
+                        listener = new TracingEventListener(),
+                        BEFORE, RETURN, THROWS, LINE, CALL_BEFORE, CALL_RETURN, CALL_THROWS
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        final int listenerId = ListenerIDs.instance.identity(listener);
+        EventListenerHandler.getSingleton().frozen(listenerId);
+        assertFalse(Spy.isListenerActivated(listenerId));
+
+        assertEquals(30, sum(newInstance(calculatorClass), 10,20));
+        assertTrue(listener.getEventTracing().isEmpty());
+    }
+
+    /*
+     * 在当前线程中触发一次事件后冻结监听器，只返回监听器的弱引用
+     */
+    private static WeakReference<TracingEventListener> sumThenFrozen() throws Throwable {
+        final TracingEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        CALCULATOR_SUM_FILTER,
+                        listener = new TracingEventListener(),
+                        BEFORE, RETURN, THROWS
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+        assertEquals(30, sum(newInstance(calculatorClass), 10,20));
+        listener.assertEventTracing(
+                BEFORE,
+                RETURN
+        );
+        EventListenerHandler.getSingleton().frozen(ListenerIDs.instance.identity(listener));
+        return new WeakReference<>(listener);
+    }
+
+    @Test
+    public void cal$sum$frozen$collected() throws Throwable {
+        final WeakReference<TracingEventListener> listenerRef = sumThenFrozen();
+
+        // 当前线程的上下文中仍然留有处理单元，但不能因此阻止已冻结的监听器被回收
+        for (int i = 0; i < 50 && null != listenerRef.get(); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(listenerRef.get());
+    }
+
+    @Test
+    public void cal$sum$multiListenersInOnePass() throws Throwable {
+        final TracingEventListener firstListener;
+        final TracingEventListener secondListener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClassInOnePass(
+                        Calculator.class,
+                        new JvmHelper.Transformer(
+                                CALCULATOR_SUM_FILTER,
+                                firstListener = new TracingEventListener(),
+                                BEFORE, RETURN, THROWS
+                        ),
+                        new JvmHelper.Transformer(
+                                CALCULATOR_SUM_FILTER,
+                                secondListener = new TracingEventListener(),
+                                BEFORE, RETURN, THROWS
+                        )
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+        assertEquals(30, sum(newInstance(calculatorClass), 10, 20));
+        firstListener.assertEventTracing(
+                BEFORE,
+                RETURN
+        );
+        secondListener.assertEventTracing(
+                BEFORE,
+                RETURN
+        );
+    }
+
+    @Test
+    public void cal$pow$before$withArguments() throws Throwable {
+        final List<Object[]> argumentArrays = new ArrayList<>();
+        final TracingEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        new JvmHelper.Transformer(
+                                CALCULATOR_POW_FILTER,
+                                listener = new TracingEventListener() {
+                                    @Override
+                                    public void onEvent(Event event) throws Throwable {
+                                        super.onEvent(event);
+                                        if (event instanceof BeforeEvent && argumentArrays.isEmpty()) {
+                                            final BeforeEvent beforeEvent = (BeforeEvent) event;
+                                            argumentArrays.add(beforeEvent.argumentArray.clone());
+                                            beforeEvent.changeParameter(0, 3);
+                                            beforeEvent.changeParameter(1, 4);
+                                        }
+                                    }
+                                },
+                                BEFORE
+                        ).withArguments(1)
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        // 未采集的参数不会写回，只有n被修改为4
+        assertEquals(16, pow(newInstance(calculatorClass), 2, 3));
+        assertEquals(1, argumentArrays.size());
+        assertArrayEquals(new Object[]{null, 3}, argumentArrays.get(0));
+        listener.assertEventTracing(BEFORE, BEFORE, BEFORE, BEFORE, BEFORE);
+    }
+
+    @Test
+    public void cal$pow$before$withoutArguments() throws Throwable {
+        final List<Object[]> argumentArrays = new ArrayList<>();
+        final TracingEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        new JvmHelper.Transformer(
+                                CALCULATOR_POW_FILTER,
+                                listener = new TracingEventListener() {
+                                    @Override
+                                    public void onEvent(Event event) throws Throwable {
+                                        super.onEvent(event);
+                                        if (event instanceof BeforeEvent) {
+                                            argumentArrays.add(((BeforeEvent) event).argumentArray);
+                                        }
+                                    }
+                                },
+                                BEFORE, RETURN
+                        ).withArguments()
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        assertEquals(8, pow(newInstance(calculatorClass), 2, 3));
+        assertEquals(4, argumentArrays.size());
+        for (final Object[] argumentArray : argumentArrays) {
+            assertSame(Spy.EMPTY_ARGUMENT_ARRAY, argumentArray);
+        }
+        listener.assertEventTracing(BEFORE, BEFORE, BEFORE, BEFORE, RETURN, RETURN, RETURN, RETURN);
+    }
 }
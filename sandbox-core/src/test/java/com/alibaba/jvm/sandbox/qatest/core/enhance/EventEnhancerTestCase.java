@@ -0,0 +1,111 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.Enhancer;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.util.SpyUtils;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.util.Textifier;
+import org.objectweb.asm.util.TraceMethodVisitor;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+import static org.junit.Assert.*;
+
+public class EventEnhancerTestCase {
+
+    private static final String NAMESPACE = "default";
+    private static final String SUM_METHOD = "sum([I)I";
+
+    @BeforeClass
+    public static void initSpy() {
+        SpyUtils.init(NAMESPACE);
+    }
+
+    private static byte[] weavingSum(final byte[] byteCodes) {
+        final Enhancer.Weaving weaving = new Enhancer.Weaving(
+                Collections.singleton(Calculator.class.getName() + "#sum(int[])"),
+                Integer.MAX_VALUE,
+                new Event.Type[]{BEFORE, RETURN, THROWS},
+                null
+        );
+        return new EventEnhancer("$$SANDBOX$").toByteCodeArray(
+                EventEnhancerTestCase.class.getClassLoader(),
+                byteCodes,
+                NAMESPACE,
+                Collections.singletonList(weaving)
+        );
+    }
+
+    // 以文本形式输出每个方法的字节码，包括原有的栈帧
+    private static Map<String, String> toMethodTexts(final byte[] byteCodes) {
+        final Map<String, String> methodTexts = new LinkedHashMap<>();
+        new ClassReader(byteCodes).accept(new ClassVisitor(Opcodes.ASM7) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                final Textifier textifier = new Textifier();
+                return new MethodVisitor(Opcodes.ASM7, new TraceMethodVisitor(textifier)) {
+                    @Override
+                    public void visitEnd() {
+                        super.visitEnd();
+                        final StringWriter writer = new StringWriter();
+                        textifier.print(new PrintWriter(writer));
+                        methodTexts.put(name + desc, writer.toString());
+                    }
+                };
+            }
+        }, 0);
+        return methodTexts;
+    }
+
+    @Test
+    public void weaving$copyUntouchedMethods() throws Exception {
+        final Map<String, String> sourceMethodTexts = toMethodTexts(toByteArray(Calculator.class));
+        final Map<String, String> wovenMethodTexts = toMethodTexts(weavingSum(toByteArray(Calculator.class)));
+        assertEquals(sourceMethodTexts.keySet(), wovenMethodTexts.keySet());
+
+        // 只有被改写的方法发生了变化，其他方法连同栈帧原样保留
+        for (final Map.Entry<String, String> entry : sourceMethodTexts.entrySet()) {
+            if (SUM_METHOD.equals(entry.getKey())) {
+                assertFalse(entry.getValue().equals(wovenMethodTexts.get(entry.getKey())));
+            } else {
+                assertEquals(entry.getKey(), entry.getValue(), wovenMethodTexts.get(entry.getKey()));
+            }
+        }
+    }
+
+    @Test
+    public void weaving$skipFramesBeforeJava6() throws Exception {
+        // 将类的主版本号改为JDK5
+        final byte[] byteCodes = toByteArray(Calculator.class);
+        byteCodes[6] = 0;
+        byteCodes[7] = Opcodes.V1_5;
+
+        final byte[] wovenByteCodes = weavingSum(byteCodes);
+        assertFalse(toMethodTexts(wovenByteCodes).get(SUM_METHOD).contains("FRAME"));
+
+        // 没有栈帧的类由类型推导校验，依然可以正常加载和执行
+        final Class<?> calculatorClass = new ClassLoader(getClass().getClassLoader()) {
+            {
+                defineClass(Calculator.class.getName(), wovenByteCodes, 0, wovenByteCodes.length);
+            }
+        }.loadClass(Calculator.class.getName());
+        assertNotSame(Calculator.class, calculatorClass);
+        final Object calculator = calculatorClass.newInstance();
+        assertEquals(6, calculatorClass.getMethod("sum", int[].class).invoke(calculator, (Object) new int[]{1, 2, 3}));
+        assertEquals(8, calculatorClass.getMethod("pow", int.class, int.class).invoke(calculator, 2, 3));
+    }
+
+}
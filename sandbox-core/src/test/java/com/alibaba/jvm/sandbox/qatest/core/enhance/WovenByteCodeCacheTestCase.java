@@ -0,0 +1,87 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.Enhancer;
+import com.alibaba.jvm.sandbox.core.enhance.WovenByteCodeCache;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import com.google.common.hash.HashCode;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+import static org.junit.Assert.*;
+
+public class WovenByteCodeCacheTestCase {
+
+    private static final String CLASS_NAME = "com/alibaba/jvm/sandbox/qatest/core/enhance/target/Calculator";
+    private static final String SUM = Calculator.class.getName() + "#sum(int[])";
+    private static final String POW = Calculator.class.getName() + "#pow(int,int)";
+
+    @After
+    public void reset() {
+        WovenByteCodeCache.init(0);
+    }
+
+    private static HashCode toKey(final WovenByteCodeCache cache,
+                                  final Enhancer.Weaving weaving) throws IOException {
+        return cache.toKey(
+                WovenByteCodeCacheTestCase.class.getClassLoader(),
+                CLASS_NAME,
+                "default",
+                toByteArray(Calculator.class),
+                Collections.singletonList(weaving)
+        );
+    }
+
+    @Test
+    public void test$$WovenByteCodeCache$$key() throws IOException {
+        final WovenByteCodeCache cache = WovenByteCodeCache.getInstance();
+        final HashCode key = toKey(cache, new Enhancer.Weaving(
+                new HashSet<>(Arrays.asList(SUM, POW)), 1, new Event.Type[]{BEFORE, RETURN}, null));
+
+        // 行为签名的顺序不影响KEY
+        assertEquals(key, toKey(cache, new Enhancer.Weaving(
+                new LinkedHashSet<>(Arrays.asList(POW, SUM)), 1, new Event.Type[]{BEFORE, RETURN}, null)));
+
+        // 任何一个织入的输入不同，KEY都不同
+        assertFalse(key.equals(toKey(cache, new Enhancer.Weaving(
+                new HashSet<>(Arrays.asList(SUM, POW)), 2, new Event.Type[]{BEFORE, RETURN}, null))));
+        assertFalse(key.equals(toKey(cache, new Enhancer.Weaving(
+                new HashSet<>(Arrays.asList(SUM, POW)), 1, new Event.Type[]{BEFORE, THROWS}, null))));
+        assertFalse(key.equals(toKey(cache, new Enhancer.Weaving(
+                Collections.singleton(SUM), 1, new Event.Type[]{BEFORE, RETURN}, null))));
+        assertFalse(key.equals(toKey(cache, new Enhancer.Weaving(
+                new HashSet<>(Arrays.asList(SUM, POW)), 1, new Event.Type[]{BEFORE, RETURN}, new int[]{0}))));
+    }
+
+    @Test
+    public void test$$WovenByteCodeCache$$hit() throws IOException {
+        final WovenByteCodeCache disabledCache = WovenByteCodeCache.getInstance();
+        final Enhancer.Weaving weaving = new Enhancer.Weaving(Collections.singleton(SUM), 1, new Event.Type[]{BEFORE}, null);
+        final byte[] wovenByteCodes = new byte[]{1, 2, 3};
+
+        // 默认不开启
+        assertFalse(disabledCache.isEnabled());
+        disabledCache.put(toKey(disabledCache, weaving), wovenByteCodes);
+        assertNull(disabledCache.get(toKey(disabledCache, weaving)));
+
+        WovenByteCodeCache.init(1024);
+        final WovenByteCodeCache cache = WovenByteCodeCache.getInstance();
+        assertTrue(cache.isEnabled());
+        cache.put(toKey(cache, weaving), wovenByteCodes);
+        assertSame(wovenByteCodes, cache.get(toKey(cache, weaving)));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.stats().hitCount());
+
+        cache.invalidateAll();
+        assertNull(cache.get(toKey(cache, weaving)));
+    }
+
+}
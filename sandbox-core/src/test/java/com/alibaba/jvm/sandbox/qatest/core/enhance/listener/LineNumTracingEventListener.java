@@ -3,7 +3,7 @@ package com.alibaba.jvm.sandbox.qatest.core.enhance.listener;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.event.LineEvent;
 import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
-import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.core.util.ListenerIDs;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -48,7 +48,7 @@ public class LineNumTracingEventListener extends InterruptedEventListener {
     private void assertEventProcessor() {
         EventListenerHandler
                 .getSingleton()
-                .checkEventProcessor(ObjectIDs.instance.identity(this));
+                .checkEventProcessor(ListenerIDs.instance.identity(this));
     }
 
 }
@@ -2,7 +2,7 @@ package com.alibaba.jvm.sandbox.qatest.core.enhance.listener;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
-import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.core.util.ListenerIDs;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -47,7 +47,7 @@ public class TracingEventListener extends InterruptedEventListener {
     private void assertEventProcessor() {
         EventListenerHandler
                 .getSingleton()
-                .checkEventProcessor(ObjectIDs.instance.identity(this));
+                .checkEventProcessor(ListenerIDs.instance.identity(this));
     }
 
 
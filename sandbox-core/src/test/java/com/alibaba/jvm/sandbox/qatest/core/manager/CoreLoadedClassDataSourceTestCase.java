@@ -1,16 +1,26 @@
 package com.alibaba.jvm.sandbox.qatest.core.manager;
 
 import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
+import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
 import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
 import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.manager.impl.LoadedClassIndex;
+import com.alibaba.jvm.sandbox.core.manager.impl.MatchingResultMemo;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.GroupMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
 import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 class MockLoadedClassesOnlyInstrumentation extends EmptyInstrumentation {
 
@@ -27,6 +37,46 @@ class MockLoadedClassesOnlyInstrumentation extends EmptyInstrumentation {
 
 }
 
+class MockManyLoadedClassesInstrumentation extends EmptyInstrumentation {
+
+    final List<Class<?>> loadedClasses = new ArrayList<>();
+
+    MockManyLoadedClassesInstrumentation(final Class<?>[] classes, final int times) {
+        for (int index = 0; index < times; index++) {
+            for (final Class<?> clazz : classes) {
+                loadedClasses.add(clazz);
+            }
+        }
+    }
+
+    @Override
+    public Class[] getAllLoadedClasses() {
+        return loadedClasses.toArray(new Class<?>[]{});
+    }
+
+}
+
+class MockModifiableLoadedClassesInstrumentation extends MockLoadedClassesOnlyInstrumentation {
+
+    @Override
+    public boolean isModifiableClass(Class<?> theClass) {
+        return true;
+    }
+
+}
+
+class MockCountingLoadedClassesInstrumentation extends MockLoadedClassesOnlyInstrumentation {
+
+    int getAllLoadedClassesCount = 0;
+
+    @Override
+    public Class[] getAllLoadedClasses() {
+        getAllLoadedClassesCount++;
+        return super.getAllLoadedClasses();
+    }
+
+}
+
 public class CoreLoadedClassDataSourceTestCase {
 
     public interface Human {
@@ -282,4 +332,256 @@ public class CoreLoadedClassDataSourceTestCase {
 
     }
 
+    @Test
+    public void test$$CoreLoadedClassDataSource$$findInParallel() {
+        final MockManyLoadedClassesInstrumentation manyLoadedClassesInstrumentation
+                = new MockManyLoadedClassesInstrumentation(mockInstrumentation.getAllLoadedClasses(), 200);
+        final NameRegexWithSubClassesExtFilter filter = new NameRegexWithSubClassesExtFilter(
+                "com\\.alibaba\\.jvm\\.sandbox\\.qatest\\.core\\.manager\\.CoreLoadedClassDataSourceTestCase\\$Human",
+                ".*"
+        );
+
+        final Set<Class<?>> serialFoundClasses
+                = new DefaultCoreLoadedClassDataSource(manyLoadedClassesInstrumentation, false, true, 1, null).find(filter);
+        final Set<Class<?>> parallelFoundClasses
+                = new DefaultCoreLoadedClassDataSource(manyLoadedClassesInstrumentation, false, true, 4, null).find(filter);
+
+        Assert.assertEquals(7, parallelFoundClasses.size());
+        Assert.assertEquals(
+                new ArrayList<>(serialFoundClasses),
+                new ArrayList<>(parallelFoundClasses)
+        );
+    }
+
+    @Test
+    public void test$$CoreLoadedClassDataSource$$findInParallel$$reuseAndClose() {
+        final MockManyLoadedClassesInstrumentation manyLoadedClassesInstrumentation
+                = new MockManyLoadedClassesInstrumentation(mockInstrumentation.getAllLoadedClasses(), 200);
+        final NameRegexWithSubClassesExtFilter filter = new NameRegexWithSubClassesExtFilter(
+                "com\\.alibaba\\.jvm\\.sandbox\\.qatest\\.core\\.manager\\.CoreLoadedClassDataSourceTestCase\\$Human",
+                ".*"
+        );
+        final DefaultCoreLoadedClassDataSource parallelCoreLoadedClassDataSource
+                = new DefaultCoreLoadedClassDataSource(manyLoadedClassesInstrumentation, false, true, 4, null);
+
+        // 并行匹配线程池在多次匹配之间复用，关闭之后退化为串行匹配
+        final Set<Class<?>> firstFoundClasses = parallelCoreLoadedClassDataSource.find(filter);
+        Assert.assertEquals(firstFoundClasses, parallelCoreLoadedClassDataSource.find(filter));
+        parallelCoreLoadedClassDataSource.close();
+        Assert.assertEquals(
+                new ArrayList<>(firstFoundClasses),
+                new ArrayList<>(parallelCoreLoadedClassDataSource.find(filter))
+        );
+        Assert.assertEquals(7, firstFoundClasses.size());
+    }
+
+    @Test
+    public void test$$CoreLoadedClassDataSource$$findByIndex() {
+        final CoreLoadedClassDataSource indexedCoreLoadedClassDataSource = new DefaultCoreLoadedClassDataSource(
+                mockInstrumentation, false, true, 1, new LoadedClassIndex(mockInstrumentation)
+        );
+        final Set<Class<?>> foundClasses = indexedCoreLoadedClassDataSource.find(new ExtFilterImplByV140(
+                new NameRegexWithSubClassesExtFilter(
+                        "com\\.alibaba\\.jvm\\.sandbox\\.qatest\\.core\\.manager\\.CoreLoadedClassDataSourceTestCase\\$Woman",
+                        ".*"
+                ),
+                true, true, true, true, true,
+                "com.alibaba.jvm.sandbox.qatest.core.manager.CoreLoadedClassDataSourceTestCase$Woman"
+        ));
+        Assert.assertEquals(
+                coreLoadedClassDataSource.find(new NameRegexWithSubClassesExtFilter(
+                        "com\\.alibaba\\.jvm\\.sandbox\\.qatest\\.core\\.manager\\.CoreLoadedClassDataSourceTestCase\\$Woman",
+                        ".*"
+                )),
+                foundClasses
+        );
+        Assert.assertEquals(5, foundClasses.size());
+    }
+
+    public static class LaterLoadedWoman implements Woman {
+
+        @Override
+        public void methodOfWoman() {
+
+        }
+
+        @Override
+        public void methodOfHuman() {
+
+        }
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$findLaterLoaded() {
+        final MockLoadedClassesOnlyInstrumentation instrumentation = new MockLoadedClassesOnlyInstrumentation();
+        for (final Class<?> clazz : mockInstrumentation.getAllLoadedClasses()) {
+            instrumentation.regLoadedClass(clazz);
+        }
+        final LoadedClassIndex loadedClassIndex = new LoadedClassIndex(instrumentation);
+        Assert.assertEquals(1, loadedClassIndex.find(Woman.class.getName(), false).size());
+        Assert.assertEquals(5, loadedClassIndex.find(Woman.class.getName(), true).size());
+        Assert.assertTrue(loadedClassIndex.find(LaterLoadedWoman.class.getName(), false).isEmpty());
+
+        // 新加载的类经过ClassFileTransformer之后才会被补充到索引中
+        instrumentation.regLoadedClass(LaterLoadedWoman.class);
+        Assert.assertTrue(loadedClassIndex.find(LaterLoadedWoman.class.getName(), false).isEmpty());
+        loadedClassIndex.transform(
+                LaterLoadedWoman.class.getClassLoader(),
+                LaterLoadedWoman.class.getName().replace('.', '/'),
+                null,
+                null,
+                new byte[0]
+        );
+        Assert.assertTrue(loadedClassIndex.find(LaterLoadedWoman.class.getName(), false).contains(LaterLoadedWoman.class));
+        Assert.assertTrue(loadedClassIndex.find(Woman.class.getName(), true).contains(LaterLoadedWoman.class));
+        Assert.assertEquals(
+                8,
+                loadedClassIndex.find("com.alibaba.jvm.sandbox.qatest.core.manager.CoreLoadedClassDataSourceTestCase$", false).size()
+        );
+    }
+
+    static class NameRegexWithBootstrapExtFilter extends NameRegexFilter implements ExtFilter {
+
+        NameRegexWithBootstrapExtFilter(String javaNameRegex, String javaMethodRegex) {
+            super(javaNameRegex, javaMethodRegex);
+        }
+
+        @Override
+        public boolean isIncludeSubClasses() {
+            return false;
+        }
+
+        @Override
+        public boolean isIncludeBootstrap() {
+            return true;
+        }
+
+    }
+
+    // 沙箱自身的类不会被重新增强，这里只能用JDK中的类来验证
+    @Test
+    public void test$$LoadedClassIndex$$findLaterLoadedWithoutScanning() {
+        final MockCountingLoadedClassesInstrumentation instrumentation = new MockCountingLoadedClassesInstrumentation();
+        for (final Class<?> clazz : mockInstrumentation.getAllLoadedClasses()) {
+            instrumentation.regLoadedClass(clazz);
+        }
+        final LoadedClassIndex loadedClassIndex = new LoadedClassIndex(instrumentation);
+        Assert.assertEquals(5, loadedClassIndex.find(Woman.class.getName(), true).size());
+        Assert.assertEquals(1, instrumentation.getAllLoadedClassesCount);
+
+        // 新加载的类直接从定义它的ClassLoader中取回，不再遍历所有已加载的类
+        instrumentation.regLoadedClass(LaterLoadedWoman.class);
+        loadedClassIndex.transform(
+                LaterLoadedWoman.class.getClassLoader(),
+                LaterLoadedWoman.class.getName().replace('.', '/'),
+                null,
+                null,
+                new byte[0]
+        );
+        Assert.assertTrue(loadedClassIndex.find(Woman.class.getName(), true).contains(LaterLoadedWoman.class));
+        Assert.assertEquals(1, instrumentation.getAllLoadedClassesCount);
+
+        // BootstrapClassLoader新加载的类只能从已加载类中查找
+        instrumentation.regLoadedClass(CopyOnWriteArrayList.class);
+        loadedClassIndex.transform(null, "java/util/concurrent/CopyOnWriteArrayList", null, null, new byte[0]);
+        Assert.assertTrue(loadedClassIndex.find(CopyOnWriteArrayList.class.getName(), false).contains(CopyOnWriteArrayList.class));
+        Assert.assertEquals(2, instrumentation.getAllLoadedClassesCount);
+        Assert.assertEquals(6, loadedClassIndex.find(Woman.class.getName(), true).size());
+        Assert.assertEquals(2, instrumentation.getAllLoadedClassesCount);
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$rescanAfterPendingOverflow() {
+        final MockCountingLoadedClassesInstrumentation instrumentation = new MockCountingLoadedClassesInstrumentation();
+        for (final Class<?> clazz : mockInstrumentation.getAllLoadedClasses()) {
+            instrumentation.regLoadedClass(clazz);
+        }
+        final LoadedClassIndex loadedClassIndex = new LoadedClassIndex(instrumentation, 2);
+        Assert.assertEquals(5, loadedClassIndex.find(Woman.class.getName(), true).size());
+        Assert.assertEquals(1, instrumentation.getAllLoadedClassesCount);
+
+        // 长时间没有检索，新加载类的记录超过上限后被丢弃，下次检索重新做全量索引
+        instrumentation.regLoadedClass(LaterLoadedWoman.class);
+        final ClassLoader loader = LaterLoadedWoman.class.getClassLoader();
+        loadedClassIndex.transform(loader, LaterLoadedWoman.class.getName().replace('.', '/'), null, null, new byte[0]);
+        loadedClassIndex.transform(loader, "com/example/NotDefined1", null, null, new byte[0]);
+        loadedClassIndex.transform(loader, "com/example/NotDefined2", null, null, new byte[0]);
+        Assert.assertTrue(loadedClassIndex.find(Woman.class.getName(), true).contains(LaterLoadedWoman.class));
+        Assert.assertEquals(2, instrumentation.getAllLoadedClassesCount);
+
+        // 全量索引之后恢复逐个取回
+        Assert.assertEquals(6, loadedClassIndex.find(Woman.class.getName(), true).size());
+        Assert.assertEquals(2, instrumentation.getAllLoadedClassesCount);
+    }
+
+    private static ExtFilterMatcher toListMatcher(final String canonicalKey) {
+        return new ExtFilterMatcher(new ExtFilterImplByV140(
+                new NameRegexWithBootstrapExtFilter("java\\.util\\..*List", ".*"),
+                true, true, true, true, true,
+                null,
+                null,
+                canonicalKey
+        ));
+    }
+
+    @Test
+    public void test$$MatchingResultMemo$$findForReTransform() {
+        final MockLoadedClassesOnlyInstrumentation instrumentation = new MockModifiableLoadedClassesInstrumentation();
+        instrumentation.regLoadedClass(ArrayList.class);
+        instrumentation.regLoadedClass(LinkedList.class);
+        instrumentation.regLoadedClass(String.class);
+        final MatchingResultMemo memo = new MatchingResultMemo(instrumentation, 16, 0);
+        final CoreLoadedClassDataSource memoizedCoreLoadedClassDataSource = new DefaultCoreLoadedClassDataSource(
+                instrumentation, true, true, 1, null, memo
+        );
+
+        // 条件相同的匹配器复用上次的匹配结果
+        final Matcher matcher = new GroupMatcher.Or(toListMatcher("list"));
+        final List<Class<?>> foundClasses = memoizedCoreLoadedClassDataSource.findForReTransform(matcher);
+        Assert.assertEquals(2, foundClasses.size());
+        Assert.assertEquals(1, memo.size());
+        instrumentation.regLoadedClass(CopyOnWriteArrayList.class);
+        Assert.assertEquals(
+                foundClasses,
+                memoizedCoreLoadedClassDataSource.findForReTransform(new GroupMatcher.Or(toListMatcher("list")))
+        );
+
+        // 重定义已加载的类不影响备忘
+        memo.transform(null, "java/util/ArrayList", ArrayList.class, null, new byte[0]);
+        Assert.assertEquals(2, memoizedCoreLoadedClassDataSource.findForReTransform(matcher).size());
+
+        // 有新类加载之后重新匹配
+        memo.transform(null, "java/util/concurrent/CopyOnWriteArrayList", null, null, new byte[0]);
+        final List<Class<?>> refoundClasses = memoizedCoreLoadedClassDataSource.findForReTransform(matcher);
+        Assert.assertEquals(3, refoundClasses.size());
+        Assert.assertTrue(refoundClasses.contains(CopyOnWriteArrayList.class));
+    }
+
+    @Test
+    public void test$$MatchingResultMemo$$withoutCanonicalKey() {
+        final MatchingResultMemo memo = new MatchingResultMemo(mockInstrumentation, 16, 0);
+        Assert.assertNull(MatchingResultMemo.toKey(toListMatcher(null)));
+        Assert.assertNull(MatchingResultMemo.toKey(new GroupMatcher.Or(toListMatcher("list"), toListMatcher(null))));
+        Assert.assertFalse(MatchingResultMemo.toKey(new GroupMatcher.Or(toListMatcher("list")))
+                .equals(MatchingResultMemo.toKey(new GroupMatcher.Or(toListMatcher("list"), toListMatcher("list")))));
+
+        // 无法给出规范KEY的匹配器每次都重新匹配
+        new DefaultCoreLoadedClassDataSource(mockInstrumentation, false, true, 1, null, memo)
+                .findForReTransform(new GroupMatcher.Or(toListMatcher(null)));
+        Assert.assertEquals(0, memo.size());
+    }
+
+    @Test
+    public void test$$MatchingResultMemo$$settle() {
+        final MatchingResultMemo memo = new MatchingResultMemo(mockInstrumentation, 16, 60 * 1000);
+        Assert.assertTrue(memo.getGeneration() >= 0);
+
+        // 刚有类加载时开始的匹配不做备忘
+        memo.transform(null, "java/util/concurrent/CopyOnWriteArrayList", null, null, new byte[0]);
+        Assert.assertEquals(-1, memo.getGeneration());
+        memo.put("list", memo.getGeneration(), new ArrayList<Class<?>>());
+        Assert.assertNull(memo.get("list"));
+        Assert.assertEquals(0, memo.size());
+    }
+
 }
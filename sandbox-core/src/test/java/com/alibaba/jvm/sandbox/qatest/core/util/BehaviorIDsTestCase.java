@@ -0,0 +1,57 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.BehaviorIDs;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.*;
+
+public class BehaviorIDsTestCase {
+
+    private static int identity(final int classLoaderObjectID,
+                                final String javaMethodName) {
+        return BehaviorIDs.instance.identity(classLoaderObjectID, "com.example.Target", javaMethodName, "()V");
+    }
+
+    @Test
+    public void test$$BehaviorIDs$$identity() {
+        final ClassLoader loader = new ClassLoader() {
+        };
+        final int classLoaderObjectID = ObjectIDs.instance.identity(loader);
+        final int behaviorID = identity(classLoaderObjectID, "identity");
+        assertEquals(behaviorID, identity(classLoaderObjectID, "identity"));
+        assertEquals("identity", BehaviorIDs.instance.getBehavior(behaviorID).javaMethodName);
+        assertFalse(behaviorID == identity(ObjectIDs.NULL_ID, "identity"));
+    }
+
+    // 在一个随后被丢弃的ClassLoader中分配行为ID，只返回ClassLoader的弱引用
+    private static WeakReference<ClassLoader> identityInDroppedClassLoader(final int[] behaviorIDRef) {
+        final ClassLoader loader = new ClassLoader() {
+        };
+        behaviorIDRef[0] = identity(ObjectIDs.instance.identity(loader), "collected");
+        return new WeakReference<>(loader);
+    }
+
+    @Test
+    public void test$$BehaviorIDs$$expungeCollectedClassLoader() throws InterruptedException {
+        final int[] behaviorIDRef = new int[1];
+        final WeakReference<ClassLoader> loaderRef = identityInDroppedClassLoader(behaviorIDRef);
+        for (int i = 0; i < 50 && null != loaderRef.get(); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(loaderRef.get());
+        assertEquals("collected", BehaviorIDs.instance.getBehavior(behaviorIDRef[0]).javaMethodName);
+
+        // 下一次分配时回收已卸载的行为，行为ID被复用
+        final ClassLoader loader = new ClassLoader() {
+        };
+        final int behaviorID = identity(ObjectIDs.instance.identity(loader), "expunge");
+        final BehaviorIDs.Behavior behavior = BehaviorIDs.instance.getBehavior(behaviorIDRef[0]);
+        assertTrue(null == behavior || behaviorIDRef[0] == behaviorID);
+        assertEquals("expunge", BehaviorIDs.instance.getBehavior(behaviorID).javaMethodName);
+    }
+
+}
@@ -4,9 +4,10 @@ import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.core.enhance.Enhancer;
 import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
 import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
-import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.core.util.ListenerIDs;
 import com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils;
 import com.alibaba.jvm.sandbox.core.util.SpyUtils;
 import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
@@ -91,6 +92,7 @@ public class JvmHelper {
         protected final Filter filter;
         private final EventListener listener;
         private final Event.Type[] eventTypes;
+        private int[] argumentIndexes;
 
         public Transformer(final Filter filter,
                            final EventListener listener,
@@ -111,32 +113,46 @@ public class JvmHelper {
             this.eventTypes = eventTypeList.toArray(EMPTY);
         }
 
+        public Transformer withArguments(final int... argumentIndexes) {
+            this.argumentIndexes = argumentIndexes;
+            return this;
+        }
+
         public byte[] transform(final String namespace,
                                 final ClassLoader loader,
                                 final byte[] byteCodes) {
+            final Enhancer.Weaving weaving = toWeaving(loader, byteCodes);
+            if (null != weaving) {
+                return new EventEnhancer("$$SANDBOX$").toByteCodeArray(
+                        loader,
+                        byteCodes,
+                        weaving.signCodes,
+                        namespace,
+                        weaving.listenerId,
+                        weaving.eventTypeArray,
+                        weaving.argumentIndexes
+                );
+            } else {
+                return byteCodes;
+            }
+        }
+
+        Enhancer.Weaving toWeaving(final ClassLoader loader,
+                                   final byte[] byteCodes) {
 
             final MatchingResult matchingResult = new ExtFilterMatcher(make(filter))
                     .matching(ClassStructureFactory.createClassStructure(byteCodes, loader));
 
-            final int listenerId = ObjectIDs.instance.identity(listener);
+            final int listenerId = ListenerIDs.instance.identity(listener);
             EventListenerHandler.getSingleton().active(
                     listenerId,
                     listener,
                     eventTypes
             );
 
-            if (matchingResult.isMatched()) {
-                return new EventEnhancer("$$SANDBOX$").toByteCodeArray(
-                        loader,
-                        byteCodes,
-                        matchingResult.getBehaviorSignCodes(),
-                        namespace,
-                        listenerId,
-                        eventTypes
-                );
-            } else {
-                return byteCodes;
-            }
+            return matchingResult.isMatched()
+                    ? new Enhancer.Weaving(matchingResult.getBehaviorSignCodes(), listenerId, eventTypes, argumentIndexes)
+                    : null;
         }
 
     }
@@ -178,6 +194,27 @@ public class JvmHelper {
 
 
 
+    /**
+     * 在一次ASM遍历中织入所有转换器，模拟多个观察共享同一个ClassFileTransformer
+     */
+    public JvmHelper defineClassInOnePass(final Class<?> clazz,
+                                          final Transformer... transformers) throws IOException, InvocationTargetException, IllegalAccessException {
+        final byte[] byteCodes = toByteArray(clazz);
+        final List<Enhancer.Weaving> weavings = new ArrayList<>();
+        for (final Transformer transformer : transformers) {
+            final Enhancer.Weaving weaving = transformer.toWeaving(classLoader, byteCodes);
+            if (null != weaving) {
+                weavings.add(weaving);
+            }
+        }
+        return defineClass(
+                getJavaClassName(clazz),
+                weavings.isEmpty()
+                        ? byteCodes
+                        : new EventEnhancer("$$SANDBOX$").toByteCodeArray(classLoader, byteCodes, namespace, weavings)
+        );
+    }
+
     public Class<?> loadClass(String javaClassName) throws ClassNotFoundException {
         return classLoader.loadClass(javaClassName);
     }
@@ -0,0 +1,137 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ListenerIDs;
+import org.junit.Test;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ListenerIDsTestCase {
+
+    // 槽位为事件监听器ID的低16位
+    private static int toSlot(final int listenerId) {
+        return listenerId & 0xFFFF;
+    }
+
+    @Test
+    public void test$$ListenerIDs$$identity() {
+        final Object listener = new Object();
+        final int listenerId = ListenerIDs.instance.identity(listener);
+        assertEquals(listenerId, ListenerIDs.instance.identity(listener));
+        assertFalse(listenerId == ListenerIDs.instance.identity(new Object()));
+    }
+
+    @Test
+    public void test$$Spy$$reuseReleasedSlot() {
+        final int listenerId = Spy.nextListenerId();
+        Spy.setListenerActivated(listenerId, true);
+        assertTrue(Spy.isListenerActivated(listenerId));
+
+        Spy.releaseListenerId(listenerId);
+        assertFalse(Spy.isListenerActivated(listenerId));
+
+        // 槽位被复用，但新旧事件监听器ID不同，旧ID不会因为新ID激活而被视为激活
+        final int reusedListenerId = Spy.nextListenerId();
+        assertEquals(toSlot(listenerId), toSlot(reusedListenerId));
+        assertFalse(listenerId == reusedListenerId);
+        Spy.setListenerActivated(reusedListenerId, true);
+        assertTrue(Spy.isListenerActivated(reusedListenerId));
+        assertFalse(Spy.isListenerActivated(listenerId));
+
+        // 已释放的ID不能再被激活，重复释放也不会影响槽位的新主人
+        Spy.setListenerActivated(listenerId, true);
+        Spy.releaseListenerId(listenerId);
+        assertTrue(Spy.isListenerActivated(reusedListenerId));
+        Spy.releaseListenerId(reusedListenerId);
+    }
+
+    // 只返回事件监听器的弱引用
+    private static WeakReference<Object> identityThenDrop(final int[] listenerIdRef) {
+        final Object listener = new Object();
+        listenerIdRef[0] = ListenerIDs.instance.identity(listener);
+        return new WeakReference<>(listener);
+    }
+
+    @Test
+    public void test$$ListenerIDs$$releaseCollected() throws InterruptedException {
+        final int[] listenerIdRef = new int[1];
+        final WeakReference<Object> listenerRef = identityThenDrop(listenerIdRef);
+        for (int i = 0; i < 50 && null != listenerRef.get(); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(listenerRef.get());
+
+        // 回收后的下一次分配归还了ID，槽位可以被新的事件监听器复用
+        // 其他测试中被回收的事件监听器也可能同时归还，所以在空闲槽位中查找
+        final Object listener = new Object();
+        final int newListenerId = ListenerIDs.instance.identity(listener);
+        if (toSlot(listenerIdRef[0]) == toSlot(newListenerId)) {
+            assertFalse(listenerIdRef[0] == newListenerId);
+            return;
+        }
+        final List<Integer> listenerIds = new ArrayList<>();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                final int listenerId = Spy.nextListenerId();
+                listenerIds.add(listenerId);
+                if (toSlot(listenerIdRef[0]) == toSlot(listenerId)) {
+                    assertFalse(listenerIdRef[0] == listenerId);
+                    return;
+                }
+            }
+            fail("slot of collected listener was not released.");
+        } finally {
+            for (final int listenerId : listenerIds) {
+                Spy.releaseListenerId(listenerId);
+            }
+        }
+    }
+
+    @Test
+    public void test$$EventListenerHandler$$reuseReleasedSlot() {
+        final EventListener listener = new EmptyEventListener();
+        final int listenerId = Spy.nextListenerId();
+        EventListenerHandler.getSingleton().active(listenerId, listener, new Event.Type[]{Event.Type.BEFORE});
+        EventListenerHandler.getSingleton().frozen(listenerId);
+        Spy.releaseListenerId(listenerId);
+
+        // 复用了同一个槽位的事件监听器不会被旧ID找到
+        final int reusedListenerId = Spy.nextListenerId();
+        assertEquals(toSlot(listenerId), toSlot(reusedListenerId));
+        EventListenerHandler.getSingleton().active(reusedListenerId, listener, new Event.Type[]{Event.Type.BEFORE});
+        try {
+            EventListenerHandler.getSingleton().checkEventProcessor(reusedListenerId);
+            try {
+                EventListenerHandler.getSingleton().checkEventProcessor(listenerId);
+                fail();
+            } catch (IllegalStateException cause) {
+                // expected
+            }
+
+            // 旧ID的冻结不影响槽位的新主人
+            EventListenerHandler.getSingleton().frozen(listenerId);
+            EventListenerHandler.getSingleton().checkEventProcessor(reusedListenerId);
+        } finally {
+            EventListenerHandler.getSingleton().frozen(reusedListenerId);
+            Spy.releaseListenerId(reusedListenerId);
+        }
+    }
+
+    private static class EmptyEventListener implements EventListener {
+
+        @Override
+        public void onEvent(final Event event) {
+
+        }
+
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static com.alibaba.jvm.sandbox.core.util.ObjectIDs.NULL_ID;
+import static org.junit.Assert.*;
+
+public class ObjectIDsTestCase {
+
+    // 槽位为对象ID的低20位
+    private static int toSlot(final int objectID) {
+        return objectID & 0xFFFFF;
+    }
+
+    @Test
+    public void test$$ObjectIDs$$identity() {
+        final Object object = new Object();
+        assertEquals(NULL_ID, ObjectIDs.instance.getIdentity(object));
+
+        final int objectID = ObjectIDs.instance.identity(object);
+        assertTrue(objectID > NULL_ID);
+        assertEquals(objectID, ObjectIDs.instance.identity(object));
+        assertEquals(objectID, ObjectIDs.instance.getIdentity(object));
+        assertSame(object, ObjectIDs.instance.getObject(objectID));
+    }
+
+    @Test
+    public void test$$ClassStructureCache$$invalidateWithoutIdentity() {
+        final ClassLoader loader = new ClassLoader() {
+        };
+        ClassStructureCache.getInstance().invalidate(loader);
+        assertEquals(NULL_ID, ObjectIDs.instance.getIdentity(loader));
+    }
+
+    // 只返回对象的弱引用
+    private static WeakReference<Object> identityThenDrop(final int[] objectIDRef) {
+        final Object object = new Object();
+        objectIDRef[0] = ObjectIDs.instance.identity(object);
+        return new WeakReference<>(object);
+    }
+
+    @Test
+    public void test$$ObjectIDs$$reuseCollected() throws InterruptedException {
+        final int[] objectIDRef = new int[1];
+        final WeakReference<Object> objectRef = identityThenDrop(objectIDRef);
+        for (int i = 0; i < 50 && null != objectRef.get(); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(objectRef.get());
+        assertNull(ObjectIDs.instance.getObject(objectIDRef[0]));
+
+        // 回收后的槽位被新对象复用，但ID不同，旧ID不会映射到新对象上
+        // 其他测试中被回收的对象也可能同时归还槽位，所以持有新对象直到找到复用的槽位
+        final Object[] objects = new Object[1000];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new Object();
+            final int objectID = ObjectIDs.instance.identity(objects[i]);
+            if (toSlot(objectIDRef[0]) == toSlot(objectID)) {
+                assertFalse(objectIDRef[0] == objectID);
+                assertNull(ObjectIDs.instance.getObject(objectIDRef[0]));
+                assertSame(objects[i], ObjectIDs.instance.getObject(objectID));
+                return;
+            }
+        }
+        fail("slot of collected object was not reused.");
+    }
+
+}
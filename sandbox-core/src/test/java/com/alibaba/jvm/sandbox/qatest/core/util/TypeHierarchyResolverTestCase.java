@@ -0,0 +1,48 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.TypeHierarchyResolver;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ChildClass;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.GrandpaClass;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ParentClass;
+import org.junit.Test;
+
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+import static org.junit.Assert.assertEquals;
+
+public class TypeHierarchyResolverTestCase {
+
+    private static String getCommonSuperClass(final Class<?> type1,
+                                              final Class<?> type2,
+                                              final ClassLoader loader) {
+        return TypeHierarchyResolver.instance.getCommonSuperClass(
+                toInternalClassName(type1.getName()),
+                toInternalClassName(type2.getName()),
+                loader
+        );
+    }
+
+    @Test
+    public void test$$TypeHierarchyResolver$$loadedClasses() {
+        final ClassLoader loader = getClass().getClassLoader();
+        assertEquals("java/util/AbstractList", getCommonSuperClass(java.util.ArrayList.class, java.util.LinkedList.class, loader));
+        assertEquals("java/util/List", getCommonSuperClass(java.util.List.class, java.util.ArrayList.class, loader));
+        assertEquals("java/lang/Object", getCommonSuperClass(java.util.List.class, java.util.Set.class, loader));
+        assertEquals("java/lang/Object", getCommonSuperClass(String.class, Integer.class, null));
+        assertEquals("java/lang/Number", getCommonSuperClass(Long.class, Integer.class, null));
+    }
+
+    @Test
+    public void test$$TypeHierarchyResolver$$parentLoader() {
+        // 子ClassLoader没有加载过这些类，需要从父ClassLoader中找到已加载的类
+        final ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+        };
+        assertEquals(toInternalClassName(ParentClass.class.getName()), getCommonSuperClass(ChildClass.class, ParentClass.class, loader));
+        assertEquals(toInternalClassName(GrandpaClass.class.getName()), getCommonSuperClass(GrandpaClass.class, ChildClass.class, loader));
+        assertEquals("java/lang/Object", getCommonSuperClass(ChildClass.class, String.class, loader));
+
+        // ClassLoader中找不到的类型
+        assertEquals("java/lang/Object", getCommonSuperClass(ChildClass.class, getClass(), new ClassLoader(null) {
+        }));
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.util.PatternMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.ClassNamePrefilter;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.GroupMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+import org.junit.Test;
+
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+import static org.junit.Assert.*;
+
+public class ClassNamePrefilterTestCase {
+
+    private static Matcher toMatcher(final String javaClassNamePrefix) {
+        return new ExtFilterMatcher(new ExtFilterImplByV140(
+                make(new NameRegexFilter(".*", ".*")),
+                false, false, false, false, false,
+                javaClassNamePrefix
+        ));
+    }
+
+    @Test
+    public void test$$ClassNamePrefilter$$or() {
+        final ClassNamePrefilter prefilter = ClassNamePrefilter.compile(new GroupMatcher.Or(
+                toMatcher("com.example.service."),
+                toMatcher("com.example.dao.UserDao"),
+                toMatcher("com.example.service.impl."),
+                toMatcher("org.demo.")
+        ));
+        assertNotNull(prefilter);
+        assertTrue(prefilter.isMayMatching("com.example.service.OrderService"));
+        assertTrue(prefilter.isMayMatching("com.example.service.impl.OrderServiceImpl"));
+        assertTrue(prefilter.isMayMatching("com.example.dao.UserDao"));
+        assertTrue(prefilter.isMayMatching("com.example.dao.UserDao$1"));
+        assertTrue(prefilter.isMayMatching("org.demo.Main"));
+        assertFalse(prefilter.isMayMatching("com.example.dao.OrderDao"));
+        assertFalse(prefilter.isMayMatching("com.example.Main"));
+        assertFalse(prefilter.isMayMatching("java.lang.String"));
+        assertFalse(prefilter.isMayMatching("zzz.Main"));
+    }
+
+    @Test
+    public void test$$ClassNamePrefilter$$and() {
+        final ClassNamePrefilter prefilter = ClassNamePrefilter.compile(new GroupMatcher.And(
+                toMatcher(null),
+                toMatcher("com.example.")
+        ));
+        assertNotNull(prefilter);
+        assertTrue(prefilter.isMayMatching("com.example.Main"));
+        assertFalse(prefilter.isMayMatching("org.demo.Main"));
+    }
+
+    @Test
+    public void test$$ClassNamePrefilter$$javaClassNameMatcher() {
+        final ClassNamePrefilter prefilter = ClassNamePrefilter.compile(new GroupMatcher.Or(
+                toMatcher("com.example.service."),
+                new ExtFilterMatcher(new ExtFilterImplByV140(
+                        make(new NameRegexFilter(".*", ".*")),
+                        false, false, false, false, false,
+                        null,
+                        PatternMatcher.wildcard("*Controller")
+                ))
+        ));
+        assertNotNull(prefilter);
+        assertTrue(prefilter.isMayMatching("com.example.service.OrderService"));
+        assertTrue(prefilter.isMayMatching("org.demo.web.UserController"));
+        assertFalse(prefilter.isMayMatching("org.demo.web.UserControllerImpl"));
+        assertFalse(prefilter.isMayMatching("java.lang.String"));
+    }
+
+    @Test
+    public void test$$ClassNamePrefilter$$unsupported() {
+        assertNull(ClassNamePrefilter.compile(toMatcher(null)));
+        assertNull(ClassNamePrefilter.compile(new GroupMatcher.Or(
+                toMatcher("com.example."),
+                toMatcher(null)
+        )));
+        assertNull(ClassNamePrefilter.compile(new ExtFilterMatcher(new ExtFilterImplByV140(
+                make(new NameRegexFilter(".*", ".*"), true, false),
+                false, false, false, false, false,
+                "com.example."
+        ))));
+    }
+
+}
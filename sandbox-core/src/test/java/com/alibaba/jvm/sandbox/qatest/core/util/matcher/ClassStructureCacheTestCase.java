@@ -0,0 +1,58 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ChildClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+import static org.junit.Assert.*;
+
+public class ClassStructureCacheTestCase {
+
+    private static ClassStructure createChildClassStructure(final ClassLoader loader) throws IOException {
+        return ClassStructureFactory.createClassStructure(toByteArray(ChildClass.class), loader);
+    }
+
+    @Test
+    public void test$$ClassStructureCache$$hitAndInvalidate() throws IOException {
+        final ClassStructureCache cache = ClassStructureCache.getInstance();
+        final ClassLoader loader = new ClassLoader(ChildClass.class.getClassLoader()) {
+        };
+
+        final long sizeBeforeResolve = cache.size();
+        final int familySize = createChildClassStructure(loader).getFamilyTypeClassStructures().size();
+        assertTrue(familySize > 0);
+        final long sizeAfterResolve = cache.size();
+        assertTrue(sizeAfterResolve > sizeBeforeResolve);
+
+        // 同一个ClassLoader再次解析家族关系时全部命中缓存
+        final long hitCountBeforeResolveAgain = cache.stats().hitCount();
+        assertEquals(familySize, createChildClassStructure(loader).getFamilyTypeClassStructures().size());
+        assertEquals(sizeAfterResolve, cache.size());
+        assertTrue(cache.stats().hitCount() > hitCountBeforeResolveAgain);
+
+        // 按ClassLoader失效
+        cache.invalidate(loader);
+        assertEquals(sizeBeforeResolve, cache.size());
+    }
+
+    @Test
+    public void test$$ClassStructureImplByJDK$$sharedFamily() {
+        final ClassStructure first = ClassStructureFactory.createClassStructure(ChildClass.class);
+        final ClassStructure second = ClassStructureFactory.createClassStructure(ChildClass.class);
+        assertNotSame(first, second);
+
+        // 父类的类结构以及它的家族关系在类结构之间共享
+        assertSame(first.getSuperClassStructure(), second.getSuperClassStructure());
+        assertSame(
+                first.getSuperClassStructure().getFamilyTypeClassStructures(),
+                second.getSuperClassStructure().getFamilyTypeClassStructures()
+        );
+        assertEquals(first.getFamilyTypeClassStructures(), second.getFamilyTypeClassStructures());
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.LazyFilter;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ChildClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+import static org.junit.Assert.*;
+
+public class ExtFilterMatcherTestCase {
+
+    // 每次都使用新的ClassLoader，保证类结构缓存中没有已经解析过的类型
+    private static ClassStructure createChildClassStructure() throws IOException {
+        return ClassStructureFactory.createClassStructure(
+                toByteArray(ChildClass.class),
+                new ClassLoader(ChildClass.class.getClassLoader()) {
+                }
+        );
+    }
+
+    @Test
+    public void test$$ExtFilterMatcher$$lazyFilter() throws IOException {
+        final ClassStructureCache cache = ClassStructureCache.getInstance();
+        final ClassStructure classStructure = createChildClassStructure();
+        final long requestCount = cache.stats().requestCount();
+
+        final MatchingResult result = new ExtFilterMatcher(make(new LazyFilter() {
+            @Override
+            public boolean doClassFilter(final ClassDescription classDescription) {
+                return ChildClass.class.getName().equals(classDescription.getJavaClassName());
+            }
+
+            @Override
+            public boolean doMethodFilter(final BehaviorDescription behaviorDescription) {
+                return "methodOfSumIntArray".equals(behaviorDescription.getJavaMethodName());
+            }
+        }, false, false)).matching(classStructure);
+
+        assertEquals(1, result.getBehaviorStructures().size());
+
+        // 只按名称匹配，父类、接口以及行为的参数、返回、异常、元注释类型都没有被解析
+        assertEquals(requestCount, cache.stats().requestCount());
+    }
+
+    @Test
+    public void test$$ExtFilterMatcher$$javaClassNameArrayCached() throws IOException {
+        final ClassStructure classStructure = createChildClassStructure();
+        assertTrue(classStructure.getFamilyInterfaceJavaClassNameArray().length > 0);
+        assertSame(classStructure.getFamilyInterfaceJavaClassNameArray(), classStructure.getFamilyInterfaceJavaClassNameArray());
+        assertSame(classStructure.getFamilyAnnotationTypeJavaClassNameArray(), classStructure.getFamilyAnnotationTypeJavaClassNameArray());
+        for (final BehaviorStructure behaviorStructure : classStructure.getBehaviorStructures()) {
+            assertEquals(behaviorStructure.getParameterTypeClassStructures().size(), behaviorStructure.getParameterTypeJavaClassNameArray().length);
+            assertSame(behaviorStructure.getParameterTypeJavaClassNameArray(), behaviorStructure.getParameterTypeJavaClassNameArray());
+            assertSame(behaviorStructure.getExceptionTypeJavaClassNameArray(), behaviorStructure.getExceptionTypeJavaClassNameArray());
+            assertSame(behaviorStructure.getAnnotationTypeJavaClassNameArray(), behaviorStructure.getAnnotationTypeJavaClassNameArray());
+        }
+    }
+
+    @Test
+    public void test$$ExtFilterMatcher$$filterCannotModifyCachedArray() throws IOException {
+        final ClassStructure classStructure = createChildClassStructure();
+        final String[] interfaceArray = classStructure.getFamilyInterfaceJavaClassNameArray();
+        final String interfaceName = interfaceArray[0];
+
+        // 模块提供的过滤器修改了传入的数组，类结构上缓存的数组不受影响
+        new ExtFilterMatcher(make(new Filter() {
+            @Override
+            public boolean doClassFilter(final int access,
+                                         final String javaClassName,
+                                         final String superClassTypeJavaClassName,
+                                         final String[] interfaceTypeJavaClassNameArray,
+                                         final String[] annotationTypeJavaClassNameArray) {
+                interfaceTypeJavaClassNameArray[0] = null;
+                return true;
+            }
+
+            @Override
+            public boolean doMethodFilter(final int access,
+                                          final String javaMethodName,
+                                          final String[] parameterTypeJavaClassNameArray,
+                                          final String[] throwsTypeJavaClassNameArray,
+                                          final String[] annotationTypeJavaClassNameArray) {
+                if (parameterTypeJavaClassNameArray.length > 0) {
+                    parameterTypeJavaClassNameArray[0] = null;
+                }
+                return true;
+            }
+        })).matching(classStructure);
+
+        assertSame(interfaceArray, classStructure.getFamilyInterfaceJavaClassNameArray());
+        assertEquals(interfaceName, interfaceArray[0]);
+        for (final BehaviorStructure behaviorStructure : classStructure.getBehaviorStructures()) {
+            for (final String parameterTypeJavaClassName : behaviorStructure.getParameterTypeJavaClassNameArray()) {
+                assertNotNull(parameterTypeJavaClassName);
+            }
+        }
+    }
+
+}
@@ -4,6 +4,7 @@ import com.alibaba.jvm.sandbox.api.Information;
 import com.alibaba.jvm.sandbox.api.Module;
 import com.alibaba.jvm.sandbox.api.annotation.Command;
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.resource.CacheMonitor;
 import com.alibaba.jvm.sandbox.api.resource.ConfigInfo;
 import org.apache.commons.lang3.StringUtils;
 import org.kohsuke.MetaInfServices;
@@ -24,6 +25,9 @@ public class InfoModule implements Module {
     @Resource
     private ConfigInfo configInfo;
 
+    @Resource
+    private CacheMonitor cacheMonitor;
+
     @Command("version")
     public void version(final PrintWriter writer) throws IOException {
         String versionSB =
@@ -44,6 +48,21 @@ public class InfoModule implements Module {
         writer.flush();
     }
 
+    @Command("cache")
+    public void cache(final PrintWriter writer) {
+        writer.println(String.format("%-20s %10s %12s %12s %12s", "NAME", "SIZE", "HIT", "MISS", "EVICTION"));
+        for (final CacheMonitor.CacheInfo cacheInfo : cacheMonitor.getCacheInfos()) {
+            writer.println(String.format("%-20s %10d %12d %12d %12d",
+                    cacheInfo.getName(),
+                    cacheInfo.getSize(),
+                    cacheInfo.getHitCount(),
+                    cacheInfo.getMissCount(),
+                    cacheInfo.getEvictionCount()
+            ));
+        }
+        writer.flush();
+    }
+
     //@Http("/event-pool")
     @Command("event-pool")
     @Deprecated
@@ -0,0 +1,148 @@
+package com.alibaba.jvm.sandbox.spy.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自调用屏障性能基准测试
+ * <p>
+ * 对比原有基于自旋锁+链表的屏障实现与当前基于线程标记的屏障实现，
+ * 模拟大量业务线程同时触发Spy事件的场景，每次操作等价于一次完整的Spy事件处理：判断、进入、离开
+ * </p>
+ * <p>
+ * Spy必须由BootstrapClassLoader加载，所以Fork出的JVM需要将sandbox-spy的类追加到BootClassPath中
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(value = 1, jvmArgsAppend = "-Xbootclasspath/a:target/classes")
+@State(Scope.Benchmark)
+public class SelfCallBarrierBenchmark {
+
+    private final LegacySelfCallBarrier legacyBarrier = new LegacySelfCallBarrier();
+    private final Spy.SelfCallBarrier barrier = new Spy.SelfCallBarrier();
+
+    @Benchmark
+    public boolean legacy() {
+        final Thread thread = Thread.currentThread();
+        if (legacyBarrier.isEnter(thread)) {
+            return false;
+        }
+        final LegacySelfCallBarrier.Node node = legacyBarrier.enter(thread);
+        legacyBarrier.exit(thread, node);
+        return true;
+    }
+
+    @Benchmark
+    public boolean current() {
+        final Spy.SelfCallBarrier.Node node = barrier.enter();
+        if (null == node) {
+            return false;
+        }
+        barrier.exit(node);
+        return true;
+    }
+
+    /**
+     * 原有的自调用屏障实现，原样保留用于对比
+     */
+    static class LegacySelfCallBarrier {
+
+        static class Node {
+            private final Thread thread;
+            private final ReentrantLock lock;
+            private Node pre;
+            private Node next;
+
+            Node(final Thread thread) {
+                this(thread, null);
+            }
+
+            Node(final Thread thread, final ReentrantLock lock) {
+                this.thread = thread;
+                this.lock = lock;
+            }
+
+        }
+
+        void delete(final Node node) {
+            node.pre.next = node.next;
+            if (null != node.next) {
+                node.next.pre = node.pre;
+            }
+            node.pre = (node.next = null);
+        }
+
+        void insert(final Node top, final Node node) {
+            if (null != top.next) {
+                top.next.pre = node;
+            }
+            node.next = top.next;
+            node.pre = top;
+            top.next = node;
+        }
+
+        static final int THREAD_LOCAL_ARRAY_LENGTH = 512;
+
+        final Node[] nodeArray = new Node[THREAD_LOCAL_ARRAY_LENGTH];
+
+        LegacySelfCallBarrier() {
+            for (int i = 0; i < THREAD_LOCAL_ARRAY_LENGTH; i++) {
+                nodeArray[i] = new Node(null, new ReentrantLock());
+            }
+        }
+
+        int abs(int val) {
+            return val < 0
+                    ? val * -1
+                    : val;
+        }
+
+        boolean isEnter(Thread thread) {
+            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
+            Node node = top;
+            try {
+                while (!top.lock.tryLock()) ;
+                while (null != node.next) {
+                    node = node.next;
+                    if (thread == node.thread) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                top.lock.unlock();
+            }
+        }
+
+        Node enter(Thread thread) {
+            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
+            final Node node = new Node(thread);
+            try {
+                while (!top.lock.tryLock()) ;
+                insert(top, node);
+            } finally {
+                top.lock.unlock();
+            }
+            return node;
+        }
+
+        void exit(Thread thread, Node node) {
+            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
+            try {
+                while (!top.lock.tryLock()) ;
+                delete(node);
+            } finally {
+                top.lock.unlock();
+            }
+        }
+
+    }
+
+}
@@ -1,8 +1,11 @@
 package java.com.alibaba.jvm.sandbox.spy;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 间谍类，藏匿在各个ClassLoader中
@@ -24,10 +27,205 @@ public class Spy {
      * F:不对外抛出，只将异常信息打印出来
      */
     public static volatile boolean isSpyThrowException = false;
-    // key=namespace, value=EventListenerHandler
-    private static final ConcurrentHashMap<String, SpyHandler> namespaceSpyHandlerMap
+
+    /**
+     * 空参数数组
+     * <p>
+     * 观察时声明不需要参数的监听器，增强后的代码将在BEFORE事件中传递这个数组，不再进行参数装箱
+     * </p>
+     *
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public static final Object[] EMPTY_ARGUMENT_ARRAY = new Object[0];
+
+    // key=namespace, value=命名空间槽位
+    // 命名空间的槽位一经分配便不再回收，保证同一个命名空间在多次attach之间所植入的槽位保持一致
+    private static final ConcurrentHashMap<String, Integer> namespaceIndexMap
             = new ConcurrentHashMap<>();
 
+    // index=命名空间槽位, value=EventListenerHandler
+    // 写时复制，事件处理时只需要一次数组下标访问即可找到对应的间谍处理器
+    private static volatile SpyHandler[] spyHandlers = new SpyHandler[0];
+
+    /**
+     * 获取命名空间所对应的槽位，若命名空间尚未分配槽位则为其分配
+     * <p>
+     * 槽位将会被织入到增强后的字节码中，替代命名空间字符串的传递
+     * </p>
+     *
+     * @param namespace 命名空间
+     * @return 命名空间槽位
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public synchronized static int getNamespaceIndex(final String namespace) {
+        final Integer index = namespaceIndexMap.get(namespace);
+        if (null != index) {
+            return index;
+        }
+        final int nextIndex = namespaceIndexMap.size();
+        namespaceIndexMap.put(namespace, nextIndex);
+        return nextIndex;
+    }
+
+    // 根据命名空间槽位获取间谍处理器
+    private static SpyHandler getSpyHandler(final int namespaceIndex) {
+        final SpyHandler[] handlers = spyHandlers;
+        return namespaceIndex >= 0 && namespaceIndex < handlers.length
+                ? handlers[namespaceIndex]
+                : null;
+    }
+
+    // 设置命名空间槽位上的间谍处理器
+    private static void setSpyHandler(final int namespaceIndex,
+                                      final SpyHandler spyHandler) {
+        final SpyHandler[] handlers = spyHandlers;
+        final SpyHandler[] newHandlers = new SpyHandler[Math.max(handlers.length, namespaceIndex + 1)];
+        System.arraycopy(handlers, 0, newHandlers, 0, handlers.length);
+        newHandlers[namespaceIndex] = spyHandler;
+        spyHandlers = newHandlers;
+    }
+
+    // 事件监听器ID的低位为监听器槽位，高位为槽位的复用代数
+    private static final int LISTENER_SLOT_BITS = 16;
+    private static final int LISTENER_SLOT_MASK = (1 << LISTENER_SLOT_BITS) - 1;
+    private static final int LISTENER_GENERATION_MASK = Integer.MAX_VALUE >>> LISTENER_SLOT_BITS;
+
+    // index=监听器槽位, value=槽位当前的复用代数，槽位释放时递增
+    // 已释放的事件监听器ID可能仍残留在尚未恢复的字节码中，代数不同的ID不会与槽位的新主人混淆
+    private static int[] listenerSlotGenerations = new int[0];
+
+    // 已经分配过的监听器槽位数量
+    private static int listenerSlotCount = 0;
+
+    // 空闲的监听器槽位
+    private static final ArrayDeque<Integer> freeListenerSlots = new ArrayDeque<>();
+
+    // index=监听器槽位, value=该槽位上处于激活状态的事件监听器ID，0表示没有激活的事件监听器
+    // 数组长度只随同时存在的监听器数量增长；修改时原地写入后重新发布数组引用，只有扩容时才需要复制
+    private static volatile int[] activatedListenerIds = new int[0];
+
+    /**
+     * 分配事件监听器ID
+     * <p>
+     * 事件监听器ID由紧凑的监听器槽位和槽位的复用代数组成，槽位在{@link #releaseListenerId(int)}之后会被复用，
+     * 所以{@link #isListenerActivated(int)}只需要按槽位访问一个长度不超过同时存在的监听器数量的数组。
+     * 在JVM-SANDBOX中允许多个命名空间的存在，所以事件监听器ID也需要在这里全局分配
+     * </p>
+     *
+     * @return 事件监听器ID
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public synchronized static int nextListenerId() {
+        final int slot;
+        if (freeListenerSlots.isEmpty()) {
+            if (listenerSlotCount > LISTENER_SLOT_MASK) {
+                throw new IllegalStateException("too many listeners, limit=" + (LISTENER_SLOT_MASK + 1));
+            }
+            slot = listenerSlotCount++;
+            if (slot >= listenerSlotGenerations.length) {
+                listenerSlotGenerations = Arrays.copyOf(listenerSlotGenerations, Math.max(16, listenerSlotGenerations.length * 2));
+            }
+            listenerSlotGenerations[slot] = 1;
+        } else {
+            slot = freeListenerSlots.pop();
+        }
+        return listenerSlotGenerations[slot] << LISTENER_SLOT_BITS | slot;
+    }
+
+    /**
+     * 释放事件监听器ID
+     * <p>
+     * 释放后事件监听器将不再处于激活状态，槽位留待后续分配的事件监听器复用；重复释放将被忽略
+     * </p>
+     *
+     * @param listenerId 事件监听器ID
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public synchronized static void releaseListenerId(final int listenerId) {
+        if (!isAllocatedListenerId(listenerId)) {
+            return;
+        }
+        setListenerActivated(listenerId, false);
+        releaseListenerSlot(listenerId & LISTENER_SLOT_MASK);
+    }
+
+    /**
+     * 获取事件监听器ID所在的槽位
+     * <p>
+     * 槽位可被复用，以槽位作为数组下标时需要再比较完整的事件监听器ID
+     * </p>
+     *
+     * @param listenerId 事件监听器ID
+     * @return 监听器槽位
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public static int getListenerSlot(final int listenerId) {
+        return listenerId & LISTENER_SLOT_MASK;
+    }
+
+    // 事件监听器ID是否已经分配且尚未释放
+    private static boolean isAllocatedListenerId(final int listenerId) {
+        final int slot = listenerId & LISTENER_SLOT_MASK;
+        return listenerId > 0
+                && slot < listenerSlotCount
+                && listenerSlotGenerations[slot] == listenerId >>> LISTENER_SLOT_BITS;
+    }
+
+    // 递增槽位的复用代数后归还槽位
+    private static void releaseListenerSlot(final int slot) {
+        final int generation = (listenerSlotGenerations[slot] + 1) & LISTENER_GENERATION_MASK;
+        listenerSlotGenerations[slot] = 0 == generation ? 1 : generation;
+        freeListenerSlots.push(slot);
+    }
+
+    /**
+     * 判断事件监听器是否处于激活状态
+     * <p>
+     * 该方法会被织入到增强后的字节码中，未激活时将跳过后续所有的Spy调用
+     * </p>
+     *
+     * @param listenerId 事件监听器ID
+     * @return TRUE:已激活;FALSE:未激活
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public static boolean isListenerActivated(final int listenerId) {
+        final int[] listenerIds = activatedListenerIds;
+        final int slot = getListenerSlot(listenerId);
+        return slot < listenerIds.length
+                && listenerIds[slot] == listenerId;
+    }
+
+    /**
+     * 设置事件监听器的激活状态
+     * <p>
+     * 只有通过{@link #nextListenerId()}分配且尚未释放的事件监听器ID才能被激活
+     * </p>
+     *
+     * @param listenerId  事件监听器ID
+     * @param isActivated 是否激活
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public synchronized static void setListenerActivated(final int listenerId,
+                                                         final boolean isActivated) {
+        final int slot = listenerId & LISTENER_SLOT_MASK;
+        int[] listenerIds = activatedListenerIds;
+        if (!isActivated) {
+            if (slot < listenerIds.length && listenerIds[slot] == listenerId) {
+                listenerIds[slot] = 0;
+                activatedListenerIds = listenerIds;
+            }
+            return;
+        }
+        if (!isAllocatedListenerId(listenerId)) {
+            return;
+        }
+        if (slot >= listenerIds.length) {
+            listenerIds = Arrays.copyOf(listenerIds, listenerSlotGenerations.length);
+        }
+        listenerIds[slot] = listenerId;
+        activatedListenerIds = listenerIds;
+    }
+
     /**
      * 判断间谍类是否已经完成初始化
      *
@@ -35,7 +233,9 @@ public class Spy {
      * @return TRUE:已完成初始化;FALSE:未完成初始化;
      */
     public static boolean isInit(final String namespace) {
-        return namespaceSpyHandlerMap.containsKey(namespace);
+        final Integer index = namespaceIndexMap.get(namespace);
+        return null != index
+                && null != getSpyHandler(index);
     }
 
     /**
@@ -45,9 +245,12 @@ public class Spy {
      * @param spyHandler 间谍处理器
      * @since {@code sandbox-spy:1.3.0}
      */
-    public static void init(final String namespace,
-                            final SpyHandler spyHandler) {
-        namespaceSpyHandlerMap.putIfAbsent(namespace, spyHandler);
+    public synchronized static void init(final String namespace,
+                                         final SpyHandler spyHandler) {
+        final int index = getNamespaceIndex(namespace);
+        if (null == getSpyHandler(index)) {
+            setSpyHandler(index, spyHandler);
+        }
     }
 
     /**
@@ -56,10 +259,29 @@ public class Spy {
      * @param namespace 命名空间
      */
     public synchronized static void clean(final String namespace) {
-        namespaceSpyHandlerMap.remove(namespace);
-        // 如果是最后的一个命名空间，则需要重新清理Node中所持有的Thread
-        if (namespaceSpyHandlerMap.isEmpty()) {
-            selfCallBarrier.cleanAndInit();
+        final Integer index = namespaceIndexMap.get(namespace);
+        if (null != index) {
+            setSpyHandler(index, null);
+        }
+        // 如果是最后的一个命名空间，则需要重新清理各个线程所持有的Node以及监听器的激活状态
+        for (final SpyHandler spyHandler : spyHandlers) {
+            if (null != spyHandler) {
+                return;
+            }
+        }
+        activatedListenerIds = new int[0];
+        releaseAllListenerSlots();
+        selfCallBarrier.cleanAndInit();
+    }
+
+
+    // 归还所有仍被占用的监听器槽位
+    private static void releaseAllListenerSlots() {
+        final Set<Integer> freeSlots = new HashSet<>(freeListenerSlots);
+        for (int slot = 0; slot < listenerSlotCount; slot++) {
+            if (!freeSlots.contains(slot)) {
+                releaseListenerSlot(slot);
+            }
         }
     }
 
@@ -69,7 +291,7 @@ public class Spy {
 
     /**
      * 生成全局唯一序列，
-     * 在JVM-SANDBOX中允许多个命名空间的存在，不同的命名空间下listenerId/objectId将会被植入到同一份字节码中，
+     * 在JVM-SANDBOX中允许多个命名空间的存在，不同的命名空间下objectId将会被植入到同一份字节码中，
      * 此时需要用全局的ID生成策略规避不同的命名空间
      *
      * @return 全局自增序列
@@ -93,10 +315,10 @@ public class Spy {
                                              final String owner,
                                              final String name,
                                              final String desc,
-                                             final String namespace,
+                                             final int namespaceIndex,
                                              final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null != spyHandler) {
                 spyHandler.handleOnCallBefore(listenerId, lineNumber, owner, name, desc);
             }
@@ -105,10 +327,10 @@ public class Spy {
         }
     }
 
-    public static void spyMethodOnCallReturn(final String namespace,
+    public static void spyMethodOnCallReturn(final int namespaceIndex,
                                              final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null != spyHandler) {
                 spyHandler.handleOnCallReturn(listenerId);
             }
@@ -118,10 +340,10 @@ public class Spy {
     }
 
     public static void spyMethodOnCallThrows(final String throwException,
-                                             final String namespace,
+                                             final int namespaceIndex,
                                              final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null != spyHandler) {
                 spyHandler.handleOnCallThrows(listenerId, throwException);
             }
@@ -131,10 +353,10 @@ public class Spy {
     }
 
     public static void spyMethodOnLine(final int lineNumber,
-                                       final String namespace,
+                                       final int namespaceIndex,
                                        final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null != spyHandler) {
                 spyHandler.handleOnLine(listenerId, lineNumber);
             }
@@ -144,48 +366,37 @@ public class Spy {
     }
 
     public static Ret spyMethodOnBefore(final Object[] argumentArray,
-                                        final String namespace,
+                                        final int namespaceIndex,
                                         final int listenerId,
-                                        final int targetClassLoaderObjectID,
-                                        final String javaClassName,
-                                        final String javaMethodName,
-                                        final String javaMethodDesc,
+                                        final int behaviorId,
                                         final Object target) throws Throwable {
-        final Thread thread = Thread.currentThread();
-        if (selfCallBarrier.isEnter(thread)) {
+        final SelfCallBarrier.Node node = selfCallBarrier.enter();
+        if (null == node) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null == spyHandler) {
                 return Ret.RET_NONE;
             }
-            return spyHandler.handleOnBefore(
-                    listenerId, targetClassLoaderObjectID, argumentArray,
-                    javaClassName,
-                    javaMethodName,
-                    javaMethodDesc,
-                    target
-            );
+            return spyHandler.handleOnBefore(listenerId, behaviorId, argumentArray, target);
         } catch (Throwable cause) {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(node);
         }
     }
 
     public static Ret spyMethodOnReturn(final Object object,
-                                        final String namespace,
+                                        final int namespaceIndex,
                                         final int listenerId) throws Throwable {
-        final Thread thread = Thread.currentThread();
-        if (selfCallBarrier.isEnter(thread)) {
+        final SelfCallBarrier.Node node = selfCallBarrier.enter();
+        if (null == node) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null == spyHandler) {
                 return Ret.RET_NONE;
             }
@@ -194,20 +405,19 @@ public class Spy {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(node);
         }
     }
 
     public static Ret spyMethodOnThrows(final Throwable throwable,
-                                        final String namespace,
+                                        final int namespaceIndex,
                                         final int listenerId) throws Throwable {
-        final Thread thread = Thread.currentThread();
-        if (selfCallBarrier.isEnter(thread)) {
+        final SelfCallBarrier.Node node = selfCallBarrier.enter();
+        if (null == node) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null == spyHandler) {
                 return Ret.RET_NONE;
             }
@@ -216,7 +426,7 @@ public class Spy {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(node);
         }
     }
 
@@ -264,109 +474,69 @@ public class Spy {
     }
 
     /**
-     * 本地线程
+     * 自调用屏障
+     * <p>
+     * 用于阻断Spy在处理事件的过程中再次触发Spy事件(自调用)，每个线程持有一个独立的标记，
+     * 进入、判断、退出都只需要读写当前线程的标记，无锁、无对象分配
+     * </p>
      */
     public static class SelfCallBarrier {
 
+        /**
+         * 线程标记
+         */
         public static class Node {
-            private final Thread thread;
-            private final ReentrantLock lock;
-            private Node pre;
-            private Node next;
 
-            Node(final Thread thread) {
-                this(thread, null);
-            }
-
-            Node(final Thread thread, final ReentrantLock lock) {
-                this.thread = thread;
-                this.lock = lock;
-            }
+            // 当前线程是否已经进入屏障
+            private boolean isEnter;
 
         }
 
-        // 删除节点
-        void delete(final Node node) {
-            node.pre.next = node.next;
-            if (null != node.next) {
-                node.next.pre = node.pre;
-            }
-            // help gc
-            node.pre = (node.next = null);
-        }
-
-        // 插入节点
-        void insert(final Node top, final Node node) {
-            if (null != top.next) {
-                top.next.pre = node;
-            }
-            node.next = top.next;
-            node.pre = top;
-            top.next = node;
-        }
-
-        static final int THREAD_LOCAL_ARRAY_LENGTH = 512;
+        private volatile ThreadLocal<Node> nodeRef;
 
-        final Node[] nodeArray = new Node[THREAD_LOCAL_ARRAY_LENGTH];
-
-        SelfCallBarrier() {
+        public SelfCallBarrier() {
             cleanAndInit();
         }
 
-        Node createTopNode() {
-            return new Node(null, new ReentrantLock());
-        }
-
+        /**
+         * 清理所有线程的标记
+         * <p>
+         * 通过更换ThreadLocal的方式让之前各个线程所持有的标记失效，失效的标记会随着ThreadLocal被回收而释放
+         * </p>
+         */
         void cleanAndInit() {
-            for (int i = 0; i < THREAD_LOCAL_ARRAY_LENGTH; i++) {
-                nodeArray[i] = createTopNode();
-            }
-        }
-
-        int abs(int val) {
-            return val < 0
-                    ? val * -1
-                    : val;
-        }
-
-        boolean isEnter(Thread thread) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
-            Node node = top;
-            try {
-                // spin for lock
-                while (!top.lock.tryLock()) ;
-                while (null != node.next) {
-                    node = node.next;
-                    if (thread == node.thread) {
-                        return true;
-                    }
+            nodeRef = new ThreadLocal<Node>() {
+                @Override
+                protected Node initialValue() {
+                    return new Node();
                 }
-                return false;
-            } finally {
-                top.lock.unlock();
-            }
+            };
         }
 
-        Node enter(Thread thread) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
-            final Node node = new Node(thread);
-            try {
-                while (!top.lock.tryLock()) ;
-                insert(top, node);
-            } finally {
-                top.lock.unlock();
+        /**
+         * 进入屏障
+         *
+         * @return 当前线程的标记，若当前线程已经在屏障中则返回null
+         */
+        public Node enter() {
+            final Node node = nodeRef.get();
+            if (node.isEnter) {
+                return null;
             }
+            node.isEnter = true;
             return node;
         }
 
-        void exit(Thread thread, Node node) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
-            try {
-                while (!top.lock.tryLock()) ;
-                delete(node);
-            } finally {
-                top.lock.unlock();
-            }
+        /**
+         * 离开屏障
+         * <p>
+         * 必须使用{@link #enter()}所返回的标记离开，避免在{@link #cleanAndInit()}之后错误的清理了新的标记
+         * </p>
+         *
+         * @param node 当前线程的标记
+         */
+        public void exit(final Node node) {
+            node.isEnter = false;
         }
 
     }